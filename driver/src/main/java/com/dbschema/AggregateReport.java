@@ -0,0 +1,91 @@
+package com.dbschema;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress and outcome of a client side parallel aggregate.
+ *
+ * @see CassandraStatement#getLastAggregateReport()
+ */
+public class AggregateReport {
+    private final String query;
+    private final int rangeCount;
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicInteger completedRanges = new AtomicInteger();
+    private final AtomicInteger retries = new AtomicInteger();
+    private final Map<String, String> failedRanges = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+    private volatile long endTime = -1;
+
+    AggregateReport(String query, int rangeCount) {
+        this.query = query;
+        this.rangeCount = rangeCount;
+    }
+
+    public interface Listener {
+        /**
+         * Called after every completed token range. May be called from driver I/O threads, so it must not block.
+         */
+        void onProgress(AggregateReport report);
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    public int getCompletedRanges() {
+        return completedRanges.get();
+    }
+
+    public int getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * @return last error message of every range that failed after retries, keyed by "start..end"
+     */
+    public Map<String, String> getFailedRanges() {
+        synchronized (failedRanges) {
+            return new LinkedHashMap<>(failedRanges);
+        }
+    }
+
+    public boolean isFinished() {
+        return endTime >= 0;
+    }
+
+    public long getElapsedMillis() {
+        return (isFinished() ? endTime : System.currentTimeMillis()) - startTime;
+    }
+
+    void rangeCompleted() {
+        completedRanges.incrementAndGet();
+    }
+
+    void rangeRetried() {
+        retries.incrementAndGet();
+    }
+
+    void rangeFailed(String range, String message) {
+        failedRanges.put(range, message);
+    }
+
+    void finish() {
+        endTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public String toString() {
+        return "AggregateReport{ranges=" + rangeCount +
+                ", completed=" + getCompletedRanges() +
+                ", failed=" + failedRanges.size() +
+                ", retries=" + getRetryCount() +
+                ", elapsed=" + getElapsedMillis() + "ms}";
+    }
+}
@@ -0,0 +1,118 @@
+package com.dbschema;
+
+import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.CodecNotFoundException;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.datastax.driver.core.exceptions.QueryValidationException;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Prepares frequently executed unprepared statements. Executions are counted per {@link CqlShape},
+ * once a shape is executed {@code threshold} times it is prepared and later executions bind the literals
+ * extracted from the CQL to the prepared statement.
+ * <p>
+ * Shapes that can not be prepared, or whose literals do not fit the types of the bind markers,
+ * are executed as is. So are {@code SELECT *} shapes: the driver reuses the result columns of a prepared statement,
+ * which would be stale after the table is altered, and the user did not prepare the statement to accept that.
+ */
+class AutoPreparer {
+    private static final Logger logger = Logger.getLogger("AutoPreparerLogger");
+    private static final int COUNTED_SHAPES = 4096;
+    private static final int REJECTED = -1;
+
+    private final Session session;
+    private final int threshold;
+    private final Map<String, AtomicInteger> executions;
+    private final Map<String, PreparedStatement> prepared;
+
+    AutoPreparer(Session session, int threshold, int cacheSize) {
+        this.session = session;
+        this.threshold = threshold;
+        this.executions = lruMap(COUNTED_SHAPES);
+        this.prepared = lruMap(cacheSize);
+    }
+
+    /**
+     * @return bound statement or null if the statement should be executed unprepared
+     */
+    BoundStatement bind(String cql) {
+        if (threshold == 0) return null;
+        CqlShape shape = CqlShape.parse(cql);
+        if (shape == null) return null;
+        String query = shape.getQuery();
+        if (selectsAllColumns(query)) return null;
+        // unqualified tables depend on the keyspace selected by USE
+        String key = session.getLoggedKeyspace() + '\n' + query;
+        PreparedStatement statement = prepared.get(key);
+        if (statement == null) {
+            AtomicInteger count = executions.get(key);
+            if (count == null) {
+                count = new AtomicInteger();
+                executions.put(key, count);
+            }
+            int executed = count.get() == REJECTED ? REJECTED : count.incrementAndGet();
+            if (executed < threshold) return null;
+            try {
+                statement = session.prepare(query);
+            } catch (QueryValidationException e) {
+                logger.fine("Cannot prepare '" + query + "': " + e.getMessage());
+                count.set(REJECTED);
+                return null;
+            } catch (DriverException e) {
+                logger.warning("Cannot prepare '" + query + "': " + e.getMessage());
+                return null;
+            }
+            prepared.put(key, statement);
+        }
+        return bind(statement, shape.getLiterals());
+    }
+
+    /**
+     * @return true if the query is a SELECT of {@code *}, e.g. {@code SELECT * FROM t} or {@code SELECT JSON * FROM t}
+     */
+    static boolean selectsAllColumns(String query) {
+        List<CqlTokenizer.Token> tokens = CqlTokenizer.significant(CqlTokenizer.tokenize(query));
+        if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) return false;
+        int depth = 0;
+        for (int i = 1; i < tokens.size(); i++) {
+            CqlTokenizer.Token token = tokens.get(i);
+            if (token.is("(")) depth++;
+            else if (token.is(")")) depth--;
+            else if (depth == 0 && token.is("FROM")) return false;
+            else if (depth == 0 && token.is("*")) return true;
+        }
+        return false;
+    }
+
+    private BoundStatement bind(PreparedStatement statement, List<String> literals) {
+        ColumnDefinitions variables = statement.getVariables();
+        if (variables.size() != literals.size()) return null;
+        ProtocolVersion protocolVersion = session.getCluster().getConfiguration().getProtocolOptions().getProtocolVersion();
+        BoundStatement bound = statement.bind();
+        try {
+            for (int i = 0; i < literals.size(); i++) {
+                TypeCodec<Object> codec = CodecRegistry.DEFAULT_INSTANCE.codecFor(variables.getType(i));
+                bound.setBytesUnsafe(i, codec.serialize(codec.parse(literals.get(i)), protocolVersion));
+            }
+        } catch (InvalidTypeException | CodecNotFoundException e) {
+            return null;
+        }
+        return bound;
+    }
+
+    private static <V> Map<String, V> lruMap(final int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+}
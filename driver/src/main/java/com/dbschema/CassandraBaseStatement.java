@@ -1,22 +1,42 @@
 package com.dbschema;
 
 import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.QueryTrace;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.exceptions.SyntaxError;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import java.sql.*;
+import java.util.Locale;
 
 /**
  * @author Liudmila Kornilova
  **/
 public abstract class CassandraBaseStatement implements Statement {
     final com.datastax.driver.core.Session session;
+    final CassandraConnection connection;
     BatchStatement batchStatement = null;
     private boolean isClosed = false;
+    private String retryPolicy;
+    private ExecutionProfile profile;
+    private boolean tracing;
+    /**
+     * Trace of the last execution if it was traced on request, sampled traces are not kept.
+     */
+    private ListenableFuture<QueryTrace> trace;
+    private boolean traceWarnings;
+    /**
+     * Execution whose pages are not read yet, it is finished by the result set.
+     */
+    private SlowQueryLog.Execution pendingExecution;
     ResultSet result;
 
-    CassandraBaseStatement(Session session) {
+    CassandraBaseStatement(Session session, CassandraConnection connection) {
         this.session = session;
+        this.connection = connection;
     }
 
     @Override
@@ -35,6 +55,173 @@ public abstract class CassandraBaseStatement implements Statement {
         return isClosed;
     }
 
+    /**
+     * Overrides the {@code retryPolicy} option of the connection for statements executed by this statement.
+     * Use {@code unwrap(CassandraBaseStatement.class)} to call it through the JDBC API.
+     *
+     * @param retryPolicy one of {@link DriverPropertyInfoHelper#RETRY_POLICY_CHOICES}, null to use the policy of the connection
+     */
+    public void setRetryPolicy(String retryPolicy) throws SQLException {
+        if (retryPolicy != null && StatementRetry.driverPolicy(retryPolicy) == null) {
+            throw new SQLException("Unknown retry policy '" + retryPolicy + "'");
+        }
+        this.retryPolicy = retryPolicy == null ? null : retryPolicy.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return retry policy of this statement, null if the policy of the connection is used
+     */
+    public String getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Selects a profile for statements executed by this statement, it takes precedence over the profile
+     * of the connection. Use {@code unwrap(CassandraBaseStatement.class)} to call it through the JDBC API.
+     *
+     * @param profile name of a profile defined by {@code profile.<name>.<setting>} options, null to use the profile of the connection
+     * @see ExecutionProfile
+     */
+    public void setProfile(String profile) throws SQLException {
+        this.profile = profile == null ? null : connection.getDefinedProfile(profile);
+    }
+
+    /**
+     * @return profile of this statement, null if the profile of the connection is used
+     */
+    public ExecutionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Enables tracing of statements executed by this statement. Use {@code unwrap(CassandraBaseStatement.class)}
+     * to call it through the JDBC API. Trace events are returned by {@link #getTraceEvents()} and {@link #getWarnings()}.
+     */
+    public void setTracing(boolean tracing) {
+        this.tracing = tracing;
+    }
+
+    public boolean isTracing() {
+        return tracing;
+    }
+
+    /**
+     * @return trace events of the last execution of this statement, waits until Cassandra has written them,
+     * null if the execution was not traced
+     */
+    public ListResultSet getTraceEvents() throws SQLException {
+        ListenableFuture<QueryTrace> trace = this.trace;
+        return trace == null ? null : TraceCapture.toResultSet(TraceCapture.get(trace));
+    }
+
+    /**
+     * Applies the profile and the hints of the statement, see {@link QueryHints}, and executes it.
+     *
+     * @param cql text of the statement, null for batches
+     */
+    com.datastax.driver.core.ResultSet executeStatement(com.datastax.driver.core.Statement statement, String cql) throws SQLException {
+        trace = null;
+        Settings settings = settings(cql);
+        settings.apply(statement);
+        String effectiveRetryPolicy = settings.retryPolicy;
+        TraceCapture traceCapture = connection.getTraceCapture();
+        boolean traced = statement.isTracing();
+        if (!traced && traceCapture.sample()) statement.enableTracing();
+        long start = System.nanoTime();
+        Object event = DriverEvents.beginExecute();
+        com.datastax.driver.core.ResultSet resultSet;
+        try {
+            resultSet = connection.getStatementRetry().execute(session, statement, effectiveRetryPolicy);
+        } catch (RuntimeException e) {
+            connection.getStatementMetrics().recordError(System.nanoTime() - start);
+            DriverEvents.endExecute(event, statement, cql, null);
+            throw e;
+        }
+        DriverEvents.endExecute(event, statement, cql, resultSet);
+        long executeNanos = System.nanoTime() - start;
+        connection.getStatementMetrics().recordExecution(statement, resultSet, executeNanos);
+        SlowQueryLog slowQueryLog = connection.getSlowQueryLog();
+        if (slowQueryLog.isEnabled()) {
+            SlowQueryLog.Execution execution = slowQueryLog.start(statement, cql, resultSet, executeNanos);
+            if (resultSet.isFullyFetched()) execution.finish();
+            else pendingExecution = execution;
+        }
+        if (statement.isTracing()) {
+            ListenableFuture<QueryTrace> future = traceCapture.capture(resultSet.getExecutionInfo(), cql, !traced);
+            if (traced) {
+                trace = future;
+                traceWarnings = true;
+                connection.setLastTrace(future);
+            }
+        }
+        return resultSet;
+    }
+
+    /**
+     * Executes a sub-query of an IN fan-out or a multi-get asynchronously. It is recorded in the metrics, the slow query log
+     * and flight recordings like statements executed by {@link #executeStatement}, its settings are applied by
+     * {@link Settings#applyToSubQuery}. It is retried by the retry policy of the settings, with delays if it is {@code backoff}.
+     *
+     * @param cql text of the sub-query
+     */
+    ListenableFuture<com.datastax.driver.core.ResultSet> executeAsync(final com.datastax.driver.core.Statement statement,
+                                                                      final String cql, Settings settings) {
+        final long start = System.nanoTime();
+        final Object event = DriverEvents.beginExecute();
+        ListenableFuture<com.datastax.driver.core.ResultSet> future;
+        try {
+            future = settings.executeAsync(statement);
+        } catch (RuntimeException e) {
+            connection.getStatementMetrics().recordError(System.nanoTime() - start);
+            DriverEvents.endExecute(event, statement, cql, null);
+            throw e;
+        }
+        Futures.addCallback(future, new FutureCallback<com.datastax.driver.core.ResultSet>() {
+            @Override
+            public void onSuccess(com.datastax.driver.core.ResultSet resultSet) {
+                long executeNanos = System.nanoTime() - start;
+                DriverEvents.endExecute(event, statement, cql, resultSet);
+                connection.getStatementMetrics().recordExecution(statement, resultSet, executeNanos);
+                SlowQueryLog slowQueryLog = connection.getSlowQueryLog();
+                // pages after the first one are fetched by the reader of the rows and are not added to the execution
+                if (slowQueryLog.isEnabled()) slowQueryLog.start(statement, cql, resultSet, executeNanos).finish();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                connection.getStatementMetrics().recordError(System.nanoTime() - start);
+                DriverEvents.endExecute(event, statement, cql, null);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    /**
+     * @param cql text of the statement, null for batches
+     * @return settings of the connection, the profile and the hints of the statement
+     */
+    Settings settings(String cql) throws SQLException {
+        QueryHints hints = cql == null ? QueryHints.NONE : QueryHints.of(cql);
+        ExecutionProfile effectiveProfile = hints.getProfile(connection);
+        if (effectiveProfile == null) effectiveProfile = profile;
+        if (effectiveProfile == null) effectiveProfile = connection.getProfile();
+        String effectiveRetryPolicy = retryPolicy;
+        if (effectiveProfile != null && effectiveRetryPolicy == null) effectiveRetryPolicy = effectiveProfile.getRetryPolicy();
+        ExecutionProfile hinted = hints.getSettings();
+        if (hinted != null && hinted.getRetryPolicy() != null) effectiveRetryPolicy = hinted.getRetryPolicy();
+        return new Settings(effectiveProfile, hinted, effectiveRetryPolicy);
+    }
+
+    /**
+     * @return execution of the result set whose pages are not read yet, null if it is not tracked
+     */
+    SlowQueryLog.Execution takeExecution(com.datastax.driver.core.ResultSet resultSet) {
+        SlowQueryLog.Execution execution = pendingExecution;
+        if (execution == null || execution.getResultSet() != resultSet) return null;
+        pendingExecution = null;
+        return execution;
+    }
+
     boolean executeInner(com.datastax.driver.core.ResultSet resultSet, boolean returnNullStrings) throws SQLException {
         try {
             CassandraResultSet cassandraResultSet = new CassandraResultSet(this, resultSet, returnNullStrings);
@@ -51,6 +238,55 @@ public abstract class CassandraBaseStatement implements Statement {
         }
     }
 
+    /**
+     * Settings a statement is executed with: the settings of the connection like {@code PAGING} and {@code TIMEOUT},
+     * then the profile of the statement, then its hints, see {@link QueryHints}.
+     */
+    class Settings {
+        private final ExecutionProfile profile;
+        private final ExecutionProfile hinted;
+        /**
+         * Retry policy of the profile or the hints, null to use the policy of the connection.
+         */
+        private final String retryPolicy;
+
+        private Settings(ExecutionProfile profile, ExecutionProfile hinted, String retryPolicy) {
+            this.profile = profile;
+            this.hinted = hinted;
+            this.retryPolicy = retryPolicy;
+        }
+
+        void apply(com.datastax.driver.core.Statement statement) {
+            connection.applySessionSettings(statement);
+            if (tracing) statement.enableTracing();
+            if (profile != null) profile.apply(statement);
+            if (hinted != null) hinted.apply(statement);
+        }
+
+        /**
+         * Applies the settings to a sub-query of a parallel aggregate or an IN fan-out, which is executed on the session
+         * directly, so the retry policy is set on the sub-query.
+         */
+        void applyToSubQuery(com.datastax.driver.core.Statement statement) {
+            apply(statement);
+            if (retryPolicy != null) statement.setRetryPolicy(StatementRetry.driverPolicy(retryPolicy));
+        }
+
+        /**
+         * Executes a sub-query with the retry policy of the settings, see {@link StatementRetry#execute}.
+         */
+        com.datastax.driver.core.ResultSet execute(com.datastax.driver.core.Statement statement) {
+            return connection.getStatementRetry().execute(session, statement, retryPolicy);
+        }
+
+        /**
+         * Executes a sub-query with the retry policy of the settings, see {@link StatementRetry#executeAsync}.
+         */
+        ListenableFuture<com.datastax.driver.core.ResultSet> executeAsync(com.datastax.driver.core.Statement statement) {
+            return connection.getStatementRetry().executeAsync(session, statement, retryPolicy);
+        }
+    }
+
     @Override
     public boolean getMoreResults() {
         // todo
@@ -68,7 +304,7 @@ public abstract class CassandraBaseStatement implements Statement {
         if (batchStatement == null) throw new SQLException("No batch statements were submitted");
         int statementsCount = batchStatement.size();
         try {
-            session.execute(batchStatement);
+            executeStatement(batchStatement, null);
         } catch (Throwable t) {
             throw new SQLException(t.getMessage(), t);
         } finally {
@@ -83,12 +319,13 @@ public abstract class CassandraBaseStatement implements Statement {
 
     @Override
     public <T> T unwrap(final Class<T> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException(getClass().getSimpleName() + " is not a wrapper for " + iface.getName());
     }
 
     @Override
-    public boolean isWrapperFor(final Class<?> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+    public boolean isWrapperFor(final Class<?> iface) {
+        return iface.isInstance(this);
     }
 
     @Override
@@ -158,12 +395,19 @@ public abstract class CassandraBaseStatement implements Statement {
 
     @Override
     public SQLWarning getWarnings() {
-        return null; // todo
+        ListenableFuture<QueryTrace> trace = this.trace;
+        // trace events of a statement traced on request
+        if (trace == null || !traceWarnings) return null;
+        try {
+            return TraceCapture.toWarnings(TraceCapture.get(trace));
+        } catch (SQLException e) {
+            return new SQLWarning(e.getMessage(), e);
+        }
     }
 
     @Override
     public void clearWarnings() {
-        // todo
+        traceWarnings = false;
     }
 
     @Override
@@ -8,6 +8,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.KeyStore;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import static com.datastax.driver.core.QueryOptions.DEFAULT_CONSISTENCY_LEVEL;
@@ -17,6 +18,7 @@ import static com.dbschema.SSLUtil.getTrustEverybodySSLContext;
 public class CassandraClientURI {
 
     private static final Logger logger = Logger.getLogger("CassandraClientURILogger");
+    private static final AtomicInteger CLUSTER_COUNTER = new AtomicInteger();
 
     static final String PREFIX = "jdbc:cassandra://";
 
@@ -29,6 +31,41 @@ public class CassandraClientURI {
     private final boolean sslEnabled;
     private final boolean verifyServerCert;
     private final ConsistencyLevel consistencyLevel;
+    private final boolean parallelAggregates;
+    private final int parallelAggregateConcurrency;
+    private final int parallelAggregateSplits;
+    private final int inFanOutThreshold;
+    private final int inFanOutConcurrency;
+    private final int multiGetConcurrency;
+    private final int autoPrepareThreshold;
+    private final int autoPrepareCacheSize;
+    private final String schemaCacheFile;
+    private final boolean metadataEnabled;
+    private final int schemaRefreshIntervalMillis;
+    private final int maxPendingSchemaRefreshes;
+    private final int sizeEstimatesTtlSeconds;
+    private final String preparedWarmupFile;
+    private final int preparedWarmupSize;
+    private final int ioThreads;
+    private final String transport;
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final boolean tcpNoDelay;
+    private final Boolean keepAlive;
+    private final Integer sendBufferSize;
+    private final Integer receiveBufferSize;
+    private final int heartbeatIntervalSeconds;
+    private final String retryPolicy;
+    private final int maxRetries;
+    private final int retryDelayMillis;
+    private final int maxRetryDelayMillis;
+    private final int retryBudgetPercent;
+    private final Map<String, ExecutionProfile> profiles;
+    private final double traceSampling;
+    private final int slowTraceThresholdMillis;
+    private final boolean jmxEnabled;
+    private final int slowQueryThresholdMillis;
+    private final int slowQueryLogsPerSecond;
 
     public CassandraClientURI(String uri, Properties info) {
         this.uri = uri;
@@ -43,7 +80,9 @@ public class CassandraClientURI {
         Map<String, List<String>> options = null;
 
         {
-            int lastSlashIndex = uri.lastIndexOf("/");
+            // option values may contain slashes, e.g. file paths
+            int optionsIndex = uri.indexOf("?");
+            int lastSlashIndex = optionsIndex < 0 ? uri.lastIndexOf("/") : uri.lastIndexOf("/", optionsIndex);
             if (lastSlashIndex < 0) {
                 if (uri.contains("?")) {
                     throw new IllegalArgumentException("URI contains options without trailing slash");
@@ -77,6 +116,47 @@ public class CassandraClientURI {
             consistencyLevel = DEFAULT_CONSISTENCY_LEVEL;
         }
         this.consistencyLevel = consistencyLevel;
+        this.parallelAggregates = isTrue(getOption(info, options, PARALLEL_AGGREGATES, PARALLEL_AGGREGATES_DEFAULT));
+        this.parallelAggregateConcurrency = getIntOption(info, options, PARALLEL_AGGREGATE_CONCURRENCY, PARALLEL_AGGREGATE_CONCURRENCY_DEFAULT, 1);
+        this.parallelAggregateSplits = getIntOption(info, options, PARALLEL_AGGREGATE_SPLITS, PARALLEL_AGGREGATE_SPLITS_DEFAULT, 1);
+        this.inFanOutThreshold = getIntOption(info, options, IN_FAN_OUT_THRESHOLD, IN_FAN_OUT_THRESHOLD_DEFAULT, 0);
+        this.inFanOutConcurrency = getIntOption(info, options, IN_FAN_OUT_CONCURRENCY, IN_FAN_OUT_CONCURRENCY_DEFAULT, 1);
+        this.multiGetConcurrency = getIntOption(info, options, MULTI_GET_CONCURRENCY, MULTI_GET_CONCURRENCY_DEFAULT, 1);
+        this.autoPrepareThreshold = getIntOption(info, options, AUTO_PREPARE_THRESHOLD, AUTO_PREPARE_THRESHOLD_DEFAULT, 0);
+        this.autoPrepareCacheSize = getIntOption(info, options, AUTO_PREPARE_CACHE_SIZE, AUTO_PREPARE_CACHE_SIZE_DEFAULT, 1);
+        this.schemaCacheFile = getOption(info, options, SCHEMA_CACHE_FILE, null);
+        this.metadataEnabled = isTrue(getOption(info, options, METADATA_ENABLED, METADATA_ENABLED_DEFAULT));
+        this.schemaRefreshIntervalMillis = getIntOption(info, options, SCHEMA_REFRESH_INTERVAL, SCHEMA_REFRESH_INTERVAL_DEFAULT, 0);
+        this.maxPendingSchemaRefreshes = getIntOption(info, options, MAX_PENDING_SCHEMA_REFRESHES, MAX_PENDING_SCHEMA_REFRESHES_DEFAULT, 1);
+        this.sizeEstimatesTtlSeconds = getIntOption(info, options, SIZE_ESTIMATES_TTL, SIZE_ESTIMATES_TTL_DEFAULT, 0);
+        this.preparedWarmupFile = getOption(info, options, PREPARED_WARMUP_FILE, null);
+        this.preparedWarmupSize = getIntOption(info, options, PREPARED_WARMUP_SIZE, PREPARED_WARMUP_SIZE_DEFAULT, 1);
+        this.ioThreads = getIntOption(info, options, IO_THREADS, IO_THREADS_DEFAULT, 0);
+        this.transport = getOption(info, options, TRANSPORT, TRANSPORT_DEFAULT).trim().toLowerCase(Locale.ENGLISH);
+        if (!Arrays.asList(TRANSPORT_CHOICES).contains(transport)) {
+            throw new IllegalArgumentException("Option " + TRANSPORT + " must be one of " + Arrays.toString(TRANSPORT_CHOICES) + ", got '" + transport + "'");
+        }
+        this.connectTimeoutMillis = getIntOption(info, options, CONNECT_TIMEOUT, CONNECT_TIMEOUT_DEFAULT, 1);
+        this.readTimeoutMillis = getIntOption(info, options, READ_TIMEOUT, READ_TIMEOUT_DEFAULT, 0);
+        this.tcpNoDelay = getBooleanOption(info, options, TCP_NO_DELAY, TCP_NO_DELAY_DEFAULT);
+        this.keepAlive = getOption(info, options, KEEP_ALIVE, null) == null ? null : getBooleanOption(info, options, KEEP_ALIVE, null);
+        this.sendBufferSize = getOption(info, options, SEND_BUFFER_SIZE, null) == null ? null : getIntOption(info, options, SEND_BUFFER_SIZE, null, 1);
+        this.receiveBufferSize = getOption(info, options, RECEIVE_BUFFER_SIZE, null) == null ? null : getIntOption(info, options, RECEIVE_BUFFER_SIZE, null, 1);
+        this.heartbeatIntervalSeconds = getIntOption(info, options, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL_DEFAULT, 0);
+        this.retryPolicy = getOption(info, options, RETRY_POLICY, RETRY_POLICY_DEFAULT).trim().toLowerCase(Locale.ENGLISH);
+        if (!Arrays.asList(RETRY_POLICY_CHOICES).contains(retryPolicy)) {
+            throw new IllegalArgumentException("Option " + RETRY_POLICY + " must be one of " + Arrays.toString(RETRY_POLICY_CHOICES) + ", got '" + retryPolicy + "'");
+        }
+        this.maxRetries = getIntOption(info, options, MAX_RETRIES, MAX_RETRIES_DEFAULT, 0);
+        this.retryDelayMillis = getIntOption(info, options, RETRY_DELAY, RETRY_DELAY_DEFAULT, 1);
+        this.maxRetryDelayMillis = getIntOption(info, options, MAX_RETRY_DELAY, MAX_RETRY_DELAY_DEFAULT, 1);
+        this.retryBudgetPercent = getIntOption(info, options, RETRY_BUDGET_PERCENT, RETRY_BUDGET_PERCENT_DEFAULT, 0);
+        this.profiles = parseProfiles(info, options);
+        this.traceSampling = getDoubleOption(info, options, TRACE_SAMPLING, TRACE_SAMPLING_DEFAULT, 0, 1);
+        this.slowTraceThresholdMillis = getIntOption(info, options, SLOW_TRACE_THRESHOLD, SLOW_TRACE_THRESHOLD_DEFAULT, 0);
+        this.jmxEnabled = getBooleanOption(info, options, JMX_ENABLED, JMX_ENABLED_DEFAULT);
+        this.slowQueryThresholdMillis = getIntOption(info, options, SLOW_QUERY_THRESHOLD, SLOW_QUERY_THRESHOLD_DEFAULT, 0);
+        this.slowQueryLogsPerSecond = getIntOption(info, options, SLOW_QUERY_LOGS_PER_SECOND, SLOW_QUERY_LOGS_PER_SECOND_DEFAULT, 0);
 
 
         { // userName,password,hosts
@@ -117,6 +197,67 @@ public class CassandraClientURI {
         return value != null ? value : defaultValue;
     }
 
+    private int getIntOption(Properties properties, Map<String, List<String>> options, String optionName, String defaultValue, int minValue) {
+        String value = getOption(properties, options, optionName, defaultValue);
+        try {
+            int result = Integer.parseInt(value.trim());
+            if (result >= minValue) return result;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Option " + optionName + " must be an integer not less than " + minValue + ", got '" + value + "'");
+    }
+
+    private double getDoubleOption(Properties properties, Map<String, List<String>> options, String optionName, String defaultValue,
+                                   double minValue, double maxValue) {
+        String value = getOption(properties, options, optionName, defaultValue);
+        try {
+            double result = Double.parseDouble(value.trim());
+            if (result >= minValue && result <= maxValue) return result;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Option " + optionName + " must be a number from " + minValue + " to " + maxValue + ", got '" + value + "'");
+    }
+
+    private boolean getBooleanOption(Properties properties, Map<String, List<String>> options, String optionName, String defaultValue) {
+        String value = getOption(properties, options, optionName, defaultValue);
+        String lower = value.trim().toLowerCase(Locale.ENGLISH);
+        if (lower.equals("true") || lower.equals("1")) return true;
+        if (lower.equals("false") || lower.equals("0")) return false;
+        throw new IllegalArgumentException("Option " + optionName + " must be true or false, got '" + value + "'");
+    }
+
+    /**
+     * @return profiles by lower case name from {@code profile.<name>.<setting>} options, properties override the uri
+     */
+    private Map<String, ExecutionProfile> parseProfiles(Properties properties, Map<String, List<String>> options) {
+        Map<String, Map<String, String>> settings = new TreeMap<>();
+        if (options != null) {
+            for (String key : options.keySet()) addProfileSetting(settings, key, getLastValue(options, key));
+        }
+        if (properties != null) {
+            for (String key : properties.stringPropertyNames()) addProfileSetting(settings, key, properties.getProperty(key));
+        }
+        Map<String, ExecutionProfile> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, String>> profile : settings.entrySet()) {
+            result.put(profile.getKey(), new ExecutionProfile(profile.getKey(), profile.getValue()));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static void addProfileSetting(Map<String, Map<String, String>> settings, String key, String value) {
+        String lowerKey = key.toLowerCase(Locale.ENGLISH);
+        if (!lowerKey.startsWith(ExecutionProfile.PREFIX)) return;
+        int dotIndex = lowerKey.indexOf('.', ExecutionProfile.PREFIX.length());
+        if (dotIndex < 0) throw new IllegalArgumentException("Option " + key + " must be " + ExecutionProfile.PREFIX + "<name>.<setting>");
+        String name = lowerKey.substring(ExecutionProfile.PREFIX.length(), dotIndex);
+        Map<String, String> profile = settings.get(name);
+        if (profile == null) {
+            profile = new HashMap<>();
+            settings.put(name, profile);
+        }
+        profile.put(lowerKey.substring(dotIndex + 1), value);
+    }
+
     Cluster createCluster() throws java.net.UnknownHostException, SSLParamsException {
         Cluster.Builder builder = Cluster.builder();
         int port = -1;
@@ -157,6 +298,26 @@ public class CassandraClientURI {
             builder.withCredentials(userName, password);
             System.out.println("Using authentication as user '" + userName + "'");
         }
+        builder.withQueryOptions(new QueryOptions()
+                // metadata is enabled by SchemaCache once the session is open
+                .setMetadataEnabled(metadataEnabled && schemaCacheFile == null)
+                .setRefreshSchemaIntervalMillis(schemaRefreshIntervalMillis)
+                .setMaxPendingRefreshSchemaRequests(maxPendingSchemaRefreshes));
+        builder.withNettyOptions(new SharedNettyOptions(transport, ioThreads));
+        SocketOptions socketOptions = new SocketOptions()
+                .setConnectTimeoutMillis(connectTimeoutMillis)
+                .setReadTimeoutMillis(readTimeoutMillis)
+                .setTcpNoDelay(tcpNoDelay);
+        if (keepAlive != null) socketOptions.setKeepAlive(keepAlive);
+        if (sendBufferSize != null) socketOptions.setSendBufferSize(sendBufferSize);
+        if (receiveBufferSize != null) socketOptions.setReceiveBufferSize(receiveBufferSize);
+        builder.withSocketOptions(socketOptions);
+        builder.withPoolingOptions(new PoolingOptions().setHeartbeatIntervalSeconds(heartbeatIntervalSeconds));
+        builder.withRetryPolicy(StatementRetry.clusterPolicy(retryPolicy));
+        if (jmxEnabled) {
+            // the driver reports its metrics in the domain named after the cluster, clusters of the same uri get different names
+            builder.withClusterName(getJmxDomain() + "#" + CLUSTER_COUNTER.incrementAndGet());
+        }
         return builder.build();
     }
 
@@ -264,4 +425,190 @@ public class CassandraClientURI {
     public ConsistencyLevel getConsistencyLevel() {
         return consistencyLevel;
     }
+
+    public boolean getParallelAggregates() {
+        return parallelAggregates;
+    }
+
+    public int getParallelAggregateConcurrency() {
+        return parallelAggregateConcurrency;
+    }
+
+    public int getParallelAggregateSplits() {
+        return parallelAggregateSplits;
+    }
+
+    public int getInFanOutThreshold() {
+        return inFanOutThreshold;
+    }
+
+    public int getInFanOutConcurrency() {
+        return inFanOutConcurrency;
+    }
+
+    public int getMultiGetConcurrency() {
+        return multiGetConcurrency;
+    }
+
+    public int getAutoPrepareThreshold() {
+        return autoPrepareThreshold;
+    }
+
+    public int getAutoPrepareCacheSize() {
+        return autoPrepareCacheSize;
+    }
+
+    public String getSchemaCacheFile() {
+        return schemaCacheFile;
+    }
+
+    public boolean getMetadataEnabled() {
+        return metadataEnabled;
+    }
+
+    public int getSchemaRefreshIntervalMillis() {
+        return schemaRefreshIntervalMillis;
+    }
+
+    public int getMaxPendingSchemaRefreshes() {
+        return maxPendingSchemaRefreshes;
+    }
+
+    public int getSizeEstimatesTtlSeconds() {
+        return sizeEstimatesTtlSeconds;
+    }
+
+    public String getPreparedWarmupFile() {
+        return preparedWarmupFile;
+    }
+
+    public int getPreparedWarmupSize() {
+        return preparedWarmupSize;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public int getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public boolean getTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    /**
+     * @return keepalive option or null if the operating system default is used
+     */
+    public Boolean getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * @return send buffer size or null if the operating system default is used
+     */
+    public Integer getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    /**
+     * @return receive buffer size or null if the operating system default is used
+     */
+    public Integer getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public int getHeartbeatIntervalSeconds() {
+        return heartbeatIntervalSeconds;
+    }
+
+    /**
+     * @return one of {@link DriverPropertyInfoHelper#RETRY_POLICY_CHOICES}
+     */
+    public String getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public int getRetryDelayMillis() {
+        return retryDelayMillis;
+    }
+
+    public int getMaxRetryDelayMillis() {
+        return maxRetryDelayMillis;
+    }
+
+    public int getRetryBudgetPercent() {
+        return retryBudgetPercent;
+    }
+
+    /**
+     * @return profiles sorted by lower case name
+     */
+    public Map<String, ExecutionProfile> getProfiles() {
+        return profiles;
+    }
+
+    /**
+     * @return profile or null if it is not defined
+     */
+    public ExecutionProfile getProfile(String name) {
+        return profiles.get(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    /**
+     * @return fraction of statements that are traced
+     */
+    public double getTraceSampling() {
+        return traceSampling;
+    }
+
+    /**
+     * @return minimum duration of logged traces, 0 if traces are not logged
+     */
+    public int getSlowTraceThresholdMillis() {
+        return slowTraceThresholdMillis;
+    }
+
+    public boolean getJmxEnabled() {
+        return jmxEnabled;
+    }
+
+    /**
+     * @return JMX domain of metrics of connections to this uri, made of hosts and keyspace,
+     * each cluster and each connection adds its number to it
+     */
+    public String getJmxDomain() {
+        StringBuilder domain = new StringBuilder("cassandra-jdbc.");
+        for (int i = 0; i < hosts.size(); i++) {
+            if (i > 0) domain.append(',');
+            domain.append(hosts.get(i).trim());
+        }
+        if (keyspace != null) domain.append('/').append(keyspace);
+        // characters not allowed in a domain of an ObjectName
+        return domain.toString().replaceAll("[:*?\\n]", "_");
+    }
+
+    /**
+     * @return minimum duration of logged statements, 0 if the slow query log is disabled
+     */
+    public int getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    public int getSlowQueryLogsPerSecond() {
+        return slowQueryLogsPerSecond;
+    }
 }
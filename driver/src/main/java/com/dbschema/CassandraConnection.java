@@ -1,6 +1,7 @@
 package com.dbschema;
 
 
+import java.io.File;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -16,13 +17,20 @@ import java.sql.SQLXML;
 import java.sql.Savepoint;
 import java.sql.Statement;
 import java.sql.Struct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.QueryOptions;
+import com.datastax.driver.core.QueryTrace;
 import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 public class CassandraConnection implements Connection {
     /**
@@ -37,19 +45,89 @@ public class CassandraConnection implements Connection {
      * See also https://youtrack.jetbrains.com/issue/DBE-9091
      */
     private static final String SELECT_COLUMNS_INTRO_QUERY = "SELECT column_name as name,\n       validator,\n       columnfamily_name as table_name,\n       type,\n       index_name,\n       index_options,\n       index_type,\n       component_index as position\nFROM system.schema_columns\nWHERE keyspace_name = ?";
+    private static final int PREPARED_CACHE_SIZE = 256;
 
     private final Session session;
     private final CassandraJdbcDriver driver;
+    private final CassandraClientURI clientURI;
     private final boolean returnNullStringsFromIntroQuery;
     private boolean isClosed = false;
     private boolean isReadOnly = false;
     private ConsistencyLevel consistencyLevel;
-
-    CassandraConnection(Session session, CassandraJdbcDriver cassandraJdbcDriver, boolean returnNullStringsFromIntroQuery, ConsistencyLevel consistencyLevel) {
+    private volatile ExecutionProfile profile;
+    private volatile ConsistencyLevel serialConsistencyLevel = QueryOptions.DEFAULT_SERIAL_CONSISTENCY_LEVEL;
+    private volatile Integer fetchSize;
+    private volatile Integer timeoutMillis;
+    private volatile boolean tracing;
+    private volatile ListenableFuture<QueryTrace> lastTrace;
+    private final RoutingKeyAnalyzer routingKeyAnalyzer;
+    private final AutoPreparer autoPreparer;
+    private final SchemaSnapshot schemaSnapshot;
+    private final SchemaCache schemaCache;
+    private final SchemaTables schemaTables;
+    private final DatabaseVersion databaseVersion;
+    private final SizeEstimates sizeEstimates;
+    private final PreparedWarmup preparedWarmup;
+    private final StatementRetry statementRetry;
+    private final TraceCapture traceCapture;
+    private final StatementMetrics statementMetrics = new StatementMetrics();
+    private final SlowQueryLog slowQueryLog;
+    /**
+     * Statements prepared by the {@link PreparedWarmup} for the cluster, keyed by {@link PreparedWarmup#key}.
+     */
+    private final Map<String, ListenableFuture<com.datastax.driver.core.PreparedStatement>> warmStatements;
+    private CassandraMetaData metaData;
+    /**
+     * Statements the driver prepares for its own rewritten queries, so repeated shapes are prepared only once.
+     */
+    private final Map<String, com.datastax.driver.core.PreparedStatement> internalStatements = Collections.synchronizedMap(
+            new LinkedHashMap<String, com.datastax.driver.core.PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, com.datastax.driver.core.PreparedStatement> eldest) {
+                    return size() > PREPARED_CACHE_SIZE;
+                }
+            });
+
+    CassandraConnection(Session session, CassandraJdbcDriver cassandraJdbcDriver, CassandraClientURI clientURI, boolean returnNullStringsFromIntroQuery) {
         this.session = session;
         driver = cassandraJdbcDriver;
+        this.clientURI = clientURI;
         this.returnNullStringsFromIntroQuery = returnNullStringsFromIntroQuery;
-        this.consistencyLevel = consistencyLevel;
+        this.consistencyLevel = clientURI.getConsistencyLevel();
+        SchemaSnapshot schemaSnapshot = SchemaSnapshot.acquire(session.getCluster());
+        DatabaseVersion databaseVersion = null;
+        PreparedWarmup warmedUp = null;
+        try {
+            this.schemaSnapshot = schemaSnapshot;
+            this.routingKeyAnalyzer = new RoutingKeyAnalyzer(session, schemaSnapshot);
+            String schemaCacheFile = clientURI.getSchemaCacheFile();
+            this.schemaCache = schemaCacheFile == null ? null : SchemaCache.open(session, new File(schemaCacheFile), clientURI.getMetadataEnabled());
+            databaseVersion = new DatabaseVersion(session);
+            this.databaseVersion = databaseVersion;
+            this.schemaTables = new SchemaTables(schemaSnapshot, schemaCache, databaseVersion);
+            if (schemaCache != null) schemaCache.refresh(schemaSnapshot, schemaTables);
+            this.sizeEstimates = new SizeEstimates(session, clientURI.getSizeEstimatesTtlSeconds());
+            String preparedWarmupFile = clientURI.getPreparedWarmupFile();
+            this.preparedWarmup = preparedWarmupFile == null ? null : PreparedWarmup.forFile(new File(preparedWarmupFile), clientURI.getPreparedWarmupSize());
+            if (preparedWarmup != null) {
+                this.warmStatements = preparedWarmup.warmUp(session);
+                warmedUp = preparedWarmup;
+            } else {
+                this.warmStatements = Collections.emptyMap();
+            }
+            this.autoPreparer = new AutoPreparer(session, clientURI.getAutoPrepareThreshold(), clientURI.getAutoPrepareCacheSize());
+            this.statementRetry = new StatementRetry(clientURI);
+            this.traceCapture = new TraceCapture(clientURI.getTraceSampling(), clientURI.getSlowTraceThresholdMillis());
+            this.slowQueryLog = new SlowQueryLog(clientURI.getSlowQueryThresholdMillis(), clientURI.getSlowQueryLogsPerSecond());
+            if (clientURI.getJmxEnabled()) statementMetrics.startJmxReporting(session.getCluster().getClusterName());
+        } catch (RuntimeException | Error e) {
+            // the cluster may outlive this connection, so its registrations are undone here and the driver closes the session
+            statementMetrics.close();
+            if (warmedUp != null) warmedUp.release(session.getCluster());
+            if (databaseVersion != null) databaseVersion.close();
+            schemaSnapshot.release(session.getCluster());
+            throw e;
+        }
     }
 
     public String getCatalog() throws SQLException {
@@ -69,6 +147,157 @@ public class CassandraConnection implements Connection {
         this.consistencyLevel = consistencyLevel;
     }
 
+    public ConsistencyLevel getSerialConsistencyLevel() {
+        return serialConsistencyLevel;
+    }
+
+    public void setSerialConsistencyLevel(ConsistencyLevel serialConsistencyLevel) {
+        this.serialConsistencyLevel = serialConsistencyLevel;
+    }
+
+    /**
+     * @return fetch size of statements, null if the default fetch size is used
+     */
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(Integer fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * @return client side timeout of statements, null if the {@code readTimeoutMillis} option is used
+     */
+    public Integer getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public void setTimeoutMillis(Integer timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public boolean isTracing() {
+        return tracing;
+    }
+
+    public void setTracing(boolean tracing) {
+        this.tracing = tracing;
+    }
+
+    /**
+     * @return trace of the last traced statement read by {@link TraceCapture#capture}, null if no statement was traced
+     */
+    ListenableFuture<QueryTrace> getLastTrace() {
+        return lastTrace;
+    }
+
+    void setLastTrace(ListenableFuture<QueryTrace> lastTrace) {
+        this.lastTrace = lastTrace;
+    }
+
+    /**
+     * Returns the trace of the last statement traced by the {@code traceSampling} option, waits until Cassandra
+     * has written it. Use {@code unwrap(CassandraConnection.class)} to call it through the JDBC API,
+     * or execute {@code TRACING SAMPLED}.
+     *
+     * @return trace events like {@link CassandraBaseStatement#getTraceEvents()}, null if no statement was sampled
+     */
+    public ListResultSet getSampledTraceEvents() throws SQLException {
+        ListenableFuture<QueryTrace> trace = traceCapture.getLastSampled();
+        return trace == null ? null : TraceCapture.toResultSet(TraceCapture.get(trace));
+    }
+
+    /**
+     * Applies settings changed by {@code PAGING}, {@code TRACING}, {@code SERIAL CONSISTENCY} and {@code TIMEOUT}.
+     */
+    void applySessionSettings(com.datastax.driver.core.Statement statement) {
+        statement.setSerialConsistencyLevel(serialConsistencyLevel);
+        if (fetchSize != null) statement.setFetchSize(fetchSize);
+        if (timeoutMillis != null) statement.setReadTimeoutMillis(timeoutMillis);
+        if (tracing) statement.enableTracing();
+    }
+
+    /**
+     * @return profile of statements that do not select their own, null if there is none
+     */
+    public ExecutionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @param profile name of a profile defined by {@code profile.<name>.<setting>} options, null to use none
+     */
+    public void setProfile(String profile) throws SQLException {
+        this.profile = profile == null ? null : getDefinedProfile(profile);
+    }
+
+    ExecutionProfile getDefinedProfile(String name) throws SQLException {
+        ExecutionProfile result = clientURI.getProfile(name);
+        if (result == null) throw new SQLException("Unknown profile '" + name + "'");
+        return result;
+    }
+
+    CassandraClientURI getClientURI() {
+        return clientURI;
+    }
+
+    com.datastax.driver.core.PreparedStatement prepareInternal(String cql) {
+        com.datastax.driver.core.PreparedStatement statement = internalStatements.get(cql);
+        if (statement == null) {
+            statement = session.prepare(cql);
+            internalStatements.put(cql, statement);
+        }
+        return statement;
+    }
+
+    RoutingKeyAnalyzer getRoutingKeyAnalyzer() {
+        return routingKeyAnalyzer;
+    }
+
+    String getDatabaseVersion() {
+        return databaseVersion.get();
+    }
+
+    SizeEstimates getSizeEstimates() {
+        return sizeEstimates;
+    }
+
+    SchemaSnapshot getSchemaSnapshot() {
+        return schemaSnapshot;
+    }
+
+    SchemaCache getSchemaCache() {
+        return schemaCache;
+    }
+
+    SchemaTables getSchemaTables() {
+        return schemaTables;
+    }
+
+    AutoPreparer getAutoPreparer() {
+        return autoPreparer;
+    }
+
+    StatementRetry getStatementRetry() {
+        return statementRetry;
+    }
+
+    TraceCapture getTraceCapture() {
+        return traceCapture;
+    }
+
+    /**
+     * @return latencies measured by the JDBC layer, metrics of the driver are in {@code getSession().getCluster().getMetrics()}
+     */
+    public StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
+    SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
     @SuppressWarnings("WeakerAccess")
     public Session getSession() {
         return session;
@@ -77,13 +306,14 @@ public class CassandraConnection implements Connection {
     @Override
     public <T> T unwrap(Class<T> iface) throws SQLException {
         checkClosed();
-        return null;
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException(getClass().getSimpleName() + " is not a wrapper for " + iface.getName());
     }
 
     @Override
     public boolean isWrapperFor(Class<?> iface) throws SQLException {
         checkClosed();
-        return false;
+        return iface.isInstance(this);
     }
 
     @Override
@@ -110,14 +340,37 @@ public class CassandraConnection implements Connection {
     public PreparedStatement prepareStatement(String sql) throws SQLException {
         checkClosed();
         try {
-            com.datastax.driver.core.PreparedStatement statement = session.prepare(sql);
+            String keyspace = session.getLoggedKeyspace();
+            long start = System.nanoTime();
+            Object event = DriverEvents.beginPrepare();
+            com.datastax.driver.core.PreparedStatement statement = warmStatement(keyspace, sql);
+            boolean cacheHit = statement != null;
+            if (statement == null) statement = session.prepare(sql);
+            statementMetrics.recordPrepare(System.nanoTime() - start);
+            DriverEvents.endPrepare(event, sql, cacheHit);
+            if (preparedWarmup != null) preparedWarmup.record(keyspace, sql);
             statement.setConsistencyLevel(consistencyLevel);
-            return new CassandraPreparedStatement(session, statement, returnNullStringsFromIntroQuery || !SELECT_COLUMNS_INTRO_QUERY.equals(sql));
+            return new CassandraPreparedStatement(session, statement, this, returnNullStringsFromIntroQuery || !SELECT_COLUMNS_INTRO_QUERY.equals(sql));
         } catch (Throwable t) {
             throw new SQLException(t.getMessage(), t);
         }
     }
 
+    /**
+     * @return statement prepared by the warmup, waiting for it if it is in flight, or null
+     */
+    private com.datastax.driver.core.PreparedStatement warmStatement(String keyspace, String sql) {
+        String key = PreparedWarmup.key(keyspace, sql);
+        ListenableFuture<com.datastax.driver.core.PreparedStatement> future = warmStatements.get(key);
+        if (future == null) return null;
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            warmStatements.remove(key);
+            return null;
+        }
+    }
+
     @Override
     public CallableStatement prepareCall(String sql) throws SQLException {
         throw new SQLFeatureNotSupportedException();
@@ -155,8 +408,16 @@ public class CassandraConnection implements Connection {
         // Improved the physical connection to be closed.( https://github.com/DataGrip/cassandra-jdbc-driver/issues/4 )
         if(!isClosed) {
         	final Cluster _cluster = session.getCluster();
+        	schemaSnapshot.release(_cluster);
+        	databaseVersion.close();
+        	if (preparedWarmup != null) {
+        	    preparedWarmup.release(_cluster);
+        	    preparedWarmup.save();
+        	}
+        	statementMetrics.close();
+        	statementRetry.close();
         	session.close();
-        	_cluster.close();
+        	SharedClusters.release(_cluster);
         }
         
         isClosed = true;
@@ -170,7 +431,8 @@ public class CassandraConnection implements Connection {
     @Override
     public DatabaseMetaData getMetaData() throws SQLException {
         checkClosed();
-        return new CassandraMetaData(this, driver);
+        if (metaData == null) metaData = new CassandraMetaData(this, driver);
+        return metaData;
     }
 
     @Override
@@ -2,21 +2,11 @@
 package com.dbschema;
 
 import com.datastax.driver.core.Cluster;
-import com.datastax.driver.core.CodecRegistry;
 import com.datastax.driver.core.ParseUtils;
 import com.datastax.driver.core.Session;
 import com.datastax.driver.core.exceptions.AuthenticationException;
 import com.datastax.driver.core.exceptions.InvalidQueryException;
 import com.datastax.driver.core.exceptions.NoHostAvailableException;
-import com.dbschema.codec.jbigdecimal.BigintCodec;
-import com.dbschema.codec.jbytes.BlobCodec;
-import com.dbschema.codec.jstring.InetCodec;
-import com.dbschema.codec.jstring.DurationCodec;
-import com.dbschema.codec.jlong.*;
-import com.dbschema.codec.jsqldate.DateCodec;
-import com.dbschema.codec.jsqltime.TimeCodec;
-import com.dbschema.codec.jstring.UuidCodec;
-import com.dbschema.codec.jstring.TimeuuidCodec;
 
 import java.net.UnknownHostException;
 import java.security.KeyManagementException;
@@ -56,19 +46,38 @@ public class CassandraJdbcDriver implements Driver {
     public Connection connect(String url, Properties info) throws SQLException {
         if (url != null && acceptsURL(url)) {
             CassandraClientURI clientURI = new CassandraClientURI(url, info);
+            String hosts = clientURI.getHosts().toString();
             try {
-                Cluster cluster = clientURI.createCluster();
-                registerCodecs(cluster);
-                String keyspace = clientURI.getKeyspace();
-                Session session;
+                Object event = DriverEvents.beginConnect();
+                Cluster cluster = SharedClusters.acquire(clientURI, info);
+                DriverEvents.endConnect(event, "create cluster", hosts);
+                // the cluster holds shared event loop and timer references until it is closed
+                Session session = null;
+                boolean connected = false;
                 try {
-                    if (keyspace != null && !keyspace.isEmpty()) session = tryToConnect(cluster, keyspace);
-                    else session = cluster.connect();
-                } catch (NoHostAvailableException | AuthenticationException | IllegalStateException e) {
-                    throw new SQLException(e.getMessage(), e);
+                    String keyspace = clientURI.getKeyspace();
+                    event = DriverEvents.beginConnect();
+                    try {
+                        if (keyspace != null && !keyspace.isEmpty()) session = tryToConnect(cluster, keyspace);
+                        else session = cluster.connect();
+                    } catch (NoHostAvailableException | AuthenticationException | IllegalStateException e) {
+                        throw new SQLException(e.getMessage(), e);
+                    } finally {
+                        // control connection, schema and token metadata for a new cluster, connection pools
+                        DriverEvents.endConnect(event, "connect session", hosts);
+                    }
+                    boolean returnNullStringsFromIntroQuery = Boolean.parseBoolean(info.getProperty(RETURN_NULL_STRINGS_FROM_INTRO_QUERY_KEY));
+                    event = DriverEvents.beginConnect();
+                    CassandraConnection connection = new CassandraConnection(session, this, clientURI, returnNullStringsFromIntroQuery);
+                    DriverEvents.endConnect(event, "initialize connection", hosts);
+                    connected = true;
+                    return connection;
+                } finally {
+                    if (!connected) {
+                        if (session != null) session.close();
+                        SharedClusters.release(cluster);
+                    }
                 }
-                boolean returnNullStringsFromIntroQuery = Boolean.parseBoolean(info.getProperty(RETURN_NULL_STRINGS_FROM_INTRO_QUERY_KEY));
-                return new CassandraConnection(session, this, returnNullStringsFromIntroQuery, clientURI.getConsistencyLevel());
             } catch (UnknownHostException e) {
                 throw new SQLException(e.getMessage(), e);
             }
@@ -85,27 +94,6 @@ public class CassandraJdbcDriver implements Driver {
         }
     }
 
-    private void registerCodecs(Cluster cluster) {
-        CodecRegistry myCodecRegistry = cluster.getConfiguration().getCodecRegistry();
-        myCodecRegistry.register(IntCodec.INSTANCE);
-        myCodecRegistry.register(DecimalCodec.INSTANCE);
-        myCodecRegistry.register(DoubleCodec.INSTANCE);
-        myCodecRegistry.register(com.dbschema.codec.jlong.FloatCodec.INSTANCE);
-        myCodecRegistry.register(SmallintCodec.INSTANCE);
-        myCodecRegistry.register(TinyintCodec.INSTANCE);
-        myCodecRegistry.register(VarintCodec.INSTANCE);
-        myCodecRegistry.register(BlobCodec.INSTANCE);
-        myCodecRegistry.register(com.dbschema.codec.jdouble.FloatCodec.INSTANCE);
-        myCodecRegistry.register(com.dbschema.codec.jdouble.DecimalCodec.INSTANCE);
-        myCodecRegistry.register(DateCodec.INSTANCE);
-        myCodecRegistry.register(TimeCodec.INSTANCE);
-        myCodecRegistry.register(BigintCodec.INSTANCE);
-        myCodecRegistry.register(UuidCodec.INSTANCE);
-        myCodecRegistry.register(DurationCodec.INSTANCE);
-        myCodecRegistry.register(TimeuuidCodec.INSTANCE);
-        myCodecRegistry.register(InetCodec.INSTANCE);
-    }
-
 
     /**
      * URLs accepted are of the form: jdbc:cassandra://host1[:port1][,host2[:port2],...[,hostN[:portN]]][/[keyspace][?options]]
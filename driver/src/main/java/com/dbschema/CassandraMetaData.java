@@ -1,12 +1,37 @@
 package com.dbschema;
 
-import java.sql.*;
+import com.datastax.driver.core.*;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.RowIdLifetime;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Types;
+import java.util.*;
 
 /**
  * Cassandra databases are equivalent to catalogs for this driver. Schemas aren't used. Cassandra collections are
  * equivalent to tables, in that each collection is a table.
  */
 public class CassandraMetaData implements DatabaseMetaData {
+    private static final String TABLE = "TABLE";
+    private static final String VIEW = "VIEW";
+    private static final long SCHEMA_LOAD_TIMEOUT_MILLIS = 60000;
+    /**
+     * PAGES of table statistics are counted in chunks of the default compression chunk length.
+     */
+    private static final long PAGE_SIZE = 64 * 1024;
+    private static final String[] TYPE_NAMES = {"ascii", "bigint", "blob", "boolean", "counter", "date", "decimal", "double",
+            "duration", "float", "inet", "int", "list", "map", "set", "smallint", "text", "time", "timestamp", "timeuuid",
+            "tinyint", "tuple", "uuid", "varchar", "varint"};
+    private static final Comparator<AbstractTableMetadata> TABLE_ORDER = new Comparator<AbstractTableMetadata>() {
+        @Override
+        public int compare(AbstractTableMetadata a, AbstractTableMetadata b) {
+            return a.getName().compareTo(b.getName());
+        }
+    };
 
     private final CassandraConnection connection;
     private CassandraJdbcDriver driver;
@@ -22,39 +47,250 @@ public class CassandraMetaData implements DatabaseMetaData {
     }
 
     @Override
-    public ResultSet getCatalogs() {
-        return null;
+    public ResultSet getCatalogs() throws SQLException {
+        ListResultSet result = new ListResultSet();
+        result.setColumnNames("TABLE_CAT");
+        MetadataQueries queries = queries();
+        if (queries != null) {
+            for (String keyspace : queries.keyspaces(null)) result.addRow(new Object[]{keyspace});
+            return result;
+        }
+        for (SchemaSnapshot.Keyspace keyspace : keyspaces(null)) {
+            result.addRow(new Object[]{keyspace.getName()});
+        }
+        return result;
     }
 
     public ResultSet getTables(String catalogName, String schemaPattern,
-                               String tableNamePattern, String[] types) {
-        return null;
+                               String tableNamePattern, String[] types) throws SQLException {
+        List<String> typeList = types == null ? Arrays.asList(TABLE, VIEW) : Arrays.asList(types);
+        LikePattern tablePattern = LikePattern.compile(tableNamePattern);
+        ListResultSet result = new ListResultSet();
+        result.setColumnNames("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "TABLE_TYPE", "REMARKS", "TYPE_CAT", "TYPE_SCHEM",
+                "TYPE_NAME", "SELF_REFERENCING_COL_NAME", "REF_GENERATION");
+        MetadataQueries queries = queries();
+        for (String type : new String[]{TABLE, VIEW}) {
+            if (!typeList.contains(type)) continue;
+            if (queries != null) {
+                addRows(result, queries.tables(catalogName, tablePattern, type, type.equals(VIEW)));
+                continue;
+            }
+            for (SchemaSnapshot.Keyspace keyspace : keyspaces(catalogName)) {
+                for (AbstractTableMetadata table : tables(keyspace, tablePattern, type.equals(VIEW))) {
+                    result.addRow(new Object[]{keyspace.getName(), null, table.getName(), type, table.getOptions().getComment(),
+                            null, null, null, null, null});
+                }
+            }
+        }
+        return result;
     }
 
     public ResultSet getColumns(String catalogName, String schemaName,
-                                String tableNamePattern, String columnNamePattern) {
-        return null;
+                                String tableNamePattern, String columnNamePattern) throws SQLException {
+        LikePattern tablePattern = LikePattern.compile(tableNamePattern);
+        LikePattern columnPattern = LikePattern.compile(columnNamePattern);
+        ListResultSet result = new ListResultSet();
+        result.setColumnNames("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "DATA_TYPE", "TYPE_NAME", "COLUMN_SIZE",
+                "BUFFER_LENGTH", "DECIMAL_DIGITS", "NUM_PREC_RADIX", "NULLABLE", "REMARKS", "COLUMN_DEF", "SQL_DATA_TYPE",
+                "SQL_DATETIME_SUB", "CHAR_OCTET_LENGTH", "ORDINAL_POSITION", "IS_NULLABLE", "SCOPE_CATALOG", "SCOPE_SCHEMA",
+                "SCOPE_TABLE", "SOURCE_DATA_TYPE", "IS_AUTOINCREMENT", "IS_GENERATEDCOLUMN");
+        MetadataQueries queries = queries();
+        if (queries != null) return addRows(result, queries.columns(catalogName, tablePattern, columnPattern));
+        for (SchemaSnapshot.Keyspace keyspace : keyspaces(catalogName)) {
+            List<AbstractTableMetadata> tables = tables(keyspace, tablePattern, false);
+            tables.addAll(tables(keyspace, tablePattern, true));
+            Collections.sort(tables, TABLE_ORDER);
+            for (AbstractTableMetadata table : tables) {
+                List<ColumnMetadata> primaryKey = table.getPrimaryKey();
+                int position = 0;
+                for (ColumnMetadata column : table.getColumns()) {
+                    position++;
+                    if (!columnPattern.matches(column.getName())) continue;
+                    DataType type = column.getType();
+                    boolean key = primaryKey.contains(column);
+                    result.addRow(new Object[]{keyspace.getName(), null, table.getName(), column.getName(), javaType(type),
+                            type.toString(), null, null, null, null,
+                            key ? columnNoNulls : columnNullable, null, null, null, null, null, position, key ? "NO" : "YES",
+                            null, null, null, null, "NO", "NO"});
+                }
+            }
+        }
+        return result;
+    }
+
+    public ResultSet getPrimaryKeys(String catalogName, String schemaName, String tableNamePattern) throws SQLException {
+        LikePattern tablePattern = LikePattern.compile(tableNamePattern);
+        ListResultSet result = new ListResultSet();
+        result.setColumnNames("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "COLUMN_NAME", "KEY_SEQ", "PK_NAME");
+        MetadataQueries queries = queries();
+        if (queries != null) return addRows(result, queries.primaryKeys(catalogName, tablePattern));
+        for (SchemaSnapshot.Keyspace keyspace : keyspaces(catalogName)) {
+            List<AbstractTableMetadata> tables = tables(keyspace, tablePattern, false);
+            tables.addAll(tables(keyspace, tablePattern, true));
+            Collections.sort(tables, TABLE_ORDER);
+            for (AbstractTableMetadata table : tables) {
+                List<ColumnMetadata> primaryKey = table.getPrimaryKey();
+                for (int i = 0; i < primaryKey.size(); i++) {
+                    result.addRow(new Object[]{keyspace.getName(), null, table.getName(), primaryKey.get(i).getName(),
+                            (short) (i + 1), table.getName() + "_pkey"});
+                }
+            }
+        }
+        return result;
     }
 
-    public ResultSet getPrimaryKeys(String catalogName, String schemaName, String tableNamePattern) {
-        return null;
+    public ResultSet getIndexInfo(String catalogName, String schemaName, String tableNamePattern, boolean unique,
+                                  boolean approximate) throws SQLException {
+        LikePattern tablePattern = LikePattern.compile(tableNamePattern);
+        ListResultSet result = new ListResultSet();
+        result.setColumnNames("TABLE_CAT", "TABLE_SCHEM", "TABLE_NAME", "NON_UNIQUE", "INDEX_QUALIFIER", "INDEX_NAME", "TYPE",
+                "ORDINAL_POSITION", "COLUMN_NAME", "ASC_OR_DESC", "CARDINALITY", "PAGES", "FILTER_CONDITION");
+        MetadataQueries queries = queries();
+        if (approximate) addStatistics(result, catalogName, tablePattern, queries);
+        // secondary indexes are never unique
+        if (unique) return result;
+        if (queries != null) return addRows(result, queries.indexes(catalogName, tablePattern));
+        for (SchemaSnapshot.Keyspace keyspace : keyspaces(catalogName)) {
+            for (AbstractTableMetadata table : tables(keyspace, tablePattern, false)) {
+                List<IndexMetadata> indexes = new ArrayList<>(((TableMetadata) table).getIndexes());
+                Collections.sort(indexes, new Comparator<IndexMetadata>() {
+                    @Override
+                    public int compare(IndexMetadata a, IndexMetadata b) {
+                        return a.getName().compareTo(b.getName());
+                    }
+                });
+                for (IndexMetadata index : indexes) {
+                    result.addRow(new Object[]{keyspace.getName(), null, table.getName(), true, null, index.getName(),
+                            tableIndexOther, (short) 1, index.getTarget(), null, null, null, null});
+                }
+            }
+        }
+        return result;
     }
 
-    public ResultSet getIndexInfo(String catalogName, String schemaName, String tableNamePattern, boolean unique,
-                                  boolean approximate) {
-        return null;
+    /**
+     * Adds a {@link DatabaseMetaData#tableIndexStatistic} row with estimated partitions and size of every table.
+     * Estimates are read once per keyspace, not once per table.
+     */
+    private void addStatistics(ListResultSet result, String catalogName, LikePattern tablePattern, MetadataQueries queries)
+            throws SQLException {
+        Map<String, List<String>> tables = new LinkedHashMap<>();
+        if (queries != null) {
+            for (Object[] row : queries.tables(catalogName, tablePattern, TABLE, false)) {
+                keyspaceTables(tables, (String) row[0]).add((String) row[2]);
+            }
+        } else {
+            for (SchemaSnapshot.Keyspace keyspace : keyspaces(catalogName)) {
+                for (AbstractTableMetadata table : tables(keyspace, tablePattern, false)) {
+                    keyspaceTables(tables, keyspace.getName()).add(table.getName());
+                }
+            }
+        }
+        for (Map.Entry<String, List<String>> keyspace : tables.entrySet()) {
+            Map<String, TableStatistics> statistics = connection.getSizeEstimates().get(keyspace.getKey(), keyspace.getValue());
+            for (String table : keyspace.getValue()) {
+                TableStatistics tableStatistics = statistics.get(table);
+                result.addRow(new Object[]{keyspace.getKey(), null, table, false, null, null, tableIndexStatistic, (short) 0, null, null,
+                        tableStatistics.getPartitionsCount(), (tableStatistics.getTotalSize() + PAGE_SIZE - 1) / PAGE_SIZE, null});
+            }
+        }
+    }
+
+    private static List<String> keyspaceTables(Map<String, List<String>> tables, String keyspace) {
+        List<String> names = tables.get(keyspace);
+        if (names == null) tables.put(keyspace, names = new ArrayList<>());
+        return names;
+    }
+
+    /**
+     * Estimates the size of a table from {@code system.size_estimates}. Estimates are cached for
+     * {@code sizeEstimatesTtlSeconds}. Available with {@code metaData.unwrap(CassandraMetaData.class)}.
+     *
+     * @param keyspace keyspace name as it is stored in the schema, case sensitive
+     * @param table    table name as it is stored in the schema, case sensitive
+     */
+    public TableStatistics getTableStatistics(String keyspace, String table) throws SQLException {
+        return connection.getSizeEstimates().get(keyspace, table);
     }
 
     public ResultSet getTypeInfo() {
-        return null;
+        ListResultSet result = new ListResultSet();
+        result.setColumnNames("TYPE_NAME", "DATA_TYPE", "PRECISION", "LITERAL_PREFIX", "LITERAL_SUFFIX", "CREATE_PARAMS",
+                "NULLABLE", "CASE_SENSITIVE", "SEARCHABLE", "UNSIGNED_ATTRIBUTE", "FIXED_PREC_SCALE", "AUTO_INCREMENT",
+                "LOCAL_TYPE_NAME", "MINIMUM_SCALE", "MAXIMUM_SCALE", "SQL_DATA_TYPE", "SQL_DATETIME_SUB", "NUM_PREC_RADIX");
+        for (String typeName : TYPE_NAMES) {
+            int javaType = new CassandraResultSetMetaData.ColumnMetaData("", "", "", typeName).getJavaType();
+            boolean quoted = javaType == Types.VARCHAR || typeName.equals("date") || typeName.equals("time") || typeName.equals("timestamp") ||
+                    typeName.equals("inet");
+            result.addRow(new Object[]{typeName, javaType, null, quoted ? "'" : null, quoted ? "'" : null, null,
+                    (short) typeNullable, javaType == Types.VARCHAR, (short) typeSearchable, false, false, false,
+                    null, null, null, null, null, null});
+        }
+        return result;
+    }
+
+    /**
+     * @return queries of schema tables if the driver has not read the schema, null to use the driver metadata
+     */
+    private MetadataQueries queries() {
+        if (connection.getSchemaSnapshot().isLoaded()) return null;
+        Session session = connection.getSession();
+        // the driver reads the schema in the background when the connection starts from a schema cache,
+        // which answers the queries until then
+        SchemaCache cache = connection.getSchemaCache();
+        boolean cached = cache != null && cache.isValid() && cache.hasKeyspace("system_schema");
+        if (!cached && session.getCluster().getConfiguration().getQueryOptions().isMetadataEnabled()) return null;
+        return new MetadataQueries(session, connection.getSchemaTables());
+    }
+
+    private static ListResultSet addRows(ListResultSet result, List<Object[]> rows) {
+        for (Object[] row : rows) result.addRow(row);
+        return result;
+    }
+
+    private Collection<SchemaSnapshot.Keyspace> keyspaces(String catalogName) throws SQLException {
+        SchemaSnapshot schema = connection.getSchemaSnapshot();
+        try {
+            if (!schema.awaitLoaded(SCHEMA_LOAD_TIMEOUT_MILLIS)) throw new SQLException("Schema metadata is not loaded");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e.getMessage(), e);
+        }
+        if (catalogName != null) {
+            SchemaSnapshot.Keyspace keyspace = schema.getKeyspace(catalogName);
+            return keyspace == null ? Collections.<SchemaSnapshot.Keyspace>emptyList() : Collections.singletonList(keyspace);
+        }
+        return schema.getKeyspaces();
+    }
+
+    /**
+     * @return matching tables or views sorted by name
+     */
+    private static List<AbstractTableMetadata> tables(SchemaSnapshot.Keyspace keyspace, LikePattern pattern, boolean views) {
+        List<AbstractTableMetadata> tables = new ArrayList<>();
+        String exactName = pattern.getExactName();
+        if (exactName != null) {
+            AbstractTableMetadata table = views ? keyspace.getView(exactName) : keyspace.getTable(exactName);
+            if (table != null) tables.add(table);
+            return tables;
+        }
+        for (AbstractTableMetadata table : views ? keyspace.getViews() : keyspace.getTables()) {
+            if (pattern.matches(table.getName())) tables.add(table);
+        }
+        return tables;
+    }
+
+    private static int javaType(DataType type) {
+        return new CassandraResultSetMetaData.ColumnMetaData("", "", "", type.getName().toString()).getJavaType();
     }
 
     public <T> T unwrap(Class<T> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException(getClass().getSimpleName() + " is not a wrapper for " + iface.getName());
     }
 
-    public boolean isWrapperFor(Class<?> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
     }
 
     public boolean allProceduresAreCallable() throws SQLException {
@@ -98,8 +334,7 @@ public class CassandraMetaData implements DatabaseMetaData {
     }
 
     public String getDatabaseProductVersion() {
-        com.datastax.driver.core.ResultSet result = connection.getSession().execute("select release_version from system.local");
-        return result.one().getString(0);
+        return connection.getDatabaseVersion();
     }
 
     public String getDriverName() {
@@ -183,7 +418,7 @@ public class CassandraMetaData implements DatabaseMetaData {
     }
 
     public String getSearchStringEscape() {
-        return null;
+        return "\\";
     }
 
     public String getExtraNameCharacters() {
@@ -546,7 +781,11 @@ public class CassandraMetaData implements DatabaseMetaData {
 
     @Override
     public ResultSet getTableTypes() {
-        return null;
+        ListResultSet result = new ListResultSet();
+        result.setColumnNames("TABLE_TYPE");
+        result.addRow(new Object[]{TABLE});
+        result.addRow(new Object[]{VIEW});
+        return result;
     }
 
     @Override
@@ -650,8 +889,27 @@ public class CassandraMetaData implements DatabaseMetaData {
     }
 
     @Override
-    public ResultSet getUDTs(String catalogName, String schemaPattern, String typeNamePattern, int[] types) {
-        return null;
+    public ResultSet getUDTs(String catalogName, String schemaPattern, String typeNamePattern, int[] types) throws SQLException {
+        ListResultSet result = new ListResultSet();
+        result.setColumnNames("TYPE_CAT", "TYPE_SCHEM", "TYPE_NAME", "CLASS_NAME", "DATA_TYPE", "REMARKS", "BASE_TYPE");
+        if (types != null && !contains(types, Types.STRUCT)) return result;
+        LikePattern typePattern = LikePattern.compile(typeNamePattern);
+        MetadataQueries queries = queries();
+        if (queries != null) return addRows(result, queries.userTypes(catalogName, typePattern));
+        for (SchemaSnapshot.Keyspace keyspace : keyspaces(catalogName)) {
+            for (UserType type : keyspace.getUserTypes()) {
+                if (!typePattern.matches(type.getTypeName())) continue;
+                result.addRow(new Object[]{keyspace.getName(), null, type.getTypeName(), UDTValue.class.getName(), Types.STRUCT, null, null});
+            }
+        }
+        return result;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) return true;
+        }
+        return false;
     }
 
     @Override
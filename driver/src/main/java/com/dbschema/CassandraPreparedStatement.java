@@ -2,7 +2,9 @@ package com.dbschema;
 
 import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.exceptions.SyntaxError;
 
 import java.io.InputStream;
@@ -10,8 +12,10 @@ import java.io.Reader;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
 
 import static com.dbschema.DateUtil.Direction;
 import static com.dbschema.DateUtil.considerTimeZone;
@@ -21,16 +25,20 @@ public class CassandraPreparedStatement extends CassandraBaseStatement implement
     private final com.datastax.driver.core.PreparedStatement preparedStatement;
     private final boolean returnNullStrings;
     private Object[] params;
+    private InQueryFanOut fanOut;
+    private boolean fanOutAnalyzed = false;
 
-    CassandraPreparedStatement(Session session, final com.datastax.driver.core.PreparedStatement preparedStatement, boolean returnNullStrings) {
-        super(session);
+    CassandraPreparedStatement(Session session, final com.datastax.driver.core.PreparedStatement preparedStatement,
+                               CassandraConnection connection, boolean returnNullStrings) {
+        super(session, connection);
         this.preparedStatement = preparedStatement;
         this.returnNullStrings = returnNullStrings;
     }
 
     @Override
     public ResultSet executeQuery() throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        if (!execute()) throw new SQLException("Not a query statement");
+        return result;
     }
 
     @Override
@@ -67,7 +75,7 @@ public class CassandraPreparedStatement extends CassandraBaseStatement implement
     public int executeUpdate() throws SQLException {
         checkClosed();
         try {
-            CassandraResultSet cassandraResultSet = new CassandraResultSet(this, session.execute(bindParameters()), returnNullStrings);
+            CassandraResultSet cassandraResultSet = new CassandraResultSet(this, executeStatement(bindParameters(), preparedStatement.getQueryString()), returnNullStrings);
             if (cassandraResultSet.isQuery()) {
                 this.result = null;
                 throw new SQLException("Not an update statement");
@@ -246,7 +254,81 @@ public class CassandraPreparedStatement extends CassandraBaseStatement implement
     public boolean execute() throws SQLException {
         checkClosed();
         try {
-            return executeInner(session.execute(bindParameters()), returnNullStrings);
+            ListResultSet schemaResult = connection.getSchemaTables().query(preparedStatement.getQueryString(), params, returnNullStrings);
+            if (schemaResult != null) {
+                clearParams();
+                this.result = schemaResult;
+                return true;
+            }
+            CassandraResultSet fanOutResult = executeInFanOut();
+            if (fanOutResult != null) {
+                this.result = fanOutResult;
+                return true;
+            }
+            return executeInner(executeStatement(bindParameters(), preparedStatement.getQueryString()), returnNullStrings);
+        } catch (Throwable t) {
+            throw new SQLException(t.getMessage(), t);
+        }
+    }
+
+    /**
+     * @return rows of a partition key IN query split into single partition queries,
+     * null if splitting is disabled or not applicable to the statement
+     */
+    private CassandraResultSet executeInFanOut() throws SQLException {
+        CassandraClientURI clientURI = connection.getClientURI();
+        int threshold = clientURI.getInFanOutThreshold();
+        if (threshold == 0) return null;
+        if (!fanOutAnalyzed) {
+            fanOut = InQueryFanOut.analyze(preparedStatement.getQueryString(), session, connection.getSchemaSnapshot());
+            fanOutAnalyzed = true;
+        }
+        if (fanOut == null) return null;
+        ConsistencyLevel consistencyLevel = preparedStatement.getConsistencyLevel();
+        Settings settings = settings(preparedStatement.getQueryString());
+        int concurrency = clientURI.getInFanOutConcurrency();
+        if (fanOut.getLiteralKeyCount() >= 0) {
+            return fanOut.getLiteralKeyCount() < threshold ? null :
+                    fanOut.executeLiterals(this, connection, consistencyLevel, settings, concurrency, returnNullStrings);
+        }
+        Object[] values = params == null ? new Object[preparedStatement.getVariables().size()] : params.clone();
+        if (fanOut.getBoundKeys(values).size() < threshold) return null;
+        try {
+            return fanOut.executeBound(this, connection, values, consistencyLevel, settings, concurrency, returnNullStrings);
+        } finally {
+            clearParams();
+        }
+    }
+
+    /**
+     * Looks up many keys of a prepared SELECT at once. Every key is bound to the statement and executed
+     * asynchronously as a separate request routed to a replica of its partition, at most
+     * {@code multiGetConcurrency} requests are in flight ahead of the key whose rows are being read.
+     * Lookups use the profile, the hints and the settings of the connection like other executions.
+     * Use {@code unwrap(CassandraPreparedStatement.class)} to call it through the JDBC API.
+     *
+     * @param keys values of all bind markers of the statement, one array per lookup, must not be empty
+     * @return rows of all lookups in the order of the keys, see {@link MultiGetResultSet#getKeyIndex()}
+     */
+    public MultiGetResultSet executeMulti(List<Object[]> keys) throws SQLException {
+        checkClosed();
+        List<CqlTokenizer.Token> tokens = CqlTokenizer.significant(CqlTokenizer.tokenize(preparedStatement.getQueryString()));
+        if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) throw new SQLException("Not a query statement");
+        if (keys.isEmpty()) throw new SQLException("At least one key is required");
+        String cql = preparedStatement.getQueryString();
+        Settings settings = settings(cql);
+        List<Statement> statements = new ArrayList<>(keys.size());
+        try {
+            for (Object[] key : keys) {
+                BoundStatement bound = preparedStatement.bind(key);
+                settings.applyToSubQuery(bound);
+                bound.setIdempotent(true);
+                statements.add(bound);
+            }
+            MultiGetResultSet multiGetResult = new MultiGetResultSet(this,
+                    new ConcurrentRows(this, settings, cql, statements, connection.getClientURI().getMultiGetConcurrency()), returnNullStrings);
+            this.result = multiGetResult;
+            return multiGetResult;
         } catch (Throwable t) {
             throw new SQLException(t.getMessage(), t);
         }
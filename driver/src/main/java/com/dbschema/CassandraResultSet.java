@@ -3,6 +3,7 @@ package com.dbschema;
 import com.datastax.driver.core.ColumnDefinitions.Definition;
 import com.datastax.driver.core.LocalDate;
 import com.datastax.driver.core.Row;
+import com.datastax.driver.core.exceptions.DriverException;
 import com.dbschema.CassandraResultSetMetaData.ColumnMetaData;
 import com.dbschema.types.ArrayImpl;
 import com.dbschema.types.BlobImpl;
@@ -27,13 +28,39 @@ public class CassandraResultSet implements ResultSet {
     private final com.datastax.driver.core.ResultSet dsResultSet;
     private final Iterator<Row> iterator;
     private final boolean returnNullStrings;
+    private final StatementMetrics metrics;
+    /**
+     * True if rows are the pages of {@link #dsResultSet}, fetched by the iterator when they are needed.
+     */
+    private final boolean paged;
+    private final SlowQueryLog.Execution execution;
+    /**
+     * Flight recorder event of the last fetched page, committed when the next page is fetched or the result set ends.
+     */
+    private Object pageEvent;
     private Row currentRow;
 
     CassandraResultSet(Statement statement, com.datastax.driver.core.ResultSet dsResultSet, boolean returnNullStrings) {
+        this(statement, dsResultSet, dsResultSet.iterator(), returnNullStrings, true);
+    }
+
+    /**
+     * @param dsResultSet result set that provides column definitions and warnings
+     * @param rows        rows to iterate over, possibly coming from several queries with the same columns
+     */
+    CassandraResultSet(Statement statement, com.datastax.driver.core.ResultSet dsResultSet, Iterator<Row> rows, boolean returnNullStrings) {
+        this(statement, dsResultSet, rows, returnNullStrings, false);
+    }
+
+    private CassandraResultSet(Statement statement, com.datastax.driver.core.ResultSet dsResultSet, Iterator<Row> rows,
+                               boolean returnNullStrings, boolean paged) {
         this.statement = statement;
         this.dsResultSet = dsResultSet;
-        this.iterator = dsResultSet.iterator();
+        this.iterator = rows;
         this.returnNullStrings = returnNullStrings;
+        this.metrics = statement instanceof CassandraBaseStatement ? ((CassandraBaseStatement) statement).connection.getStatementMetrics() : null;
+        this.paged = paged;
+        this.execution = paged && statement instanceof CassandraBaseStatement ? ((CassandraBaseStatement) statement).takeExecution(dsResultSet) : null;
     }
 
     CassandraResultSet(Statement statement, com.datastax.driver.core.ResultSet dsResultSet) {
@@ -42,26 +69,69 @@ public class CassandraResultSet implements ResultSet {
 
     @Override
     public <T> T unwrap(Class<T> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException(getClass().getSimpleName() + " is not a wrapper for " + iface.getName());
     }
 
     @Override
-    public boolean isWrapperFor(Class<?> iface) throws SQLException {
-        throw new SQLFeatureNotSupportedException();
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
     }
 
+    /**
+     * @throws SQLException if a page or, for results of several queries, a query failed
+     */
     @Override
-    public boolean next() {
-        if (iterator.hasNext()) {
+    public boolean next() throws SQLException {
+        try {
+            return advance();
+        } catch (DriverException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    private boolean advance() {
+        if (metrics == null) {
+            if (!iterator.hasNext()) return false;
             currentRow = iterator.next();
             return true;
         }
-        return false;
+        boolean fetching = paged && dsResultSet.getAvailableWithoutFetching() == 0 && !dsResultSet.isFullyFetched();
+        long start = 0;
+        if (fetching) {
+            DriverEvents.commitPageFetch(pageEvent);
+            pageEvent = DriverEvents.beginPageFetch();
+            start = System.nanoTime();
+        }
+        boolean hasNext = iterator.hasNext();
+        if (fetching) {
+            long nanos = System.nanoTime() - start;
+            metrics.recordPageFetch(nanos);
+            DriverEvents.endPageFetch(pageEvent, dsResultSet.getAvailableWithoutFetching());
+            if (execution != null) execution.addPage(nanos);
+        }
+        if (!hasNext) {
+            finish();
+            return false;
+        }
+        currentRow = iterator.next();
+        if (pageEvent != null || metrics.isReporting()) {
+            long bytes = metrics.recordRow(currentRow, dsResultSet.getColumnDefinitions());
+            DriverEvents.addPageBytes(pageEvent, bytes);
+        }
+        return true;
     }
 
     @Override
     public void close() {
         isClosed = true;
+        finish();
+    }
+
+    private void finish() {
+        if (execution != null) execution.finish();
+        DriverEvents.commitPageFetch(pageEvent);
+        pageEvent = null;
     }
 
     public boolean isQuery() {
@@ -1026,7 +1096,7 @@ public class CassandraResultSet implements ResultSet {
         throw new SQLFeatureNotSupportedException();
     }
 
-    private void checkClosed() throws SQLException {
+    void checkClosed() throws SQLException {
         if (isClosed) {
             throw new SQLException("ResultSet was previously closed.");
         }
@@ -2,37 +2,105 @@ package com.dbschema;
 
 import com.datastax.driver.core.*;
 import com.datastax.driver.core.exceptions.SyntaxError;
-import com.dbschema.StatementExecutor.GetConsistencyLevelExecutor;
-import com.dbschema.StatementExecutor.SetConsistencyLevelExecutor;
+import com.dbschema.StatementExecutor.*;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.SQLSyntaxErrorException;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.regex.Pattern;
 
 public class CassandraStatement extends CassandraBaseStatement {
-    private static final List<StatementExecutor> EXECUTORS = new ArrayList<>();
+    /**
+     * Executors by the first keyword of statements they handle, so a statement is matched only against its own executors.
+     */
+    private static final Map<String, List<StatementExecutor>> EXECUTORS = new HashMap<>();
+    private static final Pattern IN_KEYWORD = Pattern.compile("\\bIN\\b", Pattern.CASE_INSENSITIVE);
 
     static {
-        EXECUTORS.add(SetConsistencyLevelExecutor.INSTANCE);
-        EXECUTORS.add(GetConsistencyLevelExecutor.INSTANCE);
+        register("CONSISTENCY", SetConsistencyLevelExecutor.INSTANCE, GetConsistencyLevelExecutor.INSTANCE);
+        register("SERIAL", SerialConsistencyExecutor.INSTANCE);
+        register("PROFILE", SetProfileExecutor.INSTANCE, GetProfileExecutor.INSTANCE);
+        register("PAGING", PagingExecutor.INSTANCE);
+        register("TRACING", TracingExecutor.INSTANCE);
+        register("TIMEOUT", TimeoutExecutor.INSTANCE);
+        register("SHOW", SlowQueriesExecutor.INSTANCE);
+        register("SELECT", SchemaQueryExecutor.INSTANCE);
+    }
+
+    private static void register(String keyword, StatementExecutor... executors) {
+        EXECUTORS.put(keyword, Arrays.asList(executors));
+    }
+
+    /**
+     * @return statement without the comments before its first keyword, null if a comment is not terminated
+     */
+    static String skipComments(String sql) {
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                if (end < 0) return null;
+                i = end + 2;
+            } else if (sql.startsWith("--", i) || sql.startsWith("//", i)) {
+                int end = sql.indexOf('\n', i);
+                if (end < 0) return null;
+                i = end + 1;
+            } else {
+                break;
+            }
+        }
+        return sql.substring(i);
+    }
+
+    /**
+     * @param statement statement without leading comments, see {@link #skipComments}
+     * @return executors registered for the first keyword of the statement
+     */
+    private static List<StatementExecutor> executors(String statement) {
+        if (statement == null) return Collections.emptyList();
+        int i = 0;
+        while (i < statement.length() && Character.isLetter(statement.charAt(i))) i++;
+        List<StatementExecutor> executors = EXECUTORS.get(statement.substring(0, i).toUpperCase(Locale.ENGLISH));
+        return executors == null ? Collections.<StatementExecutor>emptyList() : executors;
     }
 
     private final ConsistencyLevel consistencyLevel;
-    private final CassandraConnection connection;
+    private AggregateReport.Listener aggregateListener;
+    private volatile AggregateReport lastAggregateReport;
 
     CassandraStatement(Session session, ConsistencyLevel consistencyLevel, CassandraConnection connection) {
-        super(session);
+        super(session, connection);
         this.consistencyLevel = consistencyLevel;
-        this.connection = connection;
     }
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
         checkClosed();
+        String statement = skipComments(sql);
+        for (StatementExecutor executor : executors(statement)) {
+            StatementExecutor.ExecutionResult result = executor.execute(connection, statement);
+            if (result != null) {
+                if (result.resultSet == null) throw new SQLException("Not a query statement");
+                this.result = result.resultSet;
+                return this.result;
+            }
+        }
+        ResultSet aggregate = executeParallelAggregate(sql);
+        if (aggregate != null) {
+            this.result = aggregate;
+            return aggregate;
+        }
         try {
+            CassandraResultSet fanOut = executeInFanOut(sql);
+            if (fanOut != null) {
+                this.result = fanOut;
+                return fanOut;
+            }
             this.result = new CassandraResultSet(this, execute(sql, consistencyLevel));
             return this.result;
         } catch (SyntaxError ex) {
@@ -42,9 +110,61 @@ public class CassandraStatement extends CassandraBaseStatement {
         }
     }
 
-    private com.datastax.driver.core.ResultSet execute(String sql, ConsistencyLevel consistencyLevel) {
-        Statement statement = new SimpleStatement(sql).setConsistencyLevel(consistencyLevel);
-        return session.execute(statement);
+    /**
+     * @return combined result of a simple aggregate query split by token ranges,
+     * null if parallel aggregates are disabled or not applicable to the query
+     */
+    private ResultSet executeParallelAggregate(String sql) throws SQLException {
+        CassandraClientURI clientURI = connection.getClientURI();
+        if (!clientURI.getParallelAggregates()) return null;
+        ParallelAggregate aggregate = ParallelAggregate.parse(QueryHints.strip(sql));
+        if (aggregate == null) return null;
+        try {
+            return aggregate.execute(session, consistencyLevel, settings(sql), clientURI.getParallelAggregateConcurrency(),
+                    clientURI.getParallelAggregateSplits(), aggregateListener);
+        } finally {
+            if (aggregate.getReport() != null) lastAggregateReport = aggregate.getReport();
+        }
+    }
+
+    /**
+     * @return rows of a partition key IN query split into single partition queries,
+     * null if splitting is disabled or not applicable to the query
+     */
+    private CassandraResultSet executeInFanOut(String sql) throws SQLException {
+        CassandraClientURI clientURI = connection.getClientURI();
+        int threshold = clientURI.getInFanOutThreshold();
+        if (threshold == 0 || !IN_KEYWORD.matcher(sql).find()) return null;
+        InQueryFanOut fanOut = InQueryFanOut.analyze(sql, session, connection.getSchemaSnapshot());
+        if (fanOut == null || fanOut.getLiteralKeyCount() < threshold) return null;
+        return fanOut.executeLiterals(this, connection, consistencyLevel, settings(sql), clientURI.getInFanOutConcurrency(), true);
+    }
+
+    /**
+     * @param listener receives progress of parallel aggregates executed by this statement
+     */
+    public void setAggregateListener(AggregateReport.Listener listener) {
+        this.aggregateListener = listener;
+    }
+
+    /**
+     * @return report of the last parallel aggregate executed by this statement, null if there was none
+     */
+    public AggregateReport getLastAggregateReport() {
+        return lastAggregateReport;
+    }
+
+    private com.datastax.driver.core.ResultSet execute(String sql, ConsistencyLevel consistencyLevel) throws SQLException {
+        return executeStatement(createStatement(sql, consistencyLevel), sql);
+    }
+
+    private Statement createStatement(String sql, ConsistencyLevel consistencyLevel) {
+        BoundStatement bound = connection.getAutoPreparer().bind(sql);
+        if (bound != null) return bound.setConsistencyLevel(consistencyLevel);
+        SimpleStatement statement = new SimpleStatement(sql);
+        statement.setConsistencyLevel(consistencyLevel);
+        connection.getRoutingKeyAnalyzer().route(statement);
+        return statement;
     }
 
     @Override
@@ -69,19 +189,40 @@ public class CassandraStatement extends CassandraBaseStatement {
     public boolean execute(String sql) throws SQLException {
         checkClosed();
         try {
-            for (StatementExecutor executor : EXECUTORS) {
-                StatementExecutor.ExecutionResult result = executor.execute(connection, sql);
+            String statement = skipComments(sql);
+            for (StatementExecutor executor : executors(statement)) {
+                StatementExecutor.ExecutionResult result = executor.execute(connection, statement);
                 if (result != null) {
                     this.result = result.resultSet;
                     return this.result != null;
                 }
             }
+            ResultSet aggregate = executeParallelAggregate(sql);
+            if (aggregate != null) {
+                this.result = aggregate;
+                return true;
+            }
+            CassandraResultSet fanOut = executeInFanOut(sql);
+            if (fanOut != null) {
+                this.result = fanOut;
+                return true;
+            }
             return executeInner(execute(sql, consistencyLevel), true);
         } catch (Throwable t) {
             throw new SQLException(t.getMessage(), t);
         }
     }
 
+    /**
+     * Creates a resumable token range scan of the table. The scan uses consistency level of this statement.
+     *
+     * @see TableScan
+     */
+    public TableScan createTableScan(String keyspace, String table) throws SQLException {
+        checkClosed();
+        return new TableScan(session, keyspace, table, consistencyLevel);
+    }
+
     @Override
     public ResultSet getResultSet() throws SQLException {
         checkClosed();
@@ -94,9 +235,7 @@ public class CassandraStatement extends CassandraBaseStatement {
             batchStatement = new BatchStatement();
             batchStatement.setConsistencyLevel(consistencyLevel);
         }
-        SimpleStatement statement = new SimpleStatement(sql);
-        statement.setConsistencyLevel(consistencyLevel);
-        batchStatement.add(statement);
+        batchStatement.add(createStatement(sql, consistencyLevel));
     }
 
     @Override
@@ -0,0 +1,90 @@
+package com.dbschema;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Rows of several statements in statement order. Keeps a window of requests in flight
+ * ahead of the statement whose rows are being read.
+ * A failed statement is thrown as a {@link com.datastax.driver.core.exceptions.DriverException} from {@link #hasNext()},
+ * {@link CassandraResultSet#next()} converts it to a {@link java.sql.SQLException}.
+ */
+class ConcurrentRows implements Iterator<Row> {
+    private final CassandraBaseStatement owner;
+    private final CassandraBaseStatement.Settings settings;
+    private final String cql;
+    private final List<Statement> statements;
+    private final int concurrency;
+    private final Deque<ListenableFuture<com.datastax.driver.core.ResultSet>> window = new ArrayDeque<>();
+    private int submitted = 0;
+    private int currentIndex = -1;
+    private Iterator<Row> current = Collections.emptyIterator();
+
+    /**
+     * @param owner    statement that executes the statements, see {@link CassandraBaseStatement#executeAsync}
+     * @param settings settings of the owner the statements are retried with
+     * @param cql      text of the statements
+     */
+    ConcurrentRows(CassandraBaseStatement owner, CassandraBaseStatement.Settings settings, String cql,
+                   List<Statement> statements, int concurrency) {
+        this.owner = owner;
+        this.settings = settings;
+        this.cql = cql;
+        this.statements = statements;
+        this.concurrency = concurrency;
+        fill();
+    }
+
+    /**
+     * Waits for the result of the first statement, it describes the columns of all results.
+     * Must be called before iterating and only if there is at least one statement.
+     */
+    com.datastax.driver.core.ResultSet first() {
+        com.datastax.driver.core.ResultSet result = nextResult();
+        current = result.iterator();
+        return result;
+    }
+
+    /**
+     * @return index of the statement that returned the last row
+     */
+    int getCurrentIndex() {
+        return currentIndex;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (window.isEmpty()) return false;
+            current = nextResult().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        return current.next();
+    }
+
+    private com.datastax.driver.core.ResultSet nextResult() {
+        ListenableFuture<com.datastax.driver.core.ResultSet> future = window.poll();
+        currentIndex++;
+        fill();
+        return StatementRetry.getUninterruptibly(future);
+    }
+
+    private void fill() {
+        while (window.size() < concurrency && submitted < statements.size()) {
+            window.add(owner.executeAsync(statements.get(submitted++), cql, settings));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.dbschema;
+
+import com.dbschema.CqlTokenizer.Token;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * DML statement with its literal values replaced by bind markers, e.g.
+ * {@code SELECT * FROM t WHERE id = 5 LIMIT 10} has shape {@code SELECT * FROM t WHERE id = ? LIMIT ?}
+ * and literals {@code [5, 10]}.
+ * <p>
+ * Only literals in positions where CQL accepts bind markers are replaced: after
+ * WHERE, VALUES, SET, USING, IF and LIMIT. Literals of the select list stay in the shape.
+ */
+class CqlShape {
+    private final String query;
+    private final List<String> literals;
+
+    private CqlShape(String query, List<String> literals) {
+        this.query = query;
+        this.literals = literals;
+    }
+
+    /**
+     * @return shape or null if the statement is not a single SELECT, INSERT, UPDATE or DELETE without bind markers
+     */
+    static CqlShape parse(String cql) {
+        List<Token> significant = CqlTokenizer.significant(CqlTokenizer.tokenize(cql));
+        if (significant.isEmpty()) return null;
+        Token first = significant.get(0);
+        if (!first.is("SELECT") && !first.is("INSERT") && !first.is("UPDATE") && !first.is("DELETE")) return null;
+
+        StringBuilder query = new StringBuilder(cql.length());
+        List<String> literals = new ArrayList<>();
+        boolean values = false;
+        int copied = 0;
+        for (Token token : significant) {
+            if (token.type == CqlTokenizer.Type.BIND_MARKER) return null;
+            if (token.is(";") && token != significant.get(significant.size() - 1)) return null;
+            if (token.is("WHERE") || token.is("VALUES") || token.is("SET") || token.is("USING") || token.is("IF") || token.is("LIMIT")) {
+                values = true;
+            } else if (values && token.isLiteral()) {
+                query.append(cql, copied, token.start).append('?');
+                copied = token.end;
+                literals.add(token.text);
+            }
+        }
+        query.append(cql, copied, cql.length());
+        return new CqlShape(query.toString(), Collections.unmodifiableList(literals));
+    }
+
+    /**
+     * @return statement with bind markers in place of literals
+     */
+    String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return CQL text of the replaced literals in the order of the bind markers
+     */
+    List<String> getLiterals() {
+        return literals;
+    }
+}
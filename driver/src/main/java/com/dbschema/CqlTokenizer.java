@@ -0,0 +1,176 @@
+package com.dbschema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal CQL lexer used to analyze statements on the client.
+ * It does not validate the statement, unknown characters become one character symbols.
+ */
+class CqlTokenizer {
+    private static final Pattern UUID = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+    private static final Pattern NUMBER = Pattern.compile("-?[0-9]+(\\.[0-9]*)?([eE][+-]?[0-9]+)?");
+    private static final Pattern BLOB = Pattern.compile("0[xX][0-9a-fA-F]*");
+
+    enum Type {
+        IDENTIFIER, QUOTED_IDENTIFIER, STRING, NUMBER, UUID, BLOB, BIND_MARKER, SYMBOL, COMMENT
+    }
+
+    static class Token {
+        final Type type;
+        final int start;
+        final int end;
+        final String text;
+
+        Token(Type type, int start, int end, String text) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+
+        boolean is(String keywordOrSymbol) {
+            return (type == Type.IDENTIFIER || type == Type.SYMBOL || type == Type.BIND_MARKER) && text.equalsIgnoreCase(keywordOrSymbol);
+        }
+
+        /**
+         * @return true for constants that can be replaced by a bind marker
+         */
+        boolean isLiteral() {
+            return type == Type.STRING || type == Type.NUMBER || type == Type.UUID || type == Type.BLOB ||
+                    type == Type.IDENTIFIER && (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false"));
+        }
+
+        /**
+         * @return name of the identifier as it is stored in the schema
+         */
+        String identifier() {
+            return type == Type.QUOTED_IDENTIFIER ?
+                    text.substring(1, text.length() - 1).replace("\"\"", "\"") :
+                    text.toLowerCase(Locale.ENGLISH);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private CqlTokenizer() {
+    }
+
+    /**
+     * @return all tokens of the statement including comments, whitespace is skipped
+     */
+    static List<Token> tokenize(String cql) {
+        List<Token> tokens = new ArrayList<>();
+        int length = cql.length();
+        int i = 0;
+        while (i < length) {
+            char c = cql.charAt(i);
+            int start = i;
+            Type type;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (c == '-' && i + 1 < length && cql.charAt(i + 1) == '-' || c == '/' && i + 1 < length && cql.charAt(i + 1) == '/') {
+                i = cql.indexOf('\n', i);
+                if (i < 0) i = length;
+                type = Type.COMMENT;
+            } else if (c == '/' && i + 1 < length && cql.charAt(i + 1) == '*') {
+                i = cql.indexOf("*/", i + 2);
+                i = i < 0 ? length : i + 2;
+                type = Type.COMMENT;
+            } else if (c == '\'' || c == '"') {
+                i = skipQuoted(cql, i, c);
+                type = c == '\'' ? Type.STRING : Type.QUOTED_IDENTIFIER;
+            } else if (c == '$' && cql.startsWith("$$", i)) {
+                i = cql.indexOf("$$", i + 2);
+                i = i < 0 ? length : i + 2;
+                type = Type.STRING;
+            } else if (c == '?') {
+                i++;
+                type = Type.BIND_MARKER;
+            } else if (c == ':' && i + 1 < length && isIdentifierStart(cql.charAt(i + 1))) {
+                i = skipIdentifier(cql, i + 1);
+                type = Type.BIND_MARKER;
+            } else if ((i = matchEnd(UUID, cql, start)) > 0) {
+                type = Type.UUID;
+            } else if ((i = matchEnd(BLOB, cql, start)) > 0) {
+                type = Type.BLOB;
+            } else if ((Character.isDigit(c) || c == '-' && isNegativeNumberAllowed(tokens)) && (i = matchEnd(NUMBER, cql, start)) > 0) {
+                type = Type.NUMBER;
+            } else if (isIdentifierStart(c) || Character.isDigit(c)) {
+                // digits followed by letters are duration literals like 1h30m
+                i = skipIdentifier(cql, start);
+                type = Type.IDENTIFIER;
+            } else {
+                i = start + (cql.startsWith("<=", start) || cql.startsWith(">=", start) || cql.startsWith("!=", start) ? 2 : 1);
+                type = Type.SYMBOL;
+            }
+            tokens.add(new Token(type, start, i, cql.substring(start, i)));
+        }
+        return tokens;
+    }
+
+    /**
+     * @return tokens without comments
+     */
+    static List<Token> significant(List<Token> tokens) {
+        List<Token> result = new ArrayList<>(tokens.size());
+        for (Token token : tokens) {
+            if (token.type != Type.COMMENT) result.add(token);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static int skipQuoted(String cql, int i, char quote) {
+        i++;
+        while (i < cql.length()) {
+            if (cql.charAt(i) == quote) {
+                if (i + 1 < cql.length() && cql.charAt(i + 1) == quote) i += 2;
+                else return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    private static int skipIdentifier(String cql, int i) {
+        while (i < cql.length() && (Character.isLetterOrDigit(cql.charAt(i)) || cql.charAt(i) == '_')) i++;
+        return i;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    /**
+     * A minus is a sign of a number only after an operator or an opening bracket, otherwise it is a subtraction.
+     */
+    private static boolean isNegativeNumberAllowed(List<Token> tokens) {
+        for (int i = tokens.size() - 1; i >= 0; i--) {
+            Token previous = tokens.get(i);
+            if (previous.type == Type.COMMENT) continue;
+            return previous.type == Type.SYMBOL && !previous.is(")") && !previous.is("]") && !previous.is("}");
+        }
+        return true;
+    }
+
+    /**
+     * @return end of the match that starts at the offset and is not followed by an identifier character, -1 otherwise
+     */
+    private static int matchEnd(Pattern pattern, String cql, int offset) {
+        Matcher matcher = pattern.matcher(cql);
+        matcher.region(offset, cql.length());
+        if (!matcher.lookingAt()) return -1;
+        int end = matcher.end();
+        if (end < cql.length() && (Character.isLetterOrDigit(cql.charAt(end)) || cql.charAt(end) == '_')) return -1;
+        return end;
+    }
+}
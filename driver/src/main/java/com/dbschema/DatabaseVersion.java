@@ -0,0 +1,89 @@
+package com.dbschema;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.VersionNumber;
+
+/**
+ * Cassandra version of the cluster, taken from the host metadata the driver already has.
+ * The lowest version of hosts that are up is reported, so a rolling upgrade is visible only when it is finished.
+ * The version is computed once and recomputed after hosts are added, removed, go up or down.
+ */
+class DatabaseVersion implements Host.StateListener {
+    private final Session session;
+    private volatile String version;
+
+    DatabaseVersion(Session session) {
+        this.session = session;
+        session.getCluster().register(this);
+    }
+
+    /**
+     * Stops listening to host events, the cluster may be shared with other connections.
+     */
+    void close() {
+        Cluster cluster = session.getCluster();
+        if (!cluster.isClosed()) cluster.unregister(this);
+    }
+
+    String get() {
+        String result = version;
+        if (result == null) {
+            result = compute();
+            version = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return parsed version or null if it can not be parsed
+     */
+    VersionNumber getNumber() {
+        try {
+            return VersionNumber.parse(get());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String compute() {
+        VersionNumber lowest = null;
+        for (Host host : session.getCluster().getMetadata().getAllHosts()) {
+            VersionNumber hostVersion = host.getCassandraVersion();
+            if (!host.isUp() || hostVersion == null) continue;
+            if (lowest == null || hostVersion.compareTo(lowest) < 0) lowest = hostVersion;
+        }
+        if (lowest != null) return lowest.toString();
+        com.datastax.driver.core.ResultSet result = session.execute("select release_version from system.local");
+        return result.one().getString(0);
+    }
+
+    @Override
+    public void onAdd(Host host) {
+        version = null;
+    }
+
+    @Override
+    public void onUp(Host host) {
+        version = null;
+    }
+
+    @Override
+    public void onDown(Host host) {
+        version = null;
+    }
+
+    @Override
+    public void onRemove(Host host) {
+        version = null;
+    }
+
+    @Override
+    public void onRegister(Cluster cluster) {
+    }
+
+    @Override
+    public void onUnregister(Cluster cluster) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.dbschema;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Statement;
+
+/**
+ * Java Flight Recorder events of executions, page fetches, prepares and connection phases, see {@link JfrEvents}.
+ * On JVMs without JFR every method returns at once. {@code begin} methods return null while the event
+ * is not enabled in a recording, {@code end} methods accept null.
+ */
+class DriverEvents {
+    private static final boolean AVAILABLE = isAvailable();
+
+    private DriverEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, DriverEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    static Object beginExecute() {
+        return AVAILABLE ? JfrEvents.beginExecute() : null;
+    }
+
+    /**
+     * @param cql       text of the statement, null for batches
+     * @param resultSet result of the statement, null if it failed
+     */
+    static void endExecute(Object event, Statement statement, String cql, ResultSet resultSet) {
+        if (event != null) JfrEvents.endExecute(event, statement, cql, resultSet);
+    }
+
+    static Object beginPageFetch() {
+        return AVAILABLE ? JfrEvents.beginPageFetch() : null;
+    }
+
+    /**
+     * Ends the wait for a page, the event is committed by {@link #commitPageFetch} when its rows were read.
+     */
+    static void endPageFetch(Object event, int rows) {
+        if (event != null) JfrEvents.endPageFetch(event, rows);
+    }
+
+    static void addPageBytes(Object event, long bytes) {
+        if (event != null) JfrEvents.addPageBytes(event, bytes);
+    }
+
+    static void commitPageFetch(Object event) {
+        if (event != null) JfrEvents.commitPageFetch(event);
+    }
+
+    static Object beginPrepare() {
+        return AVAILABLE ? JfrEvents.beginPrepare() : null;
+    }
+
+    static void endPrepare(Object event, String cql, boolean cacheHit) {
+        if (event != null) JfrEvents.endPrepare(event, cql, cacheHit);
+    }
+
+    static Object beginConnect() {
+        return AVAILABLE ? JfrEvents.beginConnect() : null;
+    }
+
+    static void endConnect(Object event, String phase, String hosts) {
+        if (event != null) JfrEvents.endConnect(event, phase, hosts);
+    }
+}
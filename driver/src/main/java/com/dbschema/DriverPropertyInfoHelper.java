@@ -1,5 +1,9 @@
 package com.dbschema;
 
+import com.datastax.driver.core.PoolingOptions;
+import com.datastax.driver.core.QueryOptions;
+import com.datastax.driver.core.SocketOptions;
+
 import java.sql.DriverPropertyInfo;
 import java.util.ArrayList;
 import java.util.Locale;
@@ -17,6 +21,72 @@ public class DriverPropertyInfoHelper {
   public static final String CONSISTENCY_LEVEL_DEFAULT = DEFAULT_CONSISTENCY_LEVEL.name();
   public static final String[] CONSISTENCY_LEVEL_CHOICES = new String[]{"ALL", "EACH_QUORUM", "QUORUM", "LOCAL_QUORUM", "ONE", "TWO", "THREE", "LOCAL_ONE", "ANY", "SERIAL", "LOCAL_SERIAL"};
 
+  public static final String PARALLEL_AGGREGATES = "parallelAggregates";
+  public static final String PARALLEL_AGGREGATES_DEFAULT = "false";
+  public static final String PARALLEL_AGGREGATE_CONCURRENCY = "parallelAggregateConcurrency";
+  public static final String PARALLEL_AGGREGATE_CONCURRENCY_DEFAULT = "16";
+  public static final String PARALLEL_AGGREGATE_SPLITS = "parallelAggregateSplits";
+  public static final String PARALLEL_AGGREGATE_SPLITS_DEFAULT = "1";
+  public static final String IN_FAN_OUT_THRESHOLD = "inFanOutThreshold";
+  public static final String IN_FAN_OUT_THRESHOLD_DEFAULT = "0";
+  public static final String IN_FAN_OUT_CONCURRENCY = "inFanOutConcurrency";
+  public static final String IN_FAN_OUT_CONCURRENCY_DEFAULT = "32";
+  public static final String MULTI_GET_CONCURRENCY = "multiGetConcurrency";
+  public static final String MULTI_GET_CONCURRENCY_DEFAULT = "64";
+  public static final String AUTO_PREPARE_THRESHOLD = "autoPrepareThreshold";
+  public static final String AUTO_PREPARE_THRESHOLD_DEFAULT = "0";
+  public static final String AUTO_PREPARE_CACHE_SIZE = "autoPrepareCacheSize";
+  public static final String AUTO_PREPARE_CACHE_SIZE_DEFAULT = "256";
+  public static final String SCHEMA_CACHE_FILE = "schemaCacheFile";
+  public static final String METADATA_ENABLED = "metadataEnabled";
+  public static final String METADATA_ENABLED_DEFAULT = "true";
+  public static final String SCHEMA_REFRESH_INTERVAL = "schemaRefreshIntervalMillis";
+  public static final String SCHEMA_REFRESH_INTERVAL_DEFAULT = String.valueOf(QueryOptions.DEFAULT_REFRESH_SCHEMA_INTERVAL_MILLIS);
+  public static final String MAX_PENDING_SCHEMA_REFRESHES = "maxPendingSchemaRefreshes";
+  public static final String MAX_PENDING_SCHEMA_REFRESHES_DEFAULT = String.valueOf(QueryOptions.DEFAULT_MAX_PENDING_REFRESH_SCHEMA_REQUESTS);
+  public static final String SIZE_ESTIMATES_TTL = "sizeEstimatesTtlSeconds";
+  public static final String SIZE_ESTIMATES_TTL_DEFAULT = "300";
+  public static final String PREPARED_WARMUP_FILE = "preparedWarmupFile";
+  public static final String PREPARED_WARMUP_SIZE = "preparedWarmupSize";
+  public static final String PREPARED_WARMUP_SIZE_DEFAULT = "1000";
+  public static final String IO_THREADS = "ioThreads";
+  public static final String IO_THREADS_DEFAULT = "0";
+  public static final String TRANSPORT = "transport";
+  public static final String TRANSPORT_DEFAULT = "auto";
+  public static final String[] TRANSPORT_CHOICES = new String[]{"auto", "epoll", "nio"};
+  public static final String CONNECT_TIMEOUT = "connectTimeoutMillis";
+  public static final String CONNECT_TIMEOUT_DEFAULT = String.valueOf(SocketOptions.DEFAULT_CONNECT_TIMEOUT_MILLIS);
+  public static final String READ_TIMEOUT = "readTimeoutMillis";
+  public static final String READ_TIMEOUT_DEFAULT = String.valueOf(SocketOptions.DEFAULT_READ_TIMEOUT_MILLIS);
+  public static final String TCP_NO_DELAY = "tcpNoDelay";
+  public static final String TCP_NO_DELAY_DEFAULT = "true";
+  public static final String KEEP_ALIVE = "keepAlive";
+  public static final String SEND_BUFFER_SIZE = "sendBufferSize";
+  public static final String RECEIVE_BUFFER_SIZE = "receiveBufferSize";
+  public static final String HEARTBEAT_INTERVAL = "heartbeatIntervalSeconds";
+  public static final String HEARTBEAT_INTERVAL_DEFAULT = String.valueOf(PoolingOptions.DEFAULT_HEARTBEAT_INTERVAL_SECONDS);
+  public static final String RETRY_POLICY = "retryPolicy";
+  public static final String RETRY_POLICY_DEFAULT = "default";
+  public static final String[] RETRY_POLICY_CHOICES = new String[]{"default", "fallthrough", "downgrading", "backoff"};
+  public static final String MAX_RETRIES = "maxRetries";
+  public static final String MAX_RETRIES_DEFAULT = "3";
+  public static final String RETRY_DELAY = "retryDelayMillis";
+  public static final String RETRY_DELAY_DEFAULT = "100";
+  public static final String MAX_RETRY_DELAY = "maxRetryDelayMillis";
+  public static final String MAX_RETRY_DELAY_DEFAULT = "10000";
+  public static final String RETRY_BUDGET_PERCENT = "retryBudgetPercent";
+  public static final String RETRY_BUDGET_PERCENT_DEFAULT = "10";
+  public static final String TRACE_SAMPLING = "traceSampling";
+  public static final String TRACE_SAMPLING_DEFAULT = "0";
+  public static final String SLOW_TRACE_THRESHOLD = "slowTraceThresholdMillis";
+  public static final String SLOW_TRACE_THRESHOLD_DEFAULT = "0";
+  public static final String JMX_ENABLED = "jmxEnabled";
+  public static final String JMX_ENABLED_DEFAULT = "false";
+  public static final String SLOW_QUERY_THRESHOLD = "slowQueryThresholdMillis";
+  public static final String SLOW_QUERY_THRESHOLD_DEFAULT = "0";
+  public static final String SLOW_QUERY_LOGS_PER_SECOND = "slowQueryLogsPerSecond";
+  public static final String SLOW_QUERY_LOGS_PER_SECOND_DEFAULT = "10";
+
 
   public static DriverPropertyInfo[] getPropertyInfo() {
     ArrayList<DriverPropertyInfo> propInfos = new ArrayList<>();
@@ -30,6 +100,111 @@ public class DriverPropertyInfoHelper {
         "Consistency level determines how many nodes in the replica must respond for the coordinator node to successfully process a non-lightweight transaction.",
         CONSISTENCY_LEVEL_CHOICES);
 
+    addPropInfo(propInfos, PARALLEL_AGGREGATES, PARALLEL_AGGREGATES_DEFAULT,
+        "Run count/sum/min/max queries without WHERE clause as concurrent token range queries and combine the results on the client.", choices);
+
+    addPropInfo(propInfos, PARALLEL_AGGREGATE_CONCURRENCY, PARALLEL_AGGREGATE_CONCURRENCY_DEFAULT,
+        "Maximum number of token range queries of a parallel aggregate in flight.", null);
+
+    addPropInfo(propInfos, PARALLEL_AGGREGATE_SPLITS, PARALLEL_AGGREGATE_SPLITS_DEFAULT,
+        "Number of sub-ranges every token range of the ring is split into for parallel aggregates.", null);
+
+    addPropInfo(propInfos, IN_FAN_OUT_THRESHOLD, IN_FAN_OUT_THRESHOLD_DEFAULT,
+        "Split SELECT queries with at least this many keys in a partition key IN list into concurrent single partition queries. 0 disables splitting.", null);
+
+    addPropInfo(propInfos, IN_FAN_OUT_CONCURRENCY, IN_FAN_OUT_CONCURRENCY_DEFAULT,
+        "Maximum number of single partition queries of a split IN query in flight.", null);
+
+    addPropInfo(propInfos, MULTI_GET_CONCURRENCY, MULTI_GET_CONCURRENCY_DEFAULT,
+        "Maximum number of lookups of CassandraPreparedStatement.executeMulti in flight.", null);
+
+    addPropInfo(propInfos, AUTO_PREPARE_THRESHOLD, AUTO_PREPARE_THRESHOLD_DEFAULT,
+        "Prepare unprepared statements once a statement with the same shape, literals aside, is executed this many times. 0 disables auto-prepare.", null);
+
+    addPropInfo(propInfos, AUTO_PREPARE_CACHE_SIZE, AUTO_PREPARE_CACHE_SIZE_DEFAULT,
+        "Maximum number of automatically prepared statements kept per connection.", null);
+
+    addPropInfo(propInfos, SCHEMA_CACHE_FILE, null,
+        "Local file with the schema of the cluster. Connect without reading the schema if the file matches the schema version, the file is updated in the background otherwise.", null);
+
+    addPropInfo(propInfos, METADATA_ENABLED, METADATA_ENABLED_DEFAULT,
+        "Read schema and token metadata of the cluster. Without it connect is faster, but statements are not routed to replicas and database metadata is queried from schema tables on demand.", choices);
+
+    addPropInfo(propInfos, SCHEMA_REFRESH_INTERVAL, SCHEMA_REFRESH_INTERVAL_DEFAULT,
+        "Schema change events received within this many milliseconds are coalesced into one schema refresh. 0 refreshes on every event.", null);
+
+    addPropInfo(propInfos, MAX_PENDING_SCHEMA_REFRESHES, MAX_PENDING_SCHEMA_REFRESHES_DEFAULT,
+        "Maximum number of coalesced schema change events after which the schema is refreshed without waiting.", null);
+
+    addPropInfo(propInfos, SIZE_ESTIMATES_TTL, SIZE_ESTIMATES_TTL_DEFAULT,
+        "Number of seconds table statistics read from system.size_estimates are reused. 0 reads them on every request.", null);
+
+    addPropInfo(propInfos, PREPARED_WARMUP_FILE, null,
+        "Local file with the statements prepared by connections. They are prepared again in the background when a connection is opened.", null);
+
+    addPropInfo(propInfos, PREPARED_WARMUP_SIZE, PREPARED_WARMUP_SIZE_DEFAULT,
+        "Maximum number of statements in the prepared statement warmup file, the least recently prepared are evicted.", null);
+
+    addPropInfo(propInfos, IO_THREADS, IO_THREADS_DEFAULT,
+        "Number of I/O threads shared by all connections in the process. 0 uses twice the number of cores. Only the first connection decides.", null);
+
+    addPropInfo(propInfos, TRANSPORT, TRANSPORT_DEFAULT,
+        "Network transport: epoll uses the Netty native transport on Linux, nio the JDK one, auto uses epoll when it is available.",
+        TRANSPORT_CHOICES);
+
+    addPropInfo(propInfos, CONNECT_TIMEOUT, CONNECT_TIMEOUT_DEFAULT,
+        "Milliseconds to wait for a connection to a host to be established.", null);
+
+    addPropInfo(propInfos, READ_TIMEOUT, READ_TIMEOUT_DEFAULT,
+        "Milliseconds to wait for a response from a host before trying the next one. Should be higher than the server side timeouts. 0 disables the timeout.", null);
+
+    addPropInfo(propInfos, TCP_NO_DELAY, TCP_NO_DELAY_DEFAULT,
+        "Disable Nagle's algorithm on connections to hosts.", choices);
+
+    addPropInfo(propInfos, KEEP_ALIVE, null,
+        "Enable TCP keepalive on connections to hosts. The operating system default is used if not set.", choices);
+
+    addPropInfo(propInfos, SEND_BUFFER_SIZE, null,
+        "Socket send buffer size in bytes. The operating system default is used if not set.", null);
+
+    addPropInfo(propInfos, RECEIVE_BUFFER_SIZE, null,
+        "Socket receive buffer size in bytes. The operating system default is used if not set.", null);
+
+    addPropInfo(propInfos, HEARTBEAT_INTERVAL, HEARTBEAT_INTERVAL_DEFAULT,
+        "Seconds of inactivity after which a heartbeat is sent on a connection to check that it is alive. 0 disables heartbeats.", null);
+
+    addPropInfo(propInfos, RETRY_POLICY, RETRY_POLICY_DEFAULT,
+        "Retry policy of statements: retry policies of the driver retry at once, backoff retries idempotent statements after a randomized exponential delay. Can be changed per statement.",
+        RETRY_POLICY_CHOICES);
+
+    addPropInfo(propInfos, MAX_RETRIES, MAX_RETRIES_DEFAULT,
+        "Maximum number of retries of a statement by the backoff retry policy.", null);
+
+    addPropInfo(propInfos, RETRY_DELAY, RETRY_DELAY_DEFAULT,
+        "Milliseconds before the first retry of the backoff retry policy, doubled on every next retry.", null);
+
+    addPropInfo(propInfos, MAX_RETRY_DELAY, MAX_RETRY_DELAY_DEFAULT,
+        "Upper bound of the delay between retries of the backoff retry policy.", null);
+
+    addPropInfo(propInfos, RETRY_BUDGET_PERCENT, RETRY_BUDGET_PERCENT_DEFAULT,
+        "Maximum retries of the backoff retry policy in percent of requests of the connection, after an initial allowance of 10 retries.", null);
+
+    addPropInfo(propInfos, TRACE_SAMPLING, TRACE_SAMPLING_DEFAULT,
+        "Fraction of statements traced by Cassandra, from 0 to 1. Tracing adds load to the cluster, use small values. " +
+        "The last sampled trace is returned by TRACING SAMPLED.", null);
+
+    addPropInfo(propInfos, SLOW_TRACE_THRESHOLD, SLOW_TRACE_THRESHOLD_DEFAULT,
+        "Traced statements that took at least this many milliseconds on the coordinator are logged with their trace events. 0 disables the log.", null);
+
+    addPropInfo(propInfos, JMX_ENABLED, JMX_ENABLED_DEFAULT,
+        "Report driver metrics and statement latencies of the connection to JMX, in a domain named after the connection URL.", choices);
+
+    addPropInfo(propInfos, SLOW_QUERY_THRESHOLD, SLOW_QUERY_THRESHOLD_DEFAULT,
+        "Statements whose execution and page fetches took at least this many milliseconds are logged and aggregated for SHOW SLOW QUERIES. 0 disables the log.", null);
+
+    addPropInfo(propInfos, SLOW_QUERY_LOGS_PER_SECOND, SLOW_QUERY_LOGS_PER_SECOND_DEFAULT,
+        "Maximum number of slow statements logged per second, the others are only aggregated.", null);
+
     return propInfos.toArray(new DriverPropertyInfo[0]);
   }
 
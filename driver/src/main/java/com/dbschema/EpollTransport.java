@@ -0,0 +1,46 @@
+package com.dbschema;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Netty native epoll transport. The Netty epoll classes are referenced only from this class,
+ * so it must not be used unless {@link #isAvailable()} returns true.
+ */
+class EpollTransport {
+    private EpollTransport() {
+    }
+
+    /**
+     * @return true if the epoll classes are on the class path and the native library of the platform is loaded
+     */
+    static boolean isAvailable() {
+        try {
+            Class.forName("io.netty.channel.epoll.Epoll", false, EpollTransport.class.getClassLoader());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+        return isNativeLoaded();
+    }
+
+    private static boolean isNativeLoaded() {
+        try {
+            return Epoll.isAvailable();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    static EventLoopGroup eventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return new EpollEventLoopGroup(threads, threadFactory);
+    }
+
+    static Class<? extends SocketChannel> channelClass() {
+        return EpollSocketChannel.class;
+    }
+}
@@ -0,0 +1,198 @@
+package com.dbschema;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.Statement;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named set of statement settings defined by {@code profile.<name>.<setting>} options, e.g.
+ * {@code profile.oltp.timeoutMs=200} and {@code profile.scan.fetchSize=10000}.
+ * Settings are {@code consistency}, {@code serialConsistency}, {@code timeoutMs}, {@code fetchSize}, {@code idempotent},
+ * {@code tracing} and {@code retry}. Names and settings are case insensitive.
+ * Settings that are not defined keep the values of the connection.
+ * <p>
+ * A statement uses the profile of its {@code profile=<name>} query hint (see {@link QueryHints}), else the profile set by
+ * {@link CassandraBaseStatement#setProfile}, else the profile selected for the connection by {@code PROFILE <name>}.
+ */
+public class ExecutionProfile {
+    static final String PREFIX = "profile.";
+    static final String CONSISTENCY = "consistency";
+    static final String SERIAL_CONSISTENCY = "serialconsistency";
+    static final String TIMEOUT = "timeoutms";
+    static final String FETCH_SIZE = "fetchsize";
+    static final String IDEMPOTENT = "idempotent";
+    static final String RETRY = "retry";
+    static final String TRACING = "tracing";
+
+    private final String name;
+    private final String settingPrefix;
+    private final ConsistencyLevel consistencyLevel;
+    private final ConsistencyLevel serialConsistencyLevel;
+    private final Integer timeoutMillis;
+    private final Integer fetchSize;
+    private final Boolean idempotent;
+    private final String retryPolicy;
+    private final Boolean tracing;
+
+    /**
+     * @param settings values by lower case setting name
+     * @throws IllegalArgumentException if a setting is unknown or its value is invalid
+     */
+    ExecutionProfile(String name, Map<String, String> settings) {
+        this(name, "Option " + PREFIX + name + ".", settings);
+    }
+
+    /**
+     * @param settingPrefix describes where settings come from in error messages
+     */
+    ExecutionProfile(String name, String settingPrefix, Map<String, String> settings) {
+        this.name = name;
+        this.settingPrefix = settingPrefix;
+        ConsistencyLevel consistencyLevel = null;
+        ConsistencyLevel serialConsistencyLevel = null;
+        Integer timeoutMillis = null;
+        Integer fetchSize = null;
+        Boolean idempotent = null;
+        String retryPolicy = null;
+        Boolean tracing = null;
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            String value = setting.getValue().trim();
+            switch (setting.getKey()) {
+                case CONSISTENCY:
+                    try {
+                        consistencyLevel = ConsistencyLevel.valueOf(value.toUpperCase(Locale.ENGLISH));
+                    } catch (IllegalArgumentException e) {
+                        throw invalid(setting, "a consistency level");
+                    }
+                    break;
+                case SERIAL_CONSISTENCY:
+                    try {
+                        serialConsistencyLevel = ConsistencyLevel.valueOf(value.toUpperCase(Locale.ENGLISH));
+                    } catch (IllegalArgumentException e) {
+                        serialConsistencyLevel = null;
+                    }
+                    if (serialConsistencyLevel == null || !serialConsistencyLevel.isSerial()) {
+                        throw invalid(setting, "SERIAL or LOCAL_SERIAL");
+                    }
+                    break;
+                case TIMEOUT:
+                    timeoutMillis = parseInt(setting, 0);
+                    break;
+                case FETCH_SIZE:
+                    fetchSize = parseInt(setting, 1);
+                    break;
+                case IDEMPOTENT:
+                    idempotent = parseBoolean(setting);
+                    break;
+                case TRACING:
+                    tracing = parseBoolean(setting);
+                    break;
+                case RETRY:
+                    if (StatementRetry.driverPolicy(value) == null) {
+                        throw invalid(setting, "one of " + Arrays.toString(DriverPropertyInfoHelper.RETRY_POLICY_CHOICES));
+                    }
+                    retryPolicy = value.toLowerCase(Locale.ENGLISH);
+                    break;
+                default:
+                    throw new IllegalArgumentException(settingPrefix + setting.getKey() + " is unknown");
+            }
+        }
+        this.consistencyLevel = consistencyLevel;
+        this.serialConsistencyLevel = serialConsistencyLevel;
+        this.timeoutMillis = timeoutMillis;
+        this.fetchSize = fetchSize;
+        this.idempotent = idempotent;
+        this.retryPolicy = retryPolicy;
+        this.tracing = tracing;
+    }
+
+    private int parseInt(Map.Entry<String, String> setting, int minValue) {
+        try {
+            int result = Integer.parseInt(setting.getValue().trim());
+            if (result >= minValue) return result;
+        } catch (NumberFormatException ignored) {
+        }
+        throw invalid(setting, "an integer not less than " + minValue);
+    }
+
+    private boolean parseBoolean(Map.Entry<String, String> setting) {
+        String value = setting.getValue().trim();
+        if (!value.equalsIgnoreCase("true") && !value.equalsIgnoreCase("false")) {
+            throw invalid(setting, "true or false");
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private IllegalArgumentException invalid(Map.Entry<String, String> setting, String expected) {
+        return new IllegalArgumentException(settingPrefix + setting.getKey() + " must be " + expected +
+                ", got '" + setting.getValue() + "'");
+    }
+
+    void apply(Statement statement) {
+        if (consistencyLevel != null) statement.setConsistencyLevel(consistencyLevel);
+        if (serialConsistencyLevel != null) statement.setSerialConsistencyLevel(serialConsistencyLevel);
+        if (timeoutMillis != null) statement.setReadTimeoutMillis(timeoutMillis);
+        if (fetchSize != null) statement.setFetchSize(fetchSize);
+        if (idempotent != null) statement.setIdempotent(idempotent);
+        if (tracing != null) {
+            if (tracing) statement.enableTracing();
+            else statement.disableTracing();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return consistency level or null if the level of the statement is used
+     */
+    public ConsistencyLevel getConsistencyLevel() {
+        return consistencyLevel;
+    }
+
+    /**
+     * @return serial consistency level of lightweight transactions or null if the level of the statement is used
+     */
+    public ConsistencyLevel getSerialConsistencyLevel() {
+        return serialConsistencyLevel;
+    }
+
+    /**
+     * @return client side timeout or null if the {@code readTimeoutMillis} option is used, 0 disables the timeout
+     */
+    public Integer getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return fetch size or null if the default fetch size is used
+     */
+    public Integer getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @return idempotence or null if the statement is idempotent only if it was marked so
+     */
+    public Boolean getIdempotent() {
+        return idempotent;
+    }
+
+    /**
+     * @return one of {@link DriverPropertyInfoHelper#RETRY_POLICY_CHOICES} or null if the policy of the connection is used
+     */
+    public String getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * @return whether statements are traced or null if tracing is left as it is
+     */
+    public Boolean getTracing() {
+        return tracing;
+    }
+}
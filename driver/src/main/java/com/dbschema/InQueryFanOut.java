@@ -0,0 +1,233 @@
+package com.dbschema;
+
+import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.dbschema.CqlTokenizer.Token;
+
+import java.util.*;
+
+/**
+ * Splits {@code SELECT ... WHERE pk IN (k1, k2, ...)} into single partition queries {@code SELECT ... WHERE pk = ?}
+ * that are executed concurrently. Every sub-query is a bound statement routed to a replica of its partition,
+ * so large key lists are spread across the cluster instead of making one coordinator gather all partitions.
+ * <p>
+ * Rows are returned partition by partition in the order of the keys in the IN list, duplicate keys are skipped.
+ * At most {@code concurrency} partitions are requested ahead of the partition that is being read.
+ * Queries with LIMIT, ORDER BY, GROUP BY, PER PARTITION LIMIT, ALLOW FILTERING or aggregates are not split.
+ */
+class InQueryFanOut {
+    private static final Set<String> AGGREGATES = new HashSet<>(Arrays.asList("count", "sum", "avg", "min", "max"));
+    private static final Set<String> UNSUPPORTED_CLAUSES = new HashSet<>(Arrays.asList("limit", "order", "group", "per", "allow"));
+
+    private final String query;
+    private final int keyMarker;
+    private final List<String> keyLiterals;
+    private final int keyMarkerCount;
+
+    private InQueryFanOut(String query, int keyMarker, List<String> keyLiterals, int keyMarkerCount) {
+        this.query = query;
+        this.keyMarker = keyMarker;
+        this.keyLiterals = keyLiterals;
+        this.keyMarkerCount = keyMarkerCount;
+    }
+
+    /**
+     * Partition key columns of the tables of the analyzed statements.
+     */
+    interface PartitionKeys {
+        /**
+         * @param keyspace keyspace name token, null if the logged keyspace is used
+         * @return names of the partition key columns as they are stored in the schema, null if the table is unknown
+         */
+        Set<String> of(Token keyspace, Token table);
+    }
+
+    /**
+     * @return fan-out or null if the statement does not select partitions by an IN list of its partition key
+     */
+    static InQueryFanOut analyze(String cql, final Session session, final SchemaSnapshot schema) {
+        return analyze(cql, new PartitionKeys() {
+            @Override
+            public Set<String> of(Token keyspace, Token table) {
+                TableMetadata tableMetadata = findTable(schema, session, keyspace, table);
+                if (tableMetadata == null) return null;
+                Set<String> names = new HashSet<>();
+                for (ColumnMetadata column : tableMetadata.getPartitionKey()) names.add(column.getName());
+                return names;
+            }
+        });
+    }
+
+    static InQueryFanOut analyze(String cql, PartitionKeys partitionKeys) {
+        List<Token> tokens = CqlTokenizer.significant(CqlTokenizer.tokenize(cql));
+        if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) return null;
+        int i = 1;
+        while (i < tokens.size() && !tokens.get(i).is("FROM")) {
+            Token token = tokens.get(i);
+            if (isAggregate(token) && i + 1 < tokens.size() && tokens.get(i + 1).is("(")) return null;
+            i++;
+        }
+        if (i + 2 >= tokens.size()) return null;
+        Token keyspace = null;
+        Token table = tokens.get(++i);
+        if (tokens.get(i + 1).is(".") && i + 2 < tokens.size()) {
+            keyspace = table;
+            table = tokens.get(i + 2);
+            i += 2;
+        }
+        if (++i >= tokens.size() || !tokens.get(i).is("WHERE")) return null;
+        Set<String> partitionKey = partitionKeys.of(keyspace, table);
+        if (partitionKey == null) return null;
+
+        int markers = 0;
+        int depth = 0;
+        int column = -1;
+        int listEnd = -1;
+        int firstKeyMarker = -1;
+        int keyMarkerCount = 0;
+        List<String> literals = null;
+        for (int j = i + 1; j < tokens.size(); j++) {
+            Token token = tokens.get(j);
+            if (token.type == CqlTokenizer.Type.BIND_MARKER) {
+                // named markers can not be rebound by position
+                if (!token.text.equals("?")) return null;
+                markers++;
+            } else if (token.is("(")) {
+                depth++;
+            } else if (token.is(")")) {
+                depth--;
+            } else if (depth == 0 && token.type == CqlTokenizer.Type.IDENTIFIER && UNSUPPORTED_CLAUSES.contains(token.identifier())) {
+                return null;
+            } else if (depth == 0 && token.is("IN") && isPartitionKey(partitionKey, tokens.get(j - 1)) && j + 1 < tokens.size()) {
+                // a second IN on the partition key would need a cartesian product of keys
+                if (column >= 0) return null;
+                column = j - 1;
+                firstKeyMarker = markers;
+                Token next = tokens.get(j + 1);
+                if (next.is("?")) {
+                    listEnd = j + 1;
+                    markers++;
+                    j++;
+                    continue;
+                }
+                if (!next.is("(")) return null;
+                literals = new ArrayList<>();
+                int k = j + 2;
+                for (; k < tokens.size(); k += 2) {
+                    Token value = tokens.get(k);
+                    if (value.is("?")) keyMarkerCount++;
+                    else if (value.isLiteral()) literals.add(value.text);
+                    else return null;
+                    if (k + 1 >= tokens.size()) return null;
+                    if (tokens.get(k + 1).is(")")) break;
+                    if (!tokens.get(k + 1).is(",")) return null;
+                }
+                if (k >= tokens.size() || keyMarkerCount > 0 && !literals.isEmpty()) return null;
+                if (keyMarkerCount > 0) literals = null;
+                markers += keyMarkerCount;
+                listEnd = k + 1;
+                j = listEnd;
+            }
+        }
+        if (column < 0) return null;
+        // keys are either all literals of an unprepared statement or all bind markers of a prepared one
+        if (literals != null && markers > 0) return null;
+        String query = cql.substring(0, tokens.get(column).end) + " = ?" + cql.substring(tokens.get(listEnd).end);
+        return new InQueryFanOut(query, literals != null ? 0 : firstKeyMarker, literals, keyMarkerCount);
+    }
+
+    /**
+     * @return single partition query executed for every key
+     */
+    String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return number of distinct literal keys, -1 if keys are bind markers
+     */
+    int getLiteralKeyCount() {
+        return keyLiterals == null ? -1 : new LinkedHashSet<>(keyLiterals).size();
+    }
+
+    /**
+     * @param params values of the bind markers of the original statement
+     * @return distinct keys bound to the IN list
+     */
+    List<Object> getBoundKeys(Object[] params) {
+        Set<Object> keys = new LinkedHashSet<>();
+        if (keyMarkerCount == 0) {
+            Object list = params[keyMarker];
+            if (list instanceof Collection) keys.addAll((Collection<?>) list);
+        } else {
+            keys.addAll(Arrays.asList(params).subList(keyMarker, keyMarker + keyMarkerCount));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * @return result set over all partitions or null if a literal key can not be bound
+     */
+    CassandraResultSet executeLiterals(CassandraBaseStatement statement, CassandraConnection connection,
+                                       ConsistencyLevel consistencyLevel, CassandraBaseStatement.Settings settings,
+                                       int concurrency, boolean returnNullStrings) {
+        PreparedStatement prepared = connection.prepareInternal(query);
+        Cluster cluster = connection.getSession().getCluster();
+        ProtocolVersion protocolVersion = cluster.getConfiguration().getProtocolOptions().getProtocolVersion();
+        TypeCodec<Object> codec = CodecRegistry.DEFAULT_INSTANCE.codecFor(prepared.getVariables().getType(keyMarker));
+        List<Statement> statements = new ArrayList<>();
+        try {
+            for (String key : new LinkedHashSet<>(keyLiterals)) {
+                BoundStatement bound = prepared.bind();
+                bound.setBytesUnsafe(keyMarker, codec.serialize(codec.parse(key), protocolVersion));
+                bound.setConsistencyLevel(consistencyLevel);
+                settings.applyToSubQuery(bound);
+                statements.add(bound);
+            }
+        } catch (InvalidTypeException e) {
+            return null;
+        }
+        return execute(statement, settings, statements, concurrency, returnNullStrings);
+    }
+
+    CassandraResultSet executeBound(CassandraBaseStatement statement, CassandraConnection connection, Object[] params,
+                                    ConsistencyLevel consistencyLevel, CassandraBaseStatement.Settings settings,
+                                    int concurrency, boolean returnNullStrings) {
+        PreparedStatement prepared = connection.prepareInternal(query);
+        int shift = keyMarkerCount == 0 ? 0 : keyMarkerCount - 1;
+        List<Statement> statements = new ArrayList<>();
+        for (Object key : getBoundKeys(params)) {
+            Object[] values = new Object[params.length - shift];
+            System.arraycopy(params, 0, values, 0, keyMarker);
+            values[keyMarker] = key;
+            System.arraycopy(params, keyMarker + shift + 1, values, keyMarker + 1, values.length - keyMarker - 1);
+            BoundStatement bound = prepared.bind(values);
+            bound.setConsistencyLevel(consistencyLevel);
+            settings.applyToSubQuery(bound);
+            statements.add(bound);
+        }
+        return execute(statement, settings, statements, concurrency, returnNullStrings);
+    }
+
+    private CassandraResultSet execute(CassandraBaseStatement statement, CassandraBaseStatement.Settings settings,
+                                       List<Statement> statements, int concurrency, boolean returnNullStrings) {
+        ConcurrentRows rows = new ConcurrentRows(statement, settings, query, statements, concurrency);
+        com.datastax.driver.core.ResultSet first = rows.first();
+        return new CassandraResultSet(statement, first, rows, returnNullStrings);
+    }
+
+    private static boolean isAggregate(Token token) {
+        return token.type == CqlTokenizer.Type.IDENTIFIER && AGGREGATES.contains(token.identifier());
+    }
+
+    private static boolean isPartitionKey(Set<String> partitionKey, Token column) {
+        return (column.type == CqlTokenizer.Type.IDENTIFIER || column.type == CqlTokenizer.Type.QUOTED_IDENTIFIER) &&
+                partitionKey.contains(column.identifier());
+    }
+
+    static TableMetadata findTable(SchemaSnapshot schema, Session session, Token keyspace, Token table) {
+        if (table.type != CqlTokenizer.Type.IDENTIFIER && table.type != CqlTokenizer.Type.QUOTED_IDENTIFIER) return null;
+        String keyspaceName = keyspace != null ? keyspace.identifier() : session.getLoggedKeyspace();
+        return schema.getTable(keyspaceName, table.identifier());
+    }
+}
@@ -0,0 +1,150 @@
+package com.dbschema;
+
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Statement;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event types of the driver. The {@code jdk.jfr} classes are referenced only from this class,
+ * so it must not be used unless {@link DriverEvents} found them. Events are created only while their type is
+ * enabled in a recording, which is checked on the event type without allocating an event, and their fields are filled
+ * only if they pass the duration threshold of the recording.
+ */
+class JfrEvents {
+    private static final EventType EXECUTE = EventType.getEventType(ExecuteEvent.class);
+    private static final EventType PAGE_FETCH = EventType.getEventType(PageFetchEvent.class);
+    private static final EventType PREPARE = EventType.getEventType(PrepareEvent.class);
+    private static final EventType CONNECT = EventType.getEventType(ConnectEvent.class);
+
+    private JfrEvents() {
+    }
+
+    static Object beginExecute() {
+        if (!EXECUTE.isEnabled()) return null;
+        ExecuteEvent event = new ExecuteEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endExecute(Object handle, Statement statement, String cql, ResultSet resultSet) {
+        ExecuteEvent event = (ExecuteEvent) handle;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.fingerprint = cql == null ? "BATCH" : fingerprint(cql);
+        event.consistency = String.valueOf(statement.getConsistencyLevel());
+        ExecutionInfo info = resultSet == null ? null : resultSet.getExecutionInfo();
+        event.coordinator = info == null || info.getQueriedHost() == null ? null : String.valueOf(info.getQueriedHost().getEndPoint());
+        event.commit();
+    }
+
+    private static String fingerprint(String cql) {
+        CqlShape shape = CqlShape.parse(cql);
+        return shape == null ? cql : shape.getQuery();
+    }
+
+    static Object beginPageFetch() {
+        if (!PAGE_FETCH.isEnabled()) return null;
+        PageFetchEvent event = new PageFetchEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endPageFetch(Object handle, int rows) {
+        PageFetchEvent event = (PageFetchEvent) handle;
+        event.end();
+        event.rows = rows;
+    }
+
+    static void addPageBytes(Object handle, long bytes) {
+        ((PageFetchEvent) handle).bytes += bytes;
+    }
+
+    static void commitPageFetch(Object handle) {
+        PageFetchEvent event = (PageFetchEvent) handle;
+        if (event.shouldCommit()) event.commit();
+    }
+
+    static Object beginPrepare() {
+        if (!PREPARE.isEnabled()) return null;
+        PrepareEvent event = new PrepareEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endPrepare(Object handle, String cql, boolean cacheHit) {
+        PrepareEvent event = (PrepareEvent) handle;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.cql = cql;
+        event.cacheHit = cacheHit;
+        event.commit();
+    }
+
+    static Object beginConnect() {
+        if (!CONNECT.isEnabled()) return null;
+        ConnectEvent event = new ConnectEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endConnect(Object handle, String phase, String hosts) {
+        ConnectEvent event = (ConnectEvent) handle;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.phase = phase;
+        event.hosts = hosts;
+        event.commit();
+    }
+
+    @Name("com.dbschema.CassandraExecute")
+    @Label("Cassandra Execute")
+    @Category("Cassandra JDBC")
+    static class ExecuteEvent extends Event {
+        @Label("Fingerprint")
+        String fingerprint;
+        @Label("Consistency")
+        String consistency;
+        @Label("Coordinator")
+        String coordinator;
+    }
+
+    /**
+     * Duration is the time the reader of the result set waited for the page.
+     */
+    @Name("com.dbschema.CassandraPageFetch")
+    @Label("Cassandra Page Fetch")
+    @Category("Cassandra JDBC")
+    static class PageFetchEvent extends Event {
+        @Label("Rows")
+        int rows;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.dbschema.CassandraPrepare")
+    @Label("Cassandra Prepare")
+    @Category("Cassandra JDBC")
+    static class PrepareEvent extends Event {
+        @Label("CQL")
+        String cql;
+        @Label("Cache Hit")
+        boolean cacheHit;
+    }
+
+    @Name("com.dbschema.CassandraConnect")
+    @Label("Cassandra Connect")
+    @Category("Cassandra JDBC")
+    static class ConnectEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Hosts")
+        String hosts;
+    }
+}
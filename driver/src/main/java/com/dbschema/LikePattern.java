@@ -0,0 +1,59 @@
+package com.dbschema;
+
+import java.util.regex.Pattern;
+
+/**
+ * Name pattern of {@link java.sql.DatabaseMetaData} methods: {@code %} matches any substring,
+ * {@code _} any character and {@code \} escapes them.
+ */
+class LikePattern {
+    static final LikePattern ANY = new LikePattern(null, null);
+
+    private final String exact;
+    private final Pattern pattern;
+
+    private LikePattern(String exact, Pattern pattern) {
+        this.exact = exact;
+        this.pattern = pattern;
+    }
+
+    /**
+     * @param like pattern, null matches all names
+     */
+    static LikePattern compile(String like) {
+        if (like == null || like.equals("%")) return ANY;
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        boolean wildcards = false;
+        for (int i = 0; i < like.length(); i++) {
+            char c = like.charAt(i);
+            if (c == '\\' && i + 1 < like.length()) {
+                c = like.charAt(++i);
+                regex.append(Pattern.quote(String.valueOf(c)));
+                literal.append(c);
+            } else if (c == '%') {
+                regex.append(".*");
+                wildcards = true;
+            } else if (c == '_') {
+                regex.append('.');
+                wildcards = true;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                literal.append(c);
+            }
+        }
+        return wildcards ? new LikePattern(null, Pattern.compile(regex.toString(), Pattern.DOTALL)) : new LikePattern(literal.toString(), null);
+    }
+
+    /**
+     * @return name if the pattern matches exactly one name, null otherwise
+     */
+    String getExactName() {
+        return exact;
+    }
+
+    boolean matches(String name) {
+        if (exact != null) return exact.equals(name);
+        return pattern == null || pattern.matcher(name).matches();
+    }
+}
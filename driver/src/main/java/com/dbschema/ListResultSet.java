@@ -15,6 +15,7 @@ public class ListResultSet implements ResultSet {
   private String[] columnNames;
   private int currentRow = -1;
   private boolean isClosed = false;
+  private boolean wasNull = false;
 
   public ListResultSet() {
     this(new ArrayList<>(), new String[0]);
@@ -39,6 +40,10 @@ public class ListResultSet implements ResultSet {
     data.add(columnValues);
   }
 
+  List<Object[]> getRows() {
+    return data;
+  }
+
   public <T> T unwrap(Class<T> iface) {
     return null;
   }
@@ -81,7 +86,7 @@ public class ListResultSet implements ResultSet {
    * @see java.sql.ResultSet#wasNull()
    */
   public boolean wasNull() {
-    return false;
+    return wasNull;
   }
 
   public String getString(int columnIndex) throws SQLException {
@@ -93,6 +98,7 @@ public class ListResultSet implements ResultSet {
       throw new SQLException("Column index does not exist: " + columnIndex);
     }
     final Object val = data.get(currentRow)[adjustedColumnIndex];
+    wasNull = val == null;
     return val != null ? val.toString() : null;
   }
 
@@ -110,7 +116,8 @@ public class ListResultSet implements ResultSet {
    */
   public short getShort(int columnIndex) throws SQLException {
     checkClosed();
-    return Short.parseShort(getString(columnIndex));
+    String value = getString(columnIndex);
+    return value == null ? 0 : Short.parseShort(value);
   }
 
   /**
@@ -118,7 +125,8 @@ public class ListResultSet implements ResultSet {
    */
   public int getInt(int columnIndex) throws SQLException {
     checkClosed();
-    return Integer.parseInt(getString(columnIndex));
+    String value = getString(columnIndex);
+    return value == null ? 0 : Integer.parseInt(value);
   }
 
   /**
@@ -126,7 +134,8 @@ public class ListResultSet implements ResultSet {
    */
   public long getLong(int columnIndex) throws SQLException {
     checkClosed();
-    return Long.parseLong(getString(columnIndex));
+    String value = getString(columnIndex);
+    return value == null ? 0 : Long.parseLong(value);
   }
 
   /**
@@ -134,7 +143,8 @@ public class ListResultSet implements ResultSet {
    */
   public float getFloat(int columnIndex) throws SQLException {
     checkClosed();
-    return Float.parseFloat(getString(columnIndex));
+    String value = getString(columnIndex);
+    return value == null ? 0 : Float.parseFloat(value);
   }
 
   /**
@@ -142,7 +152,8 @@ public class ListResultSet implements ResultSet {
    */
   public double getDouble(int columnIndex) throws SQLException {
     checkClosed();
-    return Double.parseDouble(getString(columnIndex));
+    String value = getString(columnIndex);
+    return value == null ? 0 : Double.parseDouble(value);
   }
 
   public BigDecimal getBigDecimal(int columnIndex, int scale) {
@@ -187,6 +198,10 @@ public class ListResultSet implements ResultSet {
 
   public String getString(String columnLabel) throws SQLException {
     checkClosed();
+    return getString(findColumn(columnLabel));
+  }
+
+  public int findColumn(String columnLabel) throws SQLException {
     int index = -1;
     if (columnNames == null) {
       throw new SQLException("Use of columnLabel requires setColumnNames to be called first.");
@@ -200,13 +215,12 @@ public class ListResultSet implements ResultSet {
     if (index == -1) {
       throw new SQLException("Column " + columnLabel + " doesn't exist in this ResultSet");
     }
-    return getString(index + 1);
+    return index + 1;
   }
 
   public boolean getBoolean(String columnLabel) throws SQLException {
     checkClosed();
-
-    return false;
+    return getBoolean(findColumn(columnLabel));
   }
 
   public byte getByte(String columnLabel) {
@@ -214,28 +228,24 @@ public class ListResultSet implements ResultSet {
     return 0;
   }
 
-  public short getShort(String columnLabel) {
-
-    return 0;
+  public short getShort(String columnLabel) throws SQLException {
+    return getShort(findColumn(columnLabel));
   }
 
-  public int getInt(String columnLabel) {
-
-    return 0;
+  public int getInt(String columnLabel) throws SQLException {
+    return getInt(findColumn(columnLabel));
   }
 
-  public long getLong(String columnLabel) {
-
-    return 0;
+  public long getLong(String columnLabel) throws SQLException {
+    return getLong(findColumn(columnLabel));
   }
 
-  public float getFloat(String columnLabel) {
-
-    return 0;
+  public float getFloat(String columnLabel) throws SQLException {
+    return getFloat(findColumn(columnLabel));
   }
 
   public double getDouble(String columnLabel) throws SQLException {
-    return Double.parseDouble(getString(columnLabel));
+    return getDouble(findColumn(columnLabel));
   }
 
   public BigDecimal getBigDecimal(String columnLabel, int scale) {
@@ -311,17 +321,13 @@ public class ListResultSet implements ResultSet {
     if (adjustedColumnIndex >= data.get(currentRow).length) {
       throw new SQLException("Column index does not exist: " + columnIndex);
     }
-    return data.get(currentRow)[adjustedColumnIndex];
-  }
-
-  public Object getObject(String columnLabel) {
-
-    return null;
+    Object value = data.get(currentRow)[adjustedColumnIndex];
+    wasNull = value == null;
+    return value;
   }
 
-  public int findColumn(String columnLabel) {
-
-    return 0;
+  public Object getObject(String columnLabel) throws SQLException {
+    return getObject(findColumn(columnLabel));
   }
 
   public Reader getCharacterStream(int columnIndex) {
@@ -0,0 +1,200 @@
+package com.dbschema;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.exceptions.DriverException;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * Rows of {@link CassandraMetaData} results read from {@code system_schema} on demand,
+ * for connections whose driver metadata is disabled or not loaded yet. Schema tables are answered by
+ * {@link SchemaTables} when they can be, from a {@link SchemaCache} while the driver reads the schema,
+ * and queried on the cluster otherwise. Only Cassandra 3.0+ schema tables are supported.
+ */
+class MetadataQueries {
+    /**
+     * Indexes of the values of {@code system_schema.columns} rows.
+     */
+    private static final int KEYSPACE_NAME = 0;
+    private static final int TABLE_NAME = 1;
+    private static final int COLUMN_NAME = 2;
+    private static final int KIND = 3;
+    private static final int POSITION = 4;
+    private static final int TYPE = 5;
+
+    private final Session session;
+    private final SchemaTables schemaTables;
+
+    MetadataQueries(Session session, SchemaTables schemaTables) {
+        this.session = session;
+        this.schemaTables = schemaTables;
+    }
+
+    /**
+     * @return keyspace names sorted by name
+     */
+    List<String> keyspaces(String catalogName) throws SQLException {
+        List<String> keyspaces = new ArrayList<>();
+        for (Object[] row : query("select keyspace_name from system_schema.keyspaces", catalogName)) {
+            keyspaces.add((String) row[0]);
+        }
+        Collections.sort(keyspaces);
+        return keyspaces;
+    }
+
+    /**
+     * @return rows of {@link DatabaseMetaData#getTables} sorted by keyspace and name
+     */
+    List<Object[]> tables(String catalogName, LikePattern pattern, String type, boolean views) throws SQLException {
+        String cql = views ? "select keyspace_name, view_name, comment from system_schema.views" :
+                "select keyspace_name, table_name, comment from system_schema.tables";
+        SortedMap<String, Object[]> rows = new TreeMap<>();
+        for (Object[] row : query(cql, catalogName)) {
+            if (!pattern.matches((String) row[1])) continue;
+            rows.put(row[0] + "\n" + row[1], new Object[]{row[0], null, row[1], type, row[2], null, null, null, null, null});
+        }
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * @return rows of {@link DatabaseMetaData#getColumns} of tables and views sorted by keyspace and table name,
+     * with columns in the order of the driver metadata: partition key, clustering columns, then other columns by name
+     */
+    List<Object[]> columns(String catalogName, LikePattern tablePattern, LikePattern columnPattern) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        for (List<Object[]> table : columnsByTable(catalogName, tablePattern).values()) {
+            int position = 0;
+            for (Object[] column : table) {
+                position++;
+                String name = (String) column[COLUMN_NAME];
+                if (!columnPattern.matches(name)) continue;
+                String type = (String) column[TYPE];
+                boolean key = isKey(column);
+                rows.add(new Object[]{column[KEYSPACE_NAME], null, column[TABLE_NAME], name, javaType(type),
+                        type, null, null, null, null,
+                        key ? DatabaseMetaData.columnNoNulls : DatabaseMetaData.columnNullable, null, null, null, null, null,
+                        position, key ? "NO" : "YES", null, null, null, null, "NO", "NO"});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return rows of {@link DatabaseMetaData#getPrimaryKeys}
+     */
+    List<Object[]> primaryKeys(String catalogName, LikePattern tablePattern) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        for (List<Object[]> table : columnsByTable(catalogName, tablePattern).values()) {
+            short sequence = 0;
+            for (Object[] column : table) {
+                if (!isKey(column)) break;
+                String tableName = (String) column[TABLE_NAME];
+                rows.add(new Object[]{column[KEYSPACE_NAME], null, tableName, column[COLUMN_NAME],
+                        ++sequence, tableName + "_pkey"});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return rows of {@link DatabaseMetaData#getIndexInfo}
+     */
+    List<Object[]> indexes(String catalogName, LikePattern tablePattern) throws SQLException {
+        SortedMap<String, Object[]> rows = new TreeMap<>();
+        for (Object[] row : query("select keyspace_name, table_name, index_name, options from system_schema.indexes", catalogName)) {
+            if (!tablePattern.matches((String) row[1])) continue;
+            Object target = row[3] == null ? null : ((Map<?, ?>) row[3]).get("target");
+            rows.put(row[0] + "\n" + row[1] + '\n' + row[2],
+                    new Object[]{row[0], null, row[1], true, null, row[2],
+                            DatabaseMetaData.tableIndexOther, (short) 1, target, null, null, null, null});
+        }
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * @return rows of {@link DatabaseMetaData#getUDTs}
+     */
+    List<Object[]> userTypes(String catalogName, LikePattern typePattern) throws SQLException {
+        SortedMap<String, Object[]> rows = new TreeMap<>();
+        for (Object[] row : query("select keyspace_name, type_name from system_schema.types", catalogName)) {
+            if (!typePattern.matches((String) row[1])) continue;
+            rows.put(row[0] + "\n" + row[1], new Object[]{row[0], null, row[1],
+                    com.datastax.driver.core.UDTValue.class.getName(), Types.STRUCT, null, null});
+        }
+        return new ArrayList<>(rows.values());
+    }
+
+    private SortedMap<String, List<Object[]>> columnsByTable(String catalogName, LikePattern tablePattern) throws SQLException {
+        SortedMap<String, List<Object[]>> tables = new TreeMap<>();
+        for (Object[] row : query("select keyspace_name, table_name, column_name, kind, position, type from system_schema.columns", catalogName)) {
+            if (!tablePattern.matches((String) row[TABLE_NAME])) continue;
+            String key = row[KEYSPACE_NAME] + "\n" + row[TABLE_NAME];
+            List<Object[]> columns = tables.get(key);
+            if (columns == null) {
+                columns = new ArrayList<>();
+                tables.put(key, columns);
+            }
+            columns.add(row);
+        }
+        for (List<Object[]> columns : tables.values()) {
+            Collections.sort(columns, new Comparator<Object[]>() {
+                @Override
+                public int compare(Object[] a, Object[] b) {
+                    int result = Integer.compare(rank(a), rank(b));
+                    if (result != 0) return result;
+                    if (isKey(a)) return Integer.compare((Integer) a[POSITION], (Integer) b[POSITION]);
+                    return ((String) a[COLUMN_NAME]).compareTo((String) b[COLUMN_NAME]);
+                }
+            });
+        }
+        return tables;
+    }
+
+    private static int rank(Object[] column) {
+        String kind = (String) column[KIND];
+        return kind.equals("partition_key") ? 0 : kind.equals("clustering") ? 1 : 2;
+    }
+
+    private static boolean isKey(Object[] column) {
+        return rank(column) < 2;
+    }
+
+    /**
+     * @return JDBC type of a CQL type like {@code frozen<list<text>>}, user types are objects
+     */
+    private static int javaType(String cqlType) {
+        String type = cqlType;
+        while (type.startsWith("frozen<")) type = type.substring("frozen<".length(), type.length() - 1);
+        int bracket = type.indexOf('<');
+        if (bracket >= 0) type = type.substring(0, bracket);
+        int javaType = new CassandraResultSetMetaData.ColumnMetaData("", "", "", type).getJavaType();
+        return javaType == Types.OTHER ? Types.JAVA_OBJECT : javaType;
+    }
+
+    /**
+     * @return rows with the selected values in the order of the selection
+     */
+    private List<Object[]> query(String cql, String catalogName) throws SQLException {
+        if (catalogName != null) cql += " where keyspace_name = ?";
+        Object[] params = catalogName == null ? null : new Object[]{catalogName};
+        ListResultSet answered = schemaTables.query(cql, params, true);
+        if (answered != null) return answered.getRows();
+        try {
+            SimpleStatement statement = params == null ? new SimpleStatement(cql) : new SimpleStatement(cql, params);
+            List<Object[]> rows = new ArrayList<>();
+            for (Row row : session.execute(statement)) {
+                Object[] values = new Object[row.getColumnDefinitions().size()];
+                for (int i = 0; i < values.length; i++) values[i] = row.getObject(i);
+                rows.add(values);
+            }
+            return rows;
+        } catch (DriverException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.dbschema;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Rows of {@link CassandraPreparedStatement#executeMulti(java.util.List)} in the order of the keys.
+ * Keys without rows are skipped, {@link #getKeyIndex()} tells which key the current row belongs to.
+ */
+public class MultiGetResultSet extends CassandraResultSet {
+    private final ConcurrentRows rows;
+    private int keyIndex = -1;
+
+    MultiGetResultSet(Statement statement, ConcurrentRows rows, boolean returnNullStrings) {
+        this(statement, rows.first(), rows, returnNullStrings);
+    }
+
+    private MultiGetResultSet(Statement statement, com.datastax.driver.core.ResultSet first, ConcurrentRows rows, boolean returnNullStrings) {
+        super(statement, first, rows, returnNullStrings);
+        this.rows = rows;
+    }
+
+    @Override
+    public boolean next() throws SQLException {
+        boolean hasRow = super.next();
+        keyIndex = hasRow ? rows.getCurrentIndex() : -1;
+        return hasRow;
+    }
+
+    /**
+     * @return zero based index of the key of the current row in the list passed to executeMulti
+     */
+    public int getKeyIndex() throws SQLException {
+        checkClosed();
+        if (keyIndex < 0) throw new SQLException("Exhausted ResultSet.");
+        return keyIndex;
+    }
+}
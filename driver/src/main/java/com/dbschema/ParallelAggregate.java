@@ -0,0 +1,313 @@
+package com.dbschema;
+
+import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.QueryValidationException;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+
+/**
+ * Client side evaluation of simple aggregate queries like {@code SELECT count(*) FROM big_table}.
+ * <p>
+ * Only count, sum, min and max over a whole table (no WHERE clause) are supported.
+ * The aggregate is computed for every token sub-range of the ring concurrently and partial results are combined,
+ * so no single coordinator has to read the whole table within one request timeout.
+ */
+class ParallelAggregate {
+    private static final Logger logger = Logger.getLogger("ParallelAggregateLogger");
+    private static final String NAME = "(?:\"(?:[^\"]|\"\")+\"|[A-Za-z_][A-Za-z0-9_]*)";
+    private static final Pattern QUERY = Pattern.compile("\\s*SELECT\\s+(.+?)\\s+FROM\\s+(" + NAME + ")(?:\\s*\\.\\s*(" + NAME + "))?\\s*;?\\s*", CASE_INSENSITIVE);
+    private static final Pattern FUNCTION = Pattern.compile("\\G\\s*(count|sum|min|max)\\s*\\(\\s*(\\*|1|" + NAME + ")\\s*\\)(?:\\s+AS\\s+(" + NAME + "))?\\s*(?:,(?=\\s*\\S)|$)", CASE_INSENSITIVE);
+    private static final Set<DataType.Name> NUMERIC_TYPES = EnumSet.of(DataType.Name.TINYINT, DataType.Name.SMALLINT,
+            DataType.Name.INT, DataType.Name.BIGINT, DataType.Name.COUNTER, DataType.Name.VARINT,
+            DataType.Name.FLOAT, DataType.Name.DOUBLE, DataType.Name.DECIMAL);
+    private static final Set<DataType.Name> ORDERED_TYPES = EnumSet.of(DataType.Name.TEXT, DataType.Name.VARCHAR,
+            DataType.Name.ASCII, DataType.Name.TIMESTAMP);
+    private static final int RETRIES = 2;
+
+    private final String query;
+    private final String keyspace;
+    private final String table;
+    private final List<String> functions;
+    private final List<String> arguments;
+    private final List<String> labels;
+    private AggregateReport report;
+
+    private ParallelAggregate(String query, String keyspace, String table, List<String> functions, List<String> arguments, List<String> labels) {
+        this.query = query;
+        this.keyspace = keyspace;
+        this.table = table;
+        this.functions = functions;
+        this.arguments = arguments;
+        this.labels = labels;
+    }
+
+    /**
+     * @return aggregate or null if the query is not a simple whole table aggregate
+     */
+    static ParallelAggregate parse(String sql) {
+        Matcher matcher = QUERY.matcher(sql);
+        if (!matcher.matches()) return null;
+        String selection = matcher.group(1);
+        List<String> functions = new ArrayList<>();
+        List<String> arguments = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        Matcher function = FUNCTION.matcher(selection);
+        int end = 0;
+        while (end < selection.length() && function.find()) {
+            String name = function.group(1).toLowerCase(Locale.ENGLISH);
+            String argument = function.group(2);
+            functions.add(name);
+            arguments.add(argument);
+            if (function.group(3) != null) labels.add(unquote(function.group(3)));
+            else if (name.equals("count") && (argument.equals("*") || argument.equals("1"))) labels.add("count");
+            else labels.add("system." + name + "(" + unquote(argument) + ")");
+            end = function.end();
+        }
+        if (functions.isEmpty() || end != selection.length()) return null;
+        String keyspace = matcher.group(3) != null ? matcher.group(2) : null;
+        String table = matcher.group(3) != null ? matcher.group(3) : matcher.group(2);
+        return new ParallelAggregate(sql, keyspace, table, functions, arguments, labels);
+    }
+
+    /**
+     * @return one row result or null if the aggregate can not be split by token ranges,
+     * in which case the query should be executed as is
+     */
+    ListResultSet execute(Session session, ConsistencyLevel consistencyLevel, CassandraBaseStatement.Settings settings,
+                          int concurrency, int splits, AggregateReport.Listener listener) throws SQLException {
+        Metadata metadata = session.getCluster().getMetadata();
+        String keyspaceName = keyspace != null ? keyspace : session.getLoggedKeyspace();
+        KeyspaceMetadata keyspaceMetadata = keyspaceName == null ? null : metadata.getKeyspace(keyspaceName);
+        TableMetadata tableMetadata = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(table);
+        if (tableMetadata == null || !isSupported(tableMetadata)) return null;
+        List<TokenRange> ranges = TokenRanges.split(metadata, splits);
+        if (ranges.isEmpty()) return null;
+
+        String tokenExpression = TokenRanges.tokenExpression(tableMetadata);
+        List<String> selection = new ArrayList<>();
+        for (int i = 0; i < functions.size(); i++) {
+            selection.add(functions.get(i) + "(" + arguments.get(i) + ")");
+        }
+        String rangeQuery = "SELECT " + String.join(", ", selection) +
+                " FROM " + Metadata.quoteIfNecessary(keyspaceMetadata.getName()) + "." + Metadata.quoteIfNecessary(tableMetadata.getName()) +
+                " WHERE ";
+
+        final AggregateReport report = new AggregateReport(query, ranges.size());
+        this.report = report;
+        final Partials partials = new Partials();
+        final Map<TokenRange, Throwable> failures = new ConcurrentHashMap<>();
+        final Semaphore permits = new Semaphore(concurrency);
+        try {
+            for (final TokenRange range : ranges) {
+                permits.acquire();
+                ListenableFuture<com.datastax.driver.core.ResultSet> future;
+                try {
+                    future = settings.executeAsync(bind(rangeQuery, tokenExpression, range, consistencyLevel, settings));
+                } catch (RuntimeException e) {
+                    failures.put(range, e);
+                    permits.release();
+                    continue;
+                }
+                Futures.addCallback(future, new FutureCallback<com.datastax.driver.core.ResultSet>() {
+                    @Override
+                    public void onSuccess(com.datastax.driver.core.ResultSet result) {
+                        try {
+                            partials.add(result.one());
+                            report.rangeCompleted();
+                            notifyListener(listener, report);
+                        } catch (Throwable t) {
+                            failures.put(range, t);
+                        } finally {
+                            permits.release();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        failures.put(range, t);
+                        permits.release();
+                    }
+                }, MoreExecutors.directExecutor());
+            }
+            permits.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.finish();
+            throw new SQLException("Parallel aggregate was interrupted", e);
+        }
+
+        for (Map.Entry<TokenRange, Throwable> failure : failures.entrySet()) {
+            TokenRange range = failure.getKey();
+            Throwable error = failure.getValue();
+            for (int attempt = 0; attempt < RETRIES && error != null && !(error instanceof QueryValidationException); attempt++) {
+                report.rangeRetried();
+                try {
+                    partials.add(settings.execute(bind(rangeQuery, tokenExpression, range, consistencyLevel, settings)).one());
+                    report.rangeCompleted();
+                    notifyListener(listener, report);
+                    error = null;
+                } catch (Throwable t) {
+                    error = t;
+                }
+            }
+            if (error != null) report.rangeFailed(range.getStart() + ".." + range.getEnd(), String.valueOf(error.getMessage()));
+        }
+        report.finish();
+        if (!report.getFailedRanges().isEmpty()) {
+            throw new SQLException("Parallel aggregate failed for " + report.getFailedRanges().size() + " of " + ranges.size() +
+                    " token ranges, first error: " + report.getFailedRanges().values().iterator().next());
+        }
+        List<Object[]> data = new ArrayList<>();
+        data.add(partials.result());
+        return new ListResultSet(data, labels.toArray(new String[0]));
+    }
+
+    /**
+     * @return report of the last execution, null if the query was not split
+     */
+    AggregateReport getReport() {
+        return report;
+    }
+
+    /**
+     * @return keyspace as written in the query, null if the logged keyspace is used
+     */
+    String getKeyspace() {
+        return keyspace;
+    }
+
+    String getTable() {
+        return table;
+    }
+
+    /**
+     * @return column labels of the result
+     */
+    List<String> getLabels() {
+        return labels;
+    }
+
+    private boolean isSupported(TableMetadata tableMetadata) {
+        for (int i = 0; i < functions.size(); i++) {
+            String function = functions.get(i);
+            String argument = arguments.get(i);
+            if (function.equals("count")) continue;
+            ColumnMetadata column = tableMetadata.getColumn(argument);
+            if (column == null) return false;
+            DataType.Name type = column.getType().getName();
+            if (!NUMERIC_TYPES.contains(type) && (function.equals("sum") || !ORDERED_TYPES.contains(type))) return false;
+        }
+        return true;
+    }
+
+    private static void notifyListener(AggregateReport.Listener listener, AggregateReport report) {
+        if (listener == null) return;
+        try {
+            listener.onProgress(report);
+        } catch (RuntimeException e) {
+            logger.warning("Aggregate listener failed: " + e.getMessage());
+        }
+    }
+
+    private static Statement bind(String rangeQuery, String tokenExpression, TokenRange range, ConsistencyLevel consistencyLevel,
+                                  CassandraBaseStatement.Settings settings) {
+        Token start = range.getStart();
+        Token end = range.getEnd();
+        Statement statement = TokenRanges.isBounded(start, end) ?
+                new SimpleStatement(rangeQuery + TokenRanges.condition(tokenExpression, false, true), start.getValue(), end.getValue()) :
+                new SimpleStatement(rangeQuery + TokenRanges.condition(tokenExpression, false, false), start.getValue());
+        statement.setConsistencyLevel(consistencyLevel);
+        statement.setIdempotent(true);
+        settings.applyToSubQuery(statement);
+        return statement;
+    }
+
+    private static String unquote(String name) {
+        return name.startsWith("\"") ? name.substring(1, name.length() - 1).replace("\"\"", "\"") : name.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * Combined values of all functions, updated from driver I/O threads.
+     */
+    private class Partials {
+        private final Object[] values = new Object[functions.size()];
+
+        synchronized void add(Row row) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = combine(functions.get(i), values[i], row.getObject(i));
+            }
+        }
+
+        synchronized Object[] result() {
+            Object[] result = values.clone();
+            for (int i = 0; i < result.length; i++) {
+                // count and sum of an empty table are 0 like in Cassandra, min and max stay null
+                if (result[i] == null && (functions.get(i).equals("count") || functions.get(i).equals("sum"))) result[i] = 0L;
+            }
+            return result;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object combine(String function, Object current, Object value) throws SQLException {
+        if (value == null) return current;
+        if (current == null) return value;
+        switch (function) {
+            case "count":
+            case "sum":
+                return narrow(add((Number) current, (Number) value), current.getClass());
+            default:
+                if (!(current instanceof Comparable)) throw new SQLException("Cannot compare values of type " + current.getClass().getName());
+                int comparison = ((Comparable<Object>) current).compareTo(value);
+                return function.equals("min") == comparison <= 0 ? current : value;
+        }
+    }
+
+    private static Number add(Number a, Number b) {
+        if (a instanceof BigDecimal || b instanceof BigDecimal) return toBigDecimal(a).add(toBigDecimal(b));
+        if (a instanceof BigInteger || b instanceof BigInteger) return toBigInteger(a).add(toBigInteger(b));
+        if (a instanceof Double || a instanceof Float || b instanceof Double || b instanceof Float) return a.doubleValue() + b.doubleValue();
+        return a.longValue() + b.longValue();
+    }
+
+    /**
+     * Keeps the type of partial results, overflow wraps around like it does in Cassandra.
+     */
+    private static Number narrow(Number value, Class<?> type) {
+        if (type == Integer.class) return value.intValue();
+        if (type == Short.class) return value.shortValue();
+        if (type == Byte.class) return value.byteValue();
+        if (type == Float.class) return value.floatValue();
+        return value;
+    }
+
+    private static BigDecimal toBigDecimal(Number value) {
+        if (value instanceof BigDecimal) return (BigDecimal) value;
+        if (value instanceof BigInteger) return new BigDecimal((BigInteger) value);
+        if (value instanceof Double || value instanceof Float) return BigDecimal.valueOf(value.doubleValue());
+        return BigDecimal.valueOf(value.longValue());
+    }
+
+    private static BigInteger toBigInteger(Number value) {
+        return value instanceof BigInteger ? (BigInteger) value : BigInteger.valueOf(value.longValue());
+    }
+}
@@ -0,0 +1,227 @@
+package com.dbschema;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Session;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * List of the distinct statements prepared by connections, saved in a local file so the next process prepares them
+ * in the background right after connect instead of on first use.
+ * <p>
+ * The list is shared by all connections in the process that use the same file, and so are the statements it prepared
+ * for a cluster. It keeps at most {@code maxSize} statements and evicts the least recently prepared ones.
+ * The file is saved a few seconds after the list changes and when a connection is closed.
+ */
+class PreparedWarmup {
+    private static final Logger logger = Logger.getLogger("PreparedWarmupLogger");
+    private static final Map<File, PreparedWarmup> WARMUPS = new HashMap<>();
+    private static final Timer SAVER = new Timer("cassandra-prepared-warmup", true);
+    private static final long SAVE_DELAY_MILLIS = 10000;
+    private static final int CONCURRENCY = 32;
+
+    private final File file;
+    /**
+     * Keys are the keyspace the statement was prepared in and the CQL, separated by a new line.
+     */
+    private final Map<String, Boolean> statements;
+    /**
+     * Statements prepared by the warmup, by cluster.
+     */
+    private final Map<Cluster, Warm> clusters = new HashMap<>();
+    private boolean dirty;
+    private boolean saveScheduled;
+
+    private PreparedWarmup(File file, final int maxSize) {
+        this.file = file;
+        this.statements = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        };
+        load();
+    }
+
+    static PreparedWarmup forFile(File file, int maxSize) {
+        File key = file.getAbsoluteFile();
+        synchronized (WARMUPS) {
+            PreparedWarmup warmup = WARMUPS.get(key);
+            if (warmup == null) {
+                warmup = new PreparedWarmup(key, maxSize);
+                WARMUPS.put(key, warmup);
+            }
+            return warmup;
+        }
+    }
+
+    /**
+     * Prepares the statements of the logged keyspace of the session in a background thread,
+     * at most {@link #CONCURRENCY} at a time. Statements are prepared once per cluster and keyspace,
+     * connections that share a cluster share the futures.
+     *
+     * @return futures of the statements prepared for the cluster, keyed like {@link #key},
+     * must be released with {@link #release} when the connection is closed
+     */
+    Map<String, ListenableFuture<PreparedStatement>> warmUp(final Session session) {
+        final String keyspace = session.getLoggedKeyspace();
+        final Map<String, ListenableFuture<PreparedStatement>> prepared;
+        final List<String> queries = new ArrayList<>();
+        synchronized (this) {
+            Cluster cluster = session.getCluster();
+            Warm warm = clusters.get(cluster);
+            if (warm == null) {
+                warm = new Warm();
+                clusters.put(cluster, warm);
+            }
+            warm.users++;
+            prepared = warm.statements;
+            if (!warm.keyspaces.add(key(keyspace, ""))) return prepared;
+            for (String key : statements.keySet()) {
+                if (key.startsWith(key(keyspace, ""))) queries.add(key.substring(key.indexOf('\n') + 1));
+            }
+        }
+        if (queries.isEmpty()) return prepared;
+        // most recently used statements first
+        Collections.reverse(queries);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final Semaphore permits = new Semaphore(CONCURRENCY);
+                try {
+                    for (String query : queries) {
+                        permits.acquire();
+                        ListenableFuture<PreparedStatement> future;
+                        try {
+                            future = session.prepareAsync(query);
+                        } catch (RuntimeException e) {
+                            // the session was closed, statements that are not warm are prepared on first use
+                            permits.release();
+                            return;
+                        }
+                        prepared.put(key(keyspace, query), future);
+                        Futures.addCallback(future, new FutureCallback<PreparedStatement>() {
+                            @Override
+                            public void onSuccess(PreparedStatement statement) {
+                                permits.release();
+                            }
+
+                            @Override
+                            public void onFailure(Throwable t) {
+                                permits.release();
+                            }
+                        }, MoreExecutors.directExecutor());
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, "cassandra-prepared-warmup");
+        thread.setDaemon(true);
+        thread.start();
+        return prepared;
+    }
+
+    /**
+     * Drops the statements prepared for the cluster when its last connection is closed.
+     */
+    synchronized void release(Cluster cluster) {
+        Warm warm = clusters.get(cluster);
+        if (warm == null) return;
+        if (--warm.users == 0) clusters.remove(cluster);
+    }
+
+    static String key(String keyspace, String cql) {
+        return (keyspace == null ? "" : keyspace) + '\n' + cql;
+    }
+
+    synchronized void record(String keyspace, String cql) {
+        // the order of use is saved too, it decides what is evicted
+        statements.put(key(keyspace, cql), Boolean.TRUE);
+        dirty = true;
+        if (saveScheduled) return;
+        saveScheduled = true;
+        SAVER.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                save();
+            }
+        }, SAVE_DELAY_MILLIS);
+    }
+
+    void save() {
+        List<String> keys;
+        synchronized (this) {
+            saveScheduled = false;
+            if (!dirty) return;
+            dirty = false;
+            keys = new ArrayList<>(statements.keySet());
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+                // least recently used first, so loading restores the order of use
+                for (String key : keys) {
+                    writer.write(escape(key));
+                    writer.write('\n');
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Cannot write prepared statements to " + file + ": " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+    }
+
+    private void load() {
+        if (!file.isFile()) return;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String key = unescape(line);
+                if (key.indexOf('\n') >= 0) statements.put(key, Boolean.TRUE);
+            }
+        } catch (IOException e) {
+            logger.warning("Cannot read prepared statements from " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                c = value.charAt(++i);
+                result.append(c == 'n' ? '\n' : c == 'r' ? '\r' : c);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static class Warm {
+        final Map<String, ListenableFuture<PreparedStatement>> statements = new ConcurrentHashMap<>();
+        /**
+         * Keyspaces that were warmed up, keyed like {@link #key} with an empty statement.
+         */
+        final Set<String> keyspaces = new HashSet<>();
+        int users;
+    }
+}
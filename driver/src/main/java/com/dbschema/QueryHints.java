@@ -0,0 +1,133 @@
+package com.dbschema;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings of a statement given in a comment at the start of its CQL, for tools that can only send CQL text, e.g.
+ * {@code /*+ consistency=LOCAL_ONE fetch=2000 timeout=500ms idempotent *}{@code /}.
+ * The comment is sent to Cassandra together with the statement, Cassandra ignores it.
+ * <p>
+ * Hints are separated by whitespace: {@code profile=<name>}, {@code consistency=<level>},
+ * {@code serial_consistency=<level>}, {@code fetch=<rows>}, {@code timeout=<n>ms} or {@code <n>s},
+ * {@code idempotent}, {@code tracing} and {@code retry=<policy>}. Settings of the hints take precedence over
+ * the settings of the named profile. Unknown hints are ignored like in other databases.
+ * <p>
+ * Parsed hints are cached by CQL text, so statements executed many times are parsed once.
+ */
+class QueryHints {
+    static final QueryHints NONE = new QueryHints(null, null);
+    private static final String START = "/*+";
+    private static final String END = "*/";
+    private static final int CACHE_SIZE = 1000;
+    private static final Map<String, QueryHints> CACHE = Collections.synchronizedMap(new LinkedHashMap<String, QueryHints>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, QueryHints> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    });
+    private static final Map<String, String> SETTINGS = new HashMap<>();
+
+    static {
+        SETTINGS.put("consistency", ExecutionProfile.CONSISTENCY);
+        SETTINGS.put("serial_consistency", ExecutionProfile.SERIAL_CONSISTENCY);
+        SETTINGS.put("fetch", ExecutionProfile.FETCH_SIZE);
+        SETTINGS.put("timeout", ExecutionProfile.TIMEOUT);
+        SETTINGS.put("idempotent", ExecutionProfile.IDEMPOTENT);
+        SETTINGS.put("tracing", ExecutionProfile.TRACING);
+        SETTINGS.put("retry", ExecutionProfile.RETRY);
+    }
+
+    private final String profile;
+    private final ExecutionProfile settings;
+
+    private QueryHints(String profile, ExecutionProfile settings) {
+        this.profile = profile;
+        this.settings = settings;
+    }
+
+    /**
+     * @throws SQLException if a hint has an invalid value
+     */
+    static QueryHints of(String cql) throws SQLException {
+        if (!hasHints(cql)) return NONE;
+        QueryHints hints = CACHE.get(cql);
+        if (hints == null) {
+            try {
+                hints = parse(cql);
+            } catch (IllegalArgumentException e) {
+                throw new SQLException(e.getMessage(), e);
+            }
+            CACHE.put(cql, hints);
+        }
+        return hints;
+    }
+
+    /**
+     * @return CQL without the hint comment at its start, for code that parses the statement itself
+     */
+    static String strip(String cql) {
+        if (!hasHints(cql)) return cql;
+        int end = cql.indexOf(END, cql.indexOf(START) + START.length());
+        return end < 0 ? cql : cql.substring(end + END.length()).trim();
+    }
+
+    private static boolean hasHints(String cql) {
+        int i = 0;
+        while (i < cql.length() && Character.isWhitespace(cql.charAt(i))) i++;
+        return cql.startsWith(START, i);
+    }
+
+    private static QueryHints parse(String cql) {
+        String trimmed = cql.trim();
+        int end = trimmed.indexOf(END, START.length());
+        if (end < 0) return NONE;
+        String profile = null;
+        Map<String, String> settings = new HashMap<>();
+        for (String hint : trimmed.substring(START.length(), end).trim().split("\\s+")) {
+            int idx = hint.indexOf('=');
+            String name = (idx < 0 ? hint : hint.substring(0, idx)).toLowerCase(Locale.ENGLISH);
+            // hints without a value are flags
+            String value = idx < 0 ? "true" : hint.substring(idx + 1);
+            if (name.equals("profile")) {
+                profile = value.toLowerCase(Locale.ENGLISH);
+                continue;
+            }
+            String setting = SETTINGS.get(name);
+            if (setting == null) continue;
+            settings.put(setting, setting.equals(ExecutionProfile.TIMEOUT) ? toMillis(value) : value);
+        }
+        if (profile == null && settings.isEmpty()) return NONE;
+        return new QueryHints(profile, settings.isEmpty() ? null : new ExecutionProfile(null, "Hint ", settings));
+    }
+
+    private static String toMillis(String duration) {
+        String lower = duration.trim().toLowerCase(Locale.ENGLISH);
+        try {
+            if (lower.endsWith("ms")) return String.valueOf(Integer.parseInt(lower.substring(0, lower.length() - 2)));
+            if (lower.endsWith("s")) return String.valueOf(Math.multiplyExact(Integer.parseInt(lower.substring(0, lower.length() - 1)), 1000));
+            return String.valueOf(Integer.parseInt(lower));
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Hint timeout must be a duration like 500ms or 2s, got '" + duration + "'");
+        }
+    }
+
+    /**
+     * @return profile of the connection named by the hints, null if there is no profile hint
+     * @throws SQLException if the profile is not defined
+     */
+    ExecutionProfile getProfile(CassandraConnection connection) throws SQLException {
+        return profile == null ? null : connection.getDefinedProfile(profile);
+    }
+
+    /**
+     * @return settings given by the hints themselves, null if there are none
+     */
+    ExecutionProfile getSettings() {
+        return settings;
+    }
+}
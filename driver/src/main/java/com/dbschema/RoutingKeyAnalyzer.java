@@ -0,0 +1,196 @@
+package com.dbschema;
+
+import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.CodecNotFoundException;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
+import com.dbschema.CqlTokenizer.Token;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Computes routing keys of unprepared statements, so token aware load balancing can send them
+ * directly to a replica instead of a random coordinator.
+ * <p>
+ * Only simple statements that restrict every partition key column by a literal are recognized:
+ * {@code SELECT ... FROM t WHERE pk = 1}, {@code INSERT INTO t (pk, ...) VALUES (1, ...)},
+ * {@code UPDATE t SET ... WHERE pk = 1} and {@code DELETE FROM t WHERE pk = 1}.
+ * The analysis of every CQL string is cached, including the negative one, until the schema changes.
+ */
+class RoutingKeyAnalyzer {
+    private static final int CACHE_SIZE = 1024;
+    private static final Route NO_ROUTE = new Route(null, null);
+    private static final Set<String> WHERE_END = new HashSet<>(Arrays.asList("limit", "order", "group", "per", "allow", "if"));
+
+    private final Session session;
+    private final SchemaSnapshot schema;
+    private final Map<String, Route> routes = Collections.synchronizedMap(
+            new LinkedHashMap<String, Route>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Route> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+    private volatile int schemaVersion;
+
+    RoutingKeyAnalyzer(Session session, SchemaSnapshot schema) {
+        this.session = session;
+        this.schema = schema;
+    }
+
+    /**
+     * Sets keyspace and routing key of the statement if they can be computed from its CQL.
+     */
+    void route(SimpleStatement statement) {
+        String cql = statement.getQueryString();
+        // unqualified tables depend on the keyspace selected by USE
+        String cacheKey = session.getLoggedKeyspace() + '\n' + cql;
+        int version = schema.getVersion();
+        if (version != schemaVersion) {
+            // created tables become routable, altered or recreated ones may have another partition key
+            routes.clear();
+            schemaVersion = version;
+        }
+        Route route = routes.get(cacheKey);
+        if (route == null) {
+            route = analyze(cql);
+            // tables are unknown until the driver has read the schema
+            if (route != NO_ROUTE || schema.isLoaded()) routes.put(cacheKey, route);
+        }
+        if (route == NO_ROUTE) return;
+        ByteBuffer[] components = new ByteBuffer[route.components.length];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = route.components[i].duplicate();
+        }
+        statement.setKeyspace(route.keyspace);
+        statement.setRoutingKey(components);
+    }
+
+    private Route analyze(String cql) {
+        List<Token> tokens = CqlTokenizer.significant(CqlTokenizer.tokenize(cql));
+        for (Token token : tokens) {
+            // bind markers of unprepared statements have no values to route by
+            if (token.type == CqlTokenizer.Type.BIND_MARKER) return NO_ROUTE;
+        }
+        if (tokens.isEmpty()) return NO_ROUTE;
+        Token first = tokens.get(0);
+        int i;
+        if (first.is("SELECT") || first.is("DELETE")) i = find(tokens, 1, "FROM");
+        else if (first.is("INSERT")) i = find(tokens, 1, "INTO");
+        else if (first.is("UPDATE")) i = 0;
+        else return NO_ROUTE;
+        if (i < 0 || i + 1 >= tokens.size()) return NO_ROUTE;
+
+        Token keyspace = null;
+        Token table = tokens.get(++i);
+        if (i + 2 < tokens.size() && tokens.get(i + 1).is(".")) {
+            keyspace = table;
+            table = tokens.get(i + 2);
+            i += 2;
+        }
+        TableMetadata tableMetadata = InQueryFanOut.findTable(schema, session, keyspace, table);
+        if (tableMetadata == null) return NO_ROUTE;
+
+        Map<String, Token> values = first.is("INSERT") ? insertValues(tokens, i + 1) : whereValues(tokens, i + 1);
+        if (values == null) return NO_ROUTE;
+        List<ColumnMetadata> partitionKey = tableMetadata.getPartitionKey();
+        ByteBuffer[] components = new ByteBuffer[partitionKey.size()];
+        ProtocolVersion protocolVersion = session.getCluster().getConfiguration().getProtocolOptions().getProtocolVersion();
+        try {
+            for (int k = 0; k < components.length; k++) {
+                ColumnMetadata column = partitionKey.get(k);
+                Token value = values.get(column.getName());
+                if (value == null) return NO_ROUTE;
+                TypeCodec<Object> codec = CodecRegistry.DEFAULT_INSTANCE.codecFor(column.getType());
+                components[k] = codec.serialize(codec.parse(value.text), protocolVersion);
+                if (components[k] == null) return NO_ROUTE;
+            }
+        } catch (InvalidTypeException | CodecNotFoundException e) {
+            return NO_ROUTE;
+        }
+        return new Route(Metadata.quoteIfNecessary(tableMetadata.getKeyspace().getName()), components);
+    }
+
+    /**
+     * @return literal values of the column list of {@code INSERT INTO t (c1, c2) VALUES (v1, v2)}, only literals are kept
+     */
+    private static Map<String, Token> insertValues(List<Token> tokens, int i) {
+        List<Token> columns = list(tokens, i);
+        if (columns == null) return null;
+        i += columns.size() * 2 + 1;
+        if (i >= tokens.size() || !tokens.get(i).is("VALUES")) return null;
+        List<Token> literals = list(tokens, i + 1);
+        if (literals == null || literals.size() != columns.size()) return null;
+        Map<String, Token> values = new HashMap<>();
+        for (int k = 0; k < columns.size(); k++) {
+            Token column = columns.get(k);
+            Token value = literals.get(k);
+            if (isName(column) && value.isLiteral()) values.put(column.identifier(), value);
+        }
+        return values;
+    }
+
+    /**
+     * @return elements of {@code (a, b, c)} starting at the index, null if it is not a list of single tokens
+     */
+    private static List<Token> list(List<Token> tokens, int i) {
+        if (i >= tokens.size() || !tokens.get(i).is("(")) return null;
+        List<Token> elements = new ArrayList<>();
+        for (int k = i + 1; k + 1 < tokens.size(); k += 2) {
+            elements.add(tokens.get(k));
+            Token separator = tokens.get(k + 1);
+            if (separator.is(")")) return elements;
+            if (!separator.is(",")) return null;
+        }
+        return null;
+    }
+
+    /**
+     * @return columns restricted by {@code column = literal} in the top level conjunction of the WHERE clause
+     */
+    private static Map<String, Token> whereValues(List<Token> tokens, int i) {
+        int where = find(tokens, i, "WHERE");
+        if (where < 0) return null;
+        Map<String, Token> values = new HashMap<>();
+        int depth = 0;
+        for (int k = where + 1; k < tokens.size(); k++) {
+            Token token = tokens.get(k);
+            if (token.is("(")) depth++;
+            else if (token.is(")")) depth--;
+            else if (depth == 0 && token.type == CqlTokenizer.Type.IDENTIFIER && WHERE_END.contains(token.identifier())) break;
+            else if (depth == 0 && token.is("OR")) return null;
+            else if (depth == 0 && token.is("=") && k + 1 < tokens.size() && isName(tokens.get(k - 1)) && tokens.get(k + 1).isLiteral()) {
+                values.put(tokens.get(k - 1).identifier(), tokens.get(k + 1));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return index of the keyword outside of brackets, -1 if it is missing
+     */
+    private static int find(List<Token> tokens, int start, String keyword) {
+        int depth = 0;
+        for (int i = start; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.is("(")) depth++;
+            else if (token.is(")")) depth--;
+            else if (depth == 0 && token.is(keyword)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean isName(Token token) {
+        return token.type == CqlTokenizer.Type.IDENTIFIER || token.type == CqlTokenizer.Type.QUOTED_IDENTIFIER;
+    }
+
+    private static class Route {
+        final String keyspace;
+        final ByteBuffer[] components;
+
+        Route(String keyspace, ByteBuffer[] components) {
+            this.keyspace = keyspace;
+            this.components = components;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.dbschema;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only progress log of a {@link TableScan}.
+ * <p>
+ * Every line is one record, the last record of a range wins:
+ * <pre>
+ * scan &lt;keyspace&gt;.&lt;table&gt;
+ * range &lt;start&gt; &lt;end&gt;
+ * ranges &lt;count&gt;
+ * page &lt;start&gt; &lt;rows&gt; &lt;lastToken&gt; &lt;pagingState&gt;
+ * done &lt;start&gt; &lt;rows&gt;
+ * </pre>
+ * The header, the ranges and the {@code ranges} marker are written to a temporary file that replaces the checkpoint
+ * before the scan starts, so a checkpoint lists either all ranges of the ring or none. A checkpoint of another table
+ * or without the marker is refused. Other records are written immediately but the channel is forced to disk
+ * at most once per sync interval.
+ *
+ * @see TableScan
+ */
+class ScanCheckpoint implements AutoCloseable {
+    private static final String SCAN = "scan ";
+    private static final String RANGES = "ranges ";
+
+    private final Map<String, RangeState> ranges = new LinkedHashMap<>();
+    private final File file;
+    private final String table;
+    private final long syncIntervalMillis;
+    private FileChannel channel;
+    private long lastSync = System.currentTimeMillis();
+    private boolean dirty = false;
+
+    private ScanCheckpoint(File file, String table, long syncIntervalMillis) {
+        this.file = file;
+        this.table = table;
+        this.syncIntervalMillis = syncIntervalMillis;
+    }
+
+    /**
+     * @param table quoted keyspace and table names joined by a dot
+     * @throws IOException if the file can not be read or it is not a complete checkpoint of the table
+     */
+    static ScanCheckpoint open(File file, String table, long syncIntervalMillis) throws IOException {
+        ScanCheckpoint checkpoint = new ScanCheckpoint(file, table, syncIntervalMillis);
+        if (!file.exists() || file.length() == 0) return checkpoint;
+        String scannedTable = null;
+        int rangeCount = -1;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line != null && line.startsWith(SCAN)) scannedTable = line.substring(SCAN.length());
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RANGES)) rangeCount = parseCount(line);
+                else replay(checkpoint.ranges, line);
+            }
+        }
+        if (scannedTable == null) {
+            throw new IOException("Checkpoint " + file + " was not written by a table scan");
+        }
+        if (!scannedTable.equals(table)) {
+            throw new IOException("Checkpoint " + file + " records a scan of " + scannedTable + ", not of " + table);
+        }
+        if (rangeCount != checkpoint.ranges.size()) {
+            throw new IOException("Checkpoint " + file + " is incomplete, it records " + checkpoint.ranges.size() + " ranges" +
+                    (rangeCount < 0 ? " without the end marker" : " instead of " + rangeCount));
+        }
+        checkpoint.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return checkpoint;
+    }
+
+    private static int parseCount(String line) {
+        try {
+            return Integer.parseInt(line.substring(RANGES.length()).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void replay(Map<String, RangeState> ranges, String line) {
+        String[] parts = line.trim().split(" ");
+        // a torn last line after a crash is simply ignored
+        switch (parts[0]) {
+            case "range":
+                if (parts.length == 3) ranges.put(parts[1], new RangeState(parts[1], parts[2]));
+                break;
+            case "page":
+                if (parts.length == 5 && ranges.containsKey(parts[1])) {
+                    RangeState state = ranges.get(parts[1]);
+                    state.rows = Long.parseLong(parts[2]);
+                    state.lastToken = "null".equals(parts[3]) ? null : parts[3];
+                    state.pagingState = "null".equals(parts[4]) ? null : parts[4];
+                }
+                break;
+            case "done":
+                if (parts.length == 3 && ranges.containsKey(parts[1])) {
+                    RangeState state = ranges.get(parts[1]);
+                    state.rows = Long.parseLong(parts[2]);
+                    state.done = true;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return ranges recorded by a previous run, empty if the scan is started from scratch
+     */
+    List<RangeState> getRanges() {
+        return Collections.unmodifiableList(new ArrayList<>(ranges.values()));
+    }
+
+    /**
+     * Records the ranges of a scan started from scratch and forces them to disk.
+     */
+    synchronized void setRanges(List<RangeState> states) throws IOException {
+        StringBuilder records = new StringBuilder(SCAN).append(table).append('\n');
+        for (RangeState state : states) {
+            ranges.put(state.start, state);
+            records.append("range ").append(state.start).append(' ').append(state.end).append('\n');
+        }
+        records.append(RANGES).append(states.size()).append('\n');
+        Path temporary = new File(file.getPath() + ".tmp").toPath();
+        try (FileChannel temporaryChannel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(temporaryChannel, records.toString());
+            temporaryChannel.force(false);
+        }
+        Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    synchronized void page(RangeState state) throws IOException {
+        append("page " + state.start + " " + state.rows + " " + state.lastToken + " " + state.pagingState);
+    }
+
+    synchronized void done(RangeState state) throws IOException {
+        state.done = true;
+        append("done " + state.start + " " + state.rows);
+    }
+
+    private void append(String record) throws IOException {
+        write(channel, record + "\n");
+        dirty = true;
+        long now = System.currentTimeMillis();
+        if (now - lastSync >= syncIntervalMillis) {
+            sync(now);
+        }
+    }
+
+    private static void write(FileChannel channel, String records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(records.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private void sync(long now) throws IOException {
+        if (dirty) channel.force(false);
+        dirty = false;
+        lastSync = now;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) return;
+        try {
+            sync(System.currentTimeMillis());
+        } finally {
+            channel.close();
+        }
+    }
+
+    static class RangeState {
+        final String start;
+        final String end;
+        boolean done = false;
+        long rows = 0;
+        String lastToken;
+        String pagingState;
+
+        RangeState(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
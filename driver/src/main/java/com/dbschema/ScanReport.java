@@ -0,0 +1,84 @@
+package com.dbschema;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Completion report of a {@link TableScan} run.
+ */
+public class ScanReport {
+    private final int rangeCount;
+    private final int completedRanges;
+    private final int resumedRanges;
+    private final Map<String, String> failedRanges;
+    private final long rowCount;
+    private final int retryCount;
+    private final long elapsedMillis;
+
+    ScanReport(int rangeCount, int completedRanges, int resumedRanges, Map<String, String> failedRanges,
+               long rowCount, int retryCount, long elapsedMillis) {
+        this.rangeCount = rangeCount;
+        this.completedRanges = completedRanges;
+        this.resumedRanges = resumedRanges;
+        this.failedRanges = Collections.unmodifiableMap(new LinkedHashMap<>(failedRanges));
+        this.rowCount = rowCount;
+        this.retryCount = retryCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    /**
+     * @return number of ranges that are completely scanned, including ranges finished by previous runs
+     */
+    public int getCompletedRanges() {
+        return completedRanges;
+    }
+
+    /**
+     * @return number of ranges that were already completed or partially scanned according to the checkpoint
+     */
+    public int getResumedRanges() {
+        return resumedRanges;
+    }
+
+    /**
+     * @return last error message of every range that gave up after all retries, keyed by "start..end"
+     */
+    public Map<String, String> getFailedRanges() {
+        return failedRanges;
+    }
+
+    /**
+     * @return rows passed to the handler during this run
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public boolean isComplete() {
+        return completedRanges == rangeCount;
+    }
+
+    @Override
+    public String toString() {
+        return "ScanReport{ranges=" + rangeCount +
+                ", completed=" + completedRanges +
+                ", resumed=" + resumedRanges +
+                ", failed=" + failedRanges.size() +
+                ", rows=" + rowCount +
+                ", retries=" + retryCount +
+                ", elapsed=" + elapsedMillis + "ms}";
+    }
+}
@@ -0,0 +1,287 @@
+package com.dbschema;
+
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.exceptions.DriverException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Rows of schema tables saved in a local file, so introspection queries are answered right after connect,
+ * before the driver has read the schema of a large cluster.
+ * <p>
+ * The cluster is created with metadata disabled and metadata is enabled again once the session is open,
+ * so the driver reads the schema in the background. The file is used until then, and only if it was written
+ * for the current {@code schema_version} of {@code system.local}. A missing or stale file is rewritten
+ * as soon as the driver has the schema. If metadata is disabled by the connection options,
+ * a valid file is used for the whole connection and a stale one is ignored.
+ * <p>
+ * Rows are stored as tagged values of the few types schema table rows have (text, numbers, uuids, blobs,
+ * lists and maps), so reading the file never instantiates classes named in it.
+ */
+class SchemaCache {
+    private static final Logger logger = Logger.getLogger("SchemaCacheLogger");
+    private static final int FORMAT = 2;
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte BOOLEAN = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte UUID_VALUE = 6;
+    private static final byte BYTES = 7;
+    private static final byte LIST = 8;
+    private static final byte MAP = 9;
+    private static final long REFRESH_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final File file;
+    private final UUID schemaVersion;
+    private final boolean metadataEnabled;
+    /**
+     * Rows by keyspace and schema table name, null if the file is missing or stale.
+     */
+    private final SortedMap<String, Map<String, List<Object[]>>> keyspaces;
+
+    private SchemaCache(File file, UUID schemaVersion, boolean metadataEnabled, SortedMap<String, Map<String, List<Object[]>>> keyspaces) {
+        this.file = file;
+        this.schemaVersion = schemaVersion;
+        this.metadataEnabled = metadataEnabled;
+        this.keyspaces = keyspaces;
+    }
+
+    /**
+     * Loads the file if it matches the schema version of the cluster and enables driver metadata if requested.
+     */
+    static SchemaCache open(Session session, File file, boolean metadataEnabled) {
+        UUID schemaVersion = null;
+        try {
+            Row local = session.execute("select schema_version from system.local").one();
+            if (local != null) schemaVersion = local.getUUID(0);
+        } catch (DriverException e) {
+            logger.warning("Cannot read schema version: " + e.getMessage());
+        }
+        SortedMap<String, Map<String, List<Object[]>>> keyspaces = schemaVersion == null ? null : read(file, schemaVersion);
+        if (metadataEnabled) session.getCluster().getConfiguration().getQueryOptions().setMetadataEnabled(true);
+        return new SchemaCache(file, schemaVersion, metadataEnabled, keyspaces);
+    }
+
+    boolean isValid() {
+        return keyspaces != null;
+    }
+
+    /**
+     * @return keyspace names sorted by name
+     */
+    Collection<String> getKeyspaces() {
+        return keyspaces.keySet();
+    }
+
+    boolean hasKeyspace(String keyspace) {
+        return keyspaces.containsKey(keyspace);
+    }
+
+    /**
+     * @return rows of the schema table or null if they were not saved
+     */
+    List<Object[]> getRows(String keyspace, String table) {
+        Map<String, List<Object[]>> tables = keyspaces.get(keyspace);
+        if (tables == null) return Collections.emptyList();
+        return tables.get(table);
+    }
+
+    /**
+     * Rewrites a missing or stale file in the background once the driver has read the schema.
+     */
+    void refresh(final SchemaSnapshot schema, final SchemaTables schemaTables) {
+        if (isValid() || schemaVersion == null || !metadataEnabled) return;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (schema.awaitLoaded(REFRESH_TIMEOUT_MILLIS)) write(schemaTables.dump());
+                    else logger.warning("Schema was not loaded in time, " + file + " is not updated");
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, "cassandra-schema-cache");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static SortedMap<String, Map<String, List<Object[]>>> read(File file, UUID schemaVersion) {
+        if (!file.isFile()) return null;
+        long limit = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT || in.readLong() != schemaVersion.getMostSignificantBits() ||
+                    in.readLong() != schemaVersion.getLeastSignificantBits()) {
+                return null;
+            }
+            SortedMap<String, Map<String, List<Object[]>>> result = new TreeMap<>();
+            int keyspaceCount = readCount(in, limit);
+            for (int i = 0; i < keyspaceCount; i++) {
+                String keyspace = readString(in, limit);
+                Map<String, List<Object[]>> tables = new HashMap<>();
+                int tableCount = readCount(in, limit);
+                for (int j = 0; j < tableCount; j++) {
+                    String table = readString(in, limit);
+                    int rowCount = readCount(in, limit);
+                    List<Object[]> rows = new ArrayList<>();
+                    for (int k = 0; k < rowCount; k++) {
+                        Object[] row = new Object[readCount(in, limit)];
+                        for (int m = 0; m < row.length; m++) row[m] = readValue(in, limit);
+                        rows.add(row);
+                    }
+                    tables.put(table, Collections.unmodifiableList(rows));
+                }
+                result.put(keyspace, tables);
+            }
+            return result;
+        } catch (IOException e) {
+            logger.warning("Cannot read schema cache " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(Map<String, Map<String, List<Object[]>>> keyspaces) {
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FORMAT);
+                out.writeLong(schemaVersion.getMostSignificantBits());
+                out.writeLong(schemaVersion.getLeastSignificantBits());
+                out.writeInt(keyspaces.size());
+                for (Map.Entry<String, Map<String, List<Object[]>>> keyspace : keyspaces.entrySet()) {
+                    writeString(out, keyspace.getKey());
+                    out.writeInt(keyspace.getValue().size());
+                    for (Map.Entry<String, List<Object[]>> table : keyspace.getValue().entrySet()) {
+                        writeString(out, table.getKey());
+                        out.writeInt(table.getValue().size());
+                        for (Object[] row : table.getValue()) {
+                            out.writeInt(row.length);
+                            for (Object value : row) writeValue(out, value);
+                        }
+                    }
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Cannot write schema cache " + file + ": " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+        }
+    }
+
+    /**
+     * Writes a value of a schema table row with a tag of its type. Only the types of {@link SchemaTables} rows are supported.
+     */
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof UUID) {
+            out.writeByte(UUID_VALUE);
+            out.writeLong(((UUID) value).getMostSignificantBits());
+            out.writeLong(((UUID) value).getLeastSignificantBits());
+        } else if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            out.writeByte(BYTES);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(list.size());
+            for (Object element : list) writeValue(out, element);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            out.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else {
+            throw new IOException("Unsupported value type " + value.getClass().getName());
+        }
+    }
+
+    /**
+     * @param limit size of the file, larger lengths are rejected before anything is allocated
+     */
+    static Object readValue(DataInputStream in, long limit) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in, limit);
+            case BOOLEAN:
+                return in.readBoolean();
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case UUID_VALUE:
+                return new UUID(in.readLong(), in.readLong());
+            case BYTES:
+                byte[] bytes = new byte[readCount(in, limit)];
+                in.readFully(bytes);
+                return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+            case LIST:
+                int size = readCount(in, limit);
+                List<Object> list = new ArrayList<>();
+                for (int i = 0; i < size; i++) list.add(readValue(in, limit));
+                return Collections.unmodifiableList(list);
+            case MAP:
+                int entries = readCount(in, limit);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < entries; i++) map.put(readValue(in, limit), readValue(in, limit));
+                return Collections.unmodifiableMap(map);
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in, long limit) throws IOException {
+        byte[] bytes = new byte[readCount(in, limit)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readCount(DataInputStream in, long limit) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > limit) throw new IOException("Invalid length " + count);
+        return count;
+    }
+}
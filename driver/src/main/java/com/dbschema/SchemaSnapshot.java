@@ -0,0 +1,359 @@
+package com.dbschema;
+
+import com.datastax.driver.core.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable, sorted and indexed views of the schema shared by all connections to the same cluster in the process.
+ * <p>
+ * The views are built once from driver metadata and updated per keyspace by schema change events, so connections
+ * after the first one do not sort and index the schema again. Connections with the same options share their
+ * {@link Cluster} (see {@link SharedClusters}), so they do not read the schema either. Clusters of connections with
+ * other options keep their own driver metadata, but only one listener per snapshot applies schema changes to the views.
+ * Data derived from a keyspace, like rows of schema tables, can be memoized in its {@link Keyspace} view,
+ * it is dropped together with the view when the keyspace changes.
+ */
+class SchemaSnapshot {
+    private static final Map<String, List<SchemaSnapshot>> SNAPSHOTS = new HashMap<>();
+
+    private final String clusterName;
+    private final Set<UUID> hostIds;
+    /**
+     * Number of connections by cluster.
+     */
+    private final Map<Cluster, Integer> clusters = new HashMap<>();
+    private Listener listener;
+    private volatile SortedMap<String, Keyspace> keyspaces;
+    private volatile int version;
+
+    private SchemaSnapshot(String clusterName, Set<UUID> hostIds) {
+        this.clusterName = clusterName;
+        this.hostIds = hostIds;
+    }
+
+    /**
+     * @return snapshot of the cluster, must be released when the connection is closed
+     */
+    static SchemaSnapshot acquire(Cluster cluster) {
+        Metadata metadata = cluster.getMetadata();
+        String clusterName = String.valueOf(metadata.getClusterName());
+        Set<UUID> hostIds = new HashSet<>();
+        for (Host host : metadata.getAllHosts()) {
+            if (host.getHostId() != null) hostIds.add(host.getHostId());
+        }
+        synchronized (SNAPSHOTS) {
+            List<SchemaSnapshot> snapshots = SNAPSHOTS.get(clusterName);
+            if (snapshots == null) {
+                snapshots = new ArrayList<>();
+                SNAPSHOTS.put(clusterName, snapshots);
+            }
+            SchemaSnapshot snapshot = null;
+            for (SchemaSnapshot candidate : snapshots) {
+                // different clusters often keep the default name, they never share hosts
+                if (!Collections.disjoint(candidate.hostIds, hostIds)) snapshot = candidate;
+            }
+            if (snapshot == null) {
+                snapshot = new SchemaSnapshot(clusterName, hostIds);
+                snapshots.add(snapshot);
+            }
+            snapshot.register(cluster);
+            return snapshot;
+        }
+    }
+
+    void release(Cluster cluster) {
+        synchronized (SNAPSHOTS) {
+            Integer users = clusters.get(cluster);
+            if (users == null) return;
+            if (users > 1) {
+                clusters.put(cluster, users - 1);
+                return;
+            }
+            clusters.remove(cluster);
+            if (listener != null && listener.cluster == cluster) {
+                if (!cluster.isClosed()) cluster.unregister(listener);
+                listener = null;
+                if (!clusters.isEmpty()) {
+                    Cluster next = listenerCluster();
+                    listen(next);
+                    // changes applied by the previous cluster only are not missed
+                    synchronized (this) {
+                        if (!next.getMetadata().getKeyspaces().isEmpty()) load(next);
+                    }
+                }
+            }
+            List<SchemaSnapshot> snapshots = SNAPSHOTS.get(clusterName);
+            if (clusters.isEmpty() && snapshots != null) {
+                snapshots.remove(this);
+                if (snapshots.isEmpty()) SNAPSHOTS.remove(clusterName);
+            }
+        }
+    }
+
+    private void register(Cluster cluster) {
+        Integer users = clusters.get(cluster);
+        clusters.put(cluster, users == null ? 1 : users + 1);
+        if (listener == null || !isMetadataEnabled(listener.cluster) && isMetadataEnabled(cluster)) {
+            if (listener != null && !listener.cluster.isClosed()) listener.cluster.unregister(listener);
+            listen(cluster);
+        }
+        synchronized (this) {
+            if (keyspaces == null || keyspaces.isEmpty()) load(cluster);
+        }
+    }
+
+    /**
+     * @return cluster to listen to, one that reads the schema if there is one
+     */
+    private Cluster listenerCluster() {
+        for (Cluster cluster : clusters.keySet()) {
+            if (isMetadataEnabled(cluster)) return cluster;
+        }
+        return clusters.keySet().iterator().next();
+    }
+
+    private void listen(Cluster cluster) {
+        listener = new Listener(cluster);
+        cluster.register(listener);
+    }
+
+    private static boolean isMetadataEnabled(Cluster cluster) {
+        return cluster.getConfiguration().getQueryOptions().isMetadataEnabled();
+    }
+
+    private void load(Cluster cluster) {
+        SortedMap<String, Keyspace> views = new TreeMap<>();
+        for (KeyspaceMetadata keyspace : cluster.getMetadata().getKeyspaces()) {
+            views.put(keyspace.getName(), new Keyspace(keyspace));
+        }
+        keyspaces = Collections.unmodifiableSortedMap(views);
+        version++;
+        notifyAll();
+    }
+
+    /**
+     * @return false while the driver has not read the schema, e.g. when it was connected with metadata disabled
+     */
+    boolean isLoaded() {
+        // system keyspaces are always there
+        return !keyspaces.isEmpty();
+    }
+
+    /**
+     * @return true if the schema was loaded in time
+     */
+    synchronized boolean awaitLoaded(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!isLoaded()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @return number that changes whenever the schema changes
+     */
+    int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return keyspaces sorted by name
+     */
+    Collection<Keyspace> getKeyspaces() {
+        return keyspaces.values();
+    }
+
+    /**
+     * @return keyspace names sorted by name
+     */
+    Collection<String> getKeyspaceNames() {
+        return keyspaces.keySet();
+    }
+
+    /**
+     * @param name keyspace name as it is stored in the schema, case sensitive
+     */
+    Keyspace getKeyspace(String name) {
+        return name == null ? null : keyspaces.get(name);
+    }
+
+    TableMetadata getTable(String keyspace, String table) {
+        Keyspace view = getKeyspace(keyspace);
+        return view == null ? null : view.getTable(table);
+    }
+
+    private void update(Cluster cluster, KeyspaceMetadata keyspace) {
+        synchronized (this) {
+            if (keyspaces == null) return;
+            // the first refresh after metadata was enabled puts all keyspaces to driver metadata before the events
+            if (keyspaces.isEmpty()) {
+                load(cluster);
+                return;
+            }
+            SortedMap<String, Keyspace> views = new TreeMap<>(keyspaces);
+            views.put(keyspace.getName(), new Keyspace(keyspace));
+            keyspaces = Collections.unmodifiableSortedMap(views);
+            version++;
+            notifyAll();
+        }
+    }
+
+    private void remove(KeyspaceMetadata keyspace) {
+        synchronized (this) {
+            if (keyspaces == null) return;
+            SortedMap<String, Keyspace> views = new TreeMap<>(keyspaces);
+            views.remove(keyspace.getName());
+            keyspaces = Collections.unmodifiableSortedMap(views);
+            version++;
+        }
+    }
+
+    /**
+     * Tables, materialized views and user types of a keyspace at the time of the last schema change.
+     */
+    static class Keyspace {
+        private final KeyspaceMetadata metadata;
+        private final SortedMap<String, TableMetadata> tables = new TreeMap<>();
+        private final SortedMap<String, MaterializedViewMetadata> views = new TreeMap<>();
+        private final SortedMap<String, UserType> userTypes = new TreeMap<>();
+        private final ConcurrentMap<String, Object> memo = new ConcurrentHashMap<>();
+
+        Keyspace(KeyspaceMetadata metadata) {
+            this.metadata = metadata;
+            for (TableMetadata table : metadata.getTables()) tables.put(table.getName(), table);
+            for (MaterializedViewMetadata view : metadata.getMaterializedViews()) views.put(view.getName(), view);
+            for (UserType type : metadata.getUserTypes()) userTypes.put(type.getTypeName(), type);
+        }
+
+        String getName() {
+            return metadata.getName();
+        }
+
+        KeyspaceMetadata getMetadata() {
+            return metadata;
+        }
+
+        /**
+         * @return tables sorted by name
+         */
+        Collection<TableMetadata> getTables() {
+            return Collections.unmodifiableCollection(tables.values());
+        }
+
+        TableMetadata getTable(String name) {
+            return tables.get(name);
+        }
+
+        /**
+         * @return materialized views sorted by name
+         */
+        Collection<MaterializedViewMetadata> getViews() {
+            return Collections.unmodifiableCollection(views.values());
+        }
+
+        MaterializedViewMetadata getView(String name) {
+            return views.get(name);
+        }
+
+        /**
+         * @return user types sorted by name
+         */
+        Collection<UserType> getUserTypes() {
+            return Collections.unmodifiableCollection(userTypes.values());
+        }
+
+        /**
+         * @return value memoized under the key, it lives as long as this view
+         */
+        @SuppressWarnings("unchecked")
+        <T> T getMemo(String key) {
+            return (T) memo.get(key);
+        }
+
+        void putMemo(String key, Object value) {
+            memo.put(key, value);
+        }
+    }
+
+    private class Listener extends SchemaChangeListenerBase {
+        private final Cluster cluster;
+
+        Listener(Cluster cluster) {
+            this.cluster = cluster;
+        }
+
+        @Override
+        public void onKeyspaceAdded(KeyspaceMetadata keyspace) {
+            update(cluster, keyspace);
+        }
+
+        @Override
+        public void onKeyspaceRemoved(KeyspaceMetadata keyspace) {
+            remove(keyspace);
+        }
+
+        @Override
+        public void onKeyspaceChanged(KeyspaceMetadata current, KeyspaceMetadata previous) {
+            update(cluster, current);
+        }
+
+        @Override
+        public void onTableAdded(TableMetadata table) {
+            update(cluster, table.getKeyspace());
+        }
+
+        @Override
+        public void onTableRemoved(TableMetadata table) {
+            update(cluster, table.getKeyspace());
+        }
+
+        @Override
+        public void onTableChanged(TableMetadata current, TableMetadata previous) {
+            update(cluster, current.getKeyspace());
+        }
+
+        @Override
+        public void onUserTypeAdded(UserType type) {
+            updateKeyspace(type.getKeyspace());
+        }
+
+        @Override
+        public void onUserTypeRemoved(UserType type) {
+            updateKeyspace(type.getKeyspace());
+        }
+
+        @Override
+        public void onUserTypeChanged(UserType current, UserType previous) {
+            updateKeyspace(current.getKeyspace());
+        }
+
+        @Override
+        public void onMaterializedViewAdded(MaterializedViewMetadata view) {
+            update(cluster, view.getKeyspace());
+        }
+
+        @Override
+        public void onMaterializedViewRemoved(MaterializedViewMetadata view) {
+            update(cluster, view.getKeyspace());
+        }
+
+        @Override
+        public void onMaterializedViewChanged(MaterializedViewMetadata current, MaterializedViewMetadata previous) {
+            update(cluster, current.getKeyspace());
+        }
+
+        /**
+         * User types only know the name of their keyspace.
+         */
+        private void updateKeyspace(String name) {
+            KeyspaceMetadata keyspace = cluster.getMetadata().getKeyspace(Metadata.quote(name));
+            if (keyspace != null) update(cluster, keyspace);
+        }
+    }
+}
@@ -0,0 +1,518 @@
+package com.dbschema;
+
+import com.datastax.driver.core.*;
+import com.dbschema.CqlTokenizer.Token;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Answers introspection queries on schema tables from the schema the driver already holds in {@link Metadata},
+ * so refreshing a tree of thousands of tables in a database tool does not read the schema from the cluster again.
+ * <p>
+ * Only {@code SELECT columns FROM system_schema.table [WHERE column = 'value' [AND ...]]} is supported,
+ * for keyspaces, tables, columns, types and indexes of Cassandra 3.0+, and {@code system.schema_columns}
+ * of Cassandra 2.x. Queries that select columns the driver metadata does not have, like {@code SELECT *}
+ * from tables whose set of options depends on the server version, are executed on the cluster, as are queries
+ * of columns that the server version removed, like {@code read_repair_chance} in Cassandra 4.0.
+ * Rows are memoized in the keyspace views of the {@link SchemaSnapshot}, so they live until the keyspace changes.
+ * Until the driver has read the schema, rows are taken from the {@link SchemaCache} if there is a valid one.
+ */
+class SchemaTables {
+    /**
+     * Names of the keyspace and the table the supported queries read, other statements are rejected before they are parsed.
+     */
+    private static final Pattern SCHEMA = Pattern.compile("\\b(?:system_schema|schema_columns)\\b", Pattern.CASE_INSENSITIVE);
+    private static final String MARSHAL = "org.apache.cassandra.db.marshal.";
+    private static final Map<DataType.Name, String> MARSHAL_TYPES = new EnumMap<>(DataType.Name.class);
+
+    static {
+        MARSHAL_TYPES.put(DataType.Name.ASCII, "AsciiType");
+        MARSHAL_TYPES.put(DataType.Name.BIGINT, "LongType");
+        MARSHAL_TYPES.put(DataType.Name.BLOB, "BytesType");
+        MARSHAL_TYPES.put(DataType.Name.BOOLEAN, "BooleanType");
+        MARSHAL_TYPES.put(DataType.Name.COUNTER, "CounterColumnType");
+        MARSHAL_TYPES.put(DataType.Name.DECIMAL, "DecimalType");
+        MARSHAL_TYPES.put(DataType.Name.DOUBLE, "DoubleType");
+        MARSHAL_TYPES.put(DataType.Name.FLOAT, "FloatType");
+        MARSHAL_TYPES.put(DataType.Name.INET, "InetAddressType");
+        MARSHAL_TYPES.put(DataType.Name.INT, "Int32Type");
+        MARSHAL_TYPES.put(DataType.Name.TEXT, "UTF8Type");
+        MARSHAL_TYPES.put(DataType.Name.VARCHAR, "UTF8Type");
+        MARSHAL_TYPES.put(DataType.Name.TIMESTAMP, "TimestampType");
+        MARSHAL_TYPES.put(DataType.Name.UUID, "UUIDType");
+        MARSHAL_TYPES.put(DataType.Name.TIMEUUID, "TimeUUIDType");
+        MARSHAL_TYPES.put(DataType.Name.VARINT, "IntegerType");
+        MARSHAL_TYPES.put(DataType.Name.DATE, "SimpleDateType");
+        MARSHAL_TYPES.put(DataType.Name.TIME, "TimeType");
+        MARSHAL_TYPES.put(DataType.Name.SMALLINT, "ShortType");
+        MARSHAL_TYPES.put(DataType.Name.TINYINT, "ByteType");
+    }
+
+    private final SchemaSnapshot schema;
+    private final SchemaCache cache;
+    private final DatabaseVersion databaseVersion;
+
+    /**
+     * @param cache rows saved by a previous connection, may be null
+     */
+    SchemaTables(SchemaSnapshot schema, SchemaCache cache, DatabaseVersion databaseVersion) {
+        this.schema = schema;
+        this.cache = cache;
+        this.databaseVersion = databaseVersion;
+    }
+
+    /**
+     * @param params values of bind markers, null for unprepared statements
+     * @return rows of the query or null if it must be executed on the cluster
+     */
+    ListResultSet query(String cql, Object[] params, boolean returnNullStrings) {
+        if (!SCHEMA.matcher(cql).find()) return null;
+        Query query = Query.parse(cql, params);
+        if (query == null || !query.isAnswerable(databaseVersion.getNumber())) return null;
+        VirtualTable table = query.table;
+        Map<String, String> filters = query.filters;
+        int[] indexes = query.indexes;
+
+        SchemaCache cache = null;
+        if (!schema.isLoaded()) {
+            if (this.cache == null || !this.cache.isValid()) return null;
+            cache = this.cache;
+        }
+        // schema tables of the other Cassandra generation do not exist on the server
+        boolean legacy = cache != null ? !cache.hasKeyspace("system_schema") : schema.getKeyspace("system_schema") == null;
+        if (table.legacy != legacy) return null;
+        String keyspaceName = filters.get("keyspace_name");
+        Collection<String> keyspaces;
+        if (keyspaceName != null) keyspaces = Collections.singletonList(keyspaceName);
+        else keyspaces = cache != null ? cache.getKeyspaces() : schema.getKeyspaceNames();
+
+        List<Object[]> data = new ArrayList<>();
+        for (String keyspace : keyspaces) {
+            List<Object[]> rows = cache != null ? cache.getRows(keyspace, table.name) : rows(table, schema.getKeyspace(keyspace));
+            if (rows == null) return null;
+            for (Object[] row : rows) {
+                if (!matches(table, row, filters)) continue;
+                Object[] values = new Object[indexes.length];
+                for (int k = 0; k < indexes.length; k++) {
+                    Object value = row[indexes[k]];
+                    if (value == null && !returnNullStrings && table.isText(indexes[k])) value = "";
+                    values[k] = value;
+                }
+                data.add(values);
+            }
+        }
+        return new ListResultSet(data, query.labels.toArray(new String[0]));
+    }
+
+    /**
+     * Supported query on a schema table.
+     */
+    static class Query {
+        private final VirtualTable table;
+        private final List<String> selection;
+        private final List<String> labels;
+        private final Map<String, String> filters;
+        private final int[] indexes;
+
+        private Query(VirtualTable table, List<String> selection, List<String> labels, Map<String, String> filters, int[] indexes) {
+            this.table = table;
+            this.selection = selection;
+            this.labels = labels;
+            this.filters = filters;
+            this.indexes = indexes;
+        }
+
+        /**
+         * @param params values of bind markers, null for unprepared statements
+         * @return query or null if it is not supported
+         */
+        static Query parse(String cql, Object[] params) {
+            List<Token> tokens = CqlTokenizer.significant(CqlTokenizer.tokenize(cql));
+            if (tokens.isEmpty() || !tokens.get(0).is("SELECT")) return null;
+
+            List<String> selection = new ArrayList<>();
+            List<String> labels = new ArrayList<>();
+            int i = 1;
+            if (i < tokens.size() && tokens.get(i).is("*")) {
+                i++;
+            } else {
+                while (true) {
+                    if (i >= tokens.size() || !isName(tokens.get(i))) return null;
+                    selection.add(tokens.get(i).identifier());
+                    i++;
+                    if (i + 1 < tokens.size() && tokens.get(i).is("AS") && isName(tokens.get(i + 1))) {
+                        labels.add(tokens.get(i + 1).identifier());
+                        i += 2;
+                    } else {
+                        labels.add(selection.get(selection.size() - 1));
+                    }
+                    if (i < tokens.size() && tokens.get(i).is(",")) i++;
+                    else break;
+                }
+            }
+            if (i + 3 >= tokens.size() || !tokens.get(i).is("FROM") || !tokens.get(i + 2).is(".")) return null;
+            Token keyspaceToken = tokens.get(i + 1);
+            Token tableToken = tokens.get(i + 3);
+            if (!isName(keyspaceToken) || !isName(tableToken)) return null;
+            VirtualTable table = VirtualTable.find(keyspaceToken.identifier(), tableToken.identifier());
+            if (table == null) return null;
+            i += 4;
+
+            Map<String, String> filters = new LinkedHashMap<>();
+            int marker = 0;
+            if (i < tokens.size() && tokens.get(i).is("WHERE")) {
+                do {
+                    i++;
+                    if (i + 2 >= tokens.size() || !isName(tokens.get(i)) || !tokens.get(i + 1).is("=")) return null;
+                    String column = tokens.get(i).identifier();
+                    Token value = tokens.get(i + 2);
+                    Object filter;
+                    if (value.is("?")) {
+                        if (params == null || marker >= params.length) return null;
+                        filter = params[marker++];
+                    } else if (value.type == CqlTokenizer.Type.STRING && value.text.startsWith("'")) {
+                        filter = value.text.substring(1, value.text.length() - 1).replace("''", "'");
+                    } else {
+                        return null;
+                    }
+                    if (!(filter instanceof String) || table.indexOf(column) < 0 || filters.containsKey(column)) return null;
+                    filters.put(column, (String) filter);
+                    i += 3;
+                } while (i < tokens.size() && tokens.get(i).is("AND"));
+            }
+            if (i < tokens.size() && tokens.get(i).is(";")) i++;
+            if (i != tokens.size()) return null;
+
+            if (selection.isEmpty()) {
+                if (table.starColumns == null) return null;
+                selection.addAll(Arrays.asList(table.starColumns));
+                labels.addAll(selection);
+            }
+            int[] indexes = new int[selection.size()];
+            for (int k = 0; k < indexes.length; k++) {
+                indexes[k] = table.indexOf(selection.get(k));
+                if (indexes[k] < 0) return null;
+            }
+            return new Query(table, selection, labels, filters, indexes);
+        }
+
+        /**
+         * @param version Cassandra version of the cluster, null if it is unknown
+         * @return false if a selected or filtered column does not exist in the schema table of the server version
+         */
+        boolean isAnswerable(VersionNumber version) {
+            for (String column : selection) {
+                if (!table.exists(column, version)) return false;
+            }
+            for (String column : filters.keySet()) {
+                if (!table.exists(column, version)) return false;
+            }
+            return true;
+        }
+
+        /**
+         * @return selected columns
+         */
+        List<String> getSelection() {
+            return selection;
+        }
+
+        /**
+         * @return column labels of the result
+         */
+        List<String> getLabels() {
+            return labels;
+        }
+
+        /**
+         * @return values of the columns restricted by WHERE
+         */
+        Map<String, String> getFilters() {
+            return filters;
+        }
+
+        /**
+         * @return keyspace and name of the schema table
+         */
+        String getTable() {
+            return table.keyspace + "." + table.name;
+        }
+    }
+
+    /**
+     * @return rows of all schema tables of the server generation by keyspace and table name, to be saved in a {@link SchemaCache}
+     */
+    Map<String, Map<String, List<Object[]>>> dump() {
+        boolean legacy = schema.getKeyspace("system_schema") == null;
+        Map<String, Map<String, List<Object[]>>> keyspaces = new HashMap<>();
+        for (SchemaSnapshot.Keyspace keyspace : schema.getKeyspaces()) {
+            if (keyspace.getMetadata().isVirtual()) continue;
+            Map<String, List<Object[]>> tables = new HashMap<>();
+            for (VirtualTable table : VirtualTable.values()) {
+                if (table.legacy != legacy) continue;
+                List<Object[]> rows = rows(table, keyspace);
+                if (rows != null) tables.put(table.name, rows);
+            }
+            keyspaces.put(keyspace.getName(), tables);
+        }
+        return keyspaces;
+    }
+
+    private static List<Object[]> rows(VirtualTable table, SchemaSnapshot.Keyspace keyspace) {
+        if (keyspace == null || keyspace.getMetadata().isVirtual()) return Collections.emptyList();
+        String key = SchemaTables.class.getName() + '.' + table.name;
+        List<Object[]> rows = keyspace.getMemo(key);
+        if (rows == null) {
+            rows = new ArrayList<>();
+            if (!table.addRows(keyspace, rows)) return null;
+            rows = Collections.unmodifiableList(rows);
+            keyspace.putMemo(key, rows);
+        }
+        return rows;
+    }
+
+    private static boolean matches(VirtualTable table, Object[] row, Map<String, String> filters) {
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            if (!filter.getValue().equals(row[table.indexOf(filter.getKey())])) return false;
+        }
+        return true;
+    }
+
+    private static boolean isName(Token token) {
+        return token.type == CqlTokenizer.Type.IDENTIFIER || token.type == CqlTokenizer.Type.QUOTED_IDENTIFIER;
+    }
+
+    private enum VirtualTable {
+        KEYSPACES("system_schema", "keyspaces", false, true, new String[]{"keyspace_name", "durable_writes", "replication"}, "keyspace_name") {
+            @Override
+            boolean addRows(SchemaSnapshot.Keyspace keyspace, List<Object[]> rows) {
+                KeyspaceMetadata metadata = keyspace.getMetadata();
+                rows.add(new Object[]{keyspace.getName(), metadata.isDurableWrites(), metadata.getReplication()});
+                return true;
+            }
+        },
+        TABLES("system_schema", "tables", false, false, new String[]{"keyspace_name", "table_name", "bloom_filter_fp_chance",
+                "caching", "cdc", "comment", "compaction", "compression", "crc_check_chance", "dclocal_read_repair_chance",
+                "default_time_to_live", "extensions", "gc_grace_seconds", "id", "max_index_interval",
+                "memtable_flush_period_in_ms", "min_index_interval", "read_repair_chance", "speculative_retry"},
+                "keyspace_name", "table_name", "comment", "speculative_retry") {
+            private final Set<String> removedIn4 = new HashSet<>(Arrays.asList("dclocal_read_repair_chance", "read_repair_chance"));
+
+            @Override
+            boolean exists(String column, VersionNumber version) {
+                return !removedIn4.contains(column) || version != null && version.getMajor() < 4;
+            }
+
+            @Override
+            boolean addRows(SchemaSnapshot.Keyspace keyspace, List<Object[]> rows) {
+                for (TableMetadata table : keyspace.getTables()) {
+                    TableOptionsMetadata options = table.getOptions();
+                    rows.add(new Object[]{keyspace.getName(), table.getName(), options.getBloomFilterFalsePositiveChance(),
+                            options.getCaching(), options.isCDC(), options.getComment(), options.getCompaction(),
+                            options.getCompression(), options.getCrcCheckChance(), options.getLocalReadRepairChance(),
+                            options.getDefaultTimeToLive(), options.getExtensions(), options.getGcGraceInSeconds(), table.getId(),
+                            options.getMaxIndexInterval(), options.getMemtableFlushPeriodInMs(), options.getMinIndexInterval(),
+                            options.getReadRepairChance(), options.getSpeculativeRetry()});
+                }
+                return true;
+            }
+        },
+        COLUMNS("system_schema", "columns", false, true, new String[]{"keyspace_name", "table_name", "column_name",
+                "clustering_order", "column_name_bytes", "kind", "position", "type"},
+                "keyspace_name", "table_name", "column_name", "clustering_order", "kind", "type") {
+            @Override
+            boolean addRows(SchemaSnapshot.Keyspace keyspace, List<Object[]> rows) {
+                List<AbstractTableMetadata> tables = new ArrayList<AbstractTableMetadata>(keyspace.getTables());
+                tables.addAll(keyspace.getViews());
+                for (AbstractTableMetadata table : tables) {
+                    List<ColumnMetadata> partitionKey = table.getPartitionKey();
+                    List<ColumnMetadata> clusteringColumns = table.getClusteringColumns();
+                    for (ColumnMetadata column : table.getColumns()) {
+                        String kind = column.isStatic() ? "static" : "regular";
+                        String order = "none";
+                        int position = partitionKey.indexOf(column);
+                        if (position >= 0) {
+                            kind = "partition_key";
+                        } else if ((position = clusteringColumns.indexOf(column)) >= 0) {
+                            kind = "clustering";
+                            order = table.getClusteringOrder().get(position) == ClusteringOrder.DESC ? "desc" : "asc";
+                        }
+                        rows.add(new Object[]{keyspace.getName(), table.getName(), column.getName(), order,
+                                ByteBuffer.wrap(column.getName().getBytes(StandardCharsets.UTF_8)), kind, position,
+                                column.getType().asFunctionParameterString()});
+                    }
+                }
+                return true;
+            }
+        },
+        TYPES("system_schema", "types", false, true, new String[]{"keyspace_name", "type_name", "field_names", "field_types"},
+                "keyspace_name", "type_name") {
+            @Override
+            boolean addRows(SchemaSnapshot.Keyspace keyspace, List<Object[]> rows) {
+                for (UserType type : keyspace.getUserTypes()) {
+                    List<String> names = new ArrayList<>();
+                    List<String> types = new ArrayList<>();
+                    for (UserType.Field field : type) {
+                        names.add(field.getName());
+                        types.add(field.getType().asFunctionParameterString());
+                    }
+                    rows.add(new Object[]{keyspace.getName(), type.getTypeName(), names, types});
+                }
+                return true;
+            }
+        },
+        INDEXES("system_schema", "indexes", false, true, new String[]{"keyspace_name", "table_name", "index_name", "kind", "options"},
+                "keyspace_name", "table_name", "index_name", "kind") {
+            @Override
+            boolean addRows(SchemaSnapshot.Keyspace keyspace, List<Object[]> rows) {
+                for (TableMetadata table : keyspace.getTables()) {
+                    for (IndexMetadata index : table.getIndexes()) {
+                        Map<String, String> options = new TreeMap<>();
+                        options.put("target", index.getTarget());
+                        if (index.isCustomIndex()) options.put("class_name", index.getIndexClassName());
+                        rows.add(new Object[]{keyspace.getName(), table.getName(), index.getName(), index.getKind().name(), options});
+                    }
+                }
+                return true;
+            }
+        },
+        /**
+         * Cassandra 2.x, queried by DataGrip with {@code CassandraConnection.SELECT_COLUMNS_INTRO_QUERY}.
+         */
+        LEGACY_COLUMNS("system", "schema_columns", true, true, new String[]{"keyspace_name", "columnfamily_name", "column_name",
+                "component_index", "index_name", "index_options", "index_type", "type", "validator"},
+                "keyspace_name", "columnfamily_name", "column_name", "index_name", "index_options", "index_type", "type", "validator") {
+            @Override
+            boolean addRows(SchemaSnapshot.Keyspace keyspace, List<Object[]> rows) {
+                for (TableMetadata table : keyspace.getTables()) {
+                    List<ColumnMetadata> partitionKey = table.getPartitionKey();
+                    List<ColumnMetadata> clusteringColumns = table.getClusteringColumns();
+                    boolean compact = table.getOptions().isCompactStorage();
+                    for (ColumnMetadata column : table.getColumns()) {
+                        String type;
+                        Integer componentIndex;
+                        String validator = validator(column.getType());
+                        int position = partitionKey.indexOf(column);
+                        if (position >= 0) {
+                            type = "partition_key";
+                            componentIndex = partitionKey.size() > 1 ? position : null;
+                        } else if ((position = clusteringColumns.indexOf(column)) >= 0) {
+                            type = "clustering_key";
+                            componentIndex = position;
+                            if (validator != null && table.getClusteringOrder().get(position) == ClusteringOrder.DESC) {
+                                validator = MARSHAL + "ReversedType(" + validator + ")";
+                            }
+                        } else {
+                            type = column.isStatic() ? "static" : compact && !clusteringColumns.isEmpty() ? "compact_value" : "regular";
+                            componentIndex = clusteringColumns.isEmpty() || compact ? null : clusteringColumns.size();
+                        }
+                        if (validator == null) return false;
+                        IndexMetadata index = index(table, column);
+                        rows.add(new Object[]{keyspace.getName(), table.getName(), column.getName(), componentIndex,
+                                index == null ? null : index.getName(), index == null ? null : indexOptions(index),
+                                index == null ? null : index.getKind().name(), type, validator});
+                    }
+                }
+                return true;
+            }
+        };
+
+        final String keyspace;
+        final String name;
+        final boolean legacy;
+        final String[] starColumns;
+        private final String[] columns;
+        private final Set<String> textColumns;
+
+        VirtualTable(String keyspace, String name, boolean legacy, boolean star, String[] columns, String... textColumns) {
+            this.keyspace = keyspace;
+            this.name = name;
+            this.legacy = legacy;
+            this.columns = columns;
+            this.starColumns = star ? columns : null;
+            this.textColumns = new HashSet<>(Arrays.asList(textColumns));
+        }
+
+        /**
+         * @return false if the rows of the keyspace can not be built from driver metadata
+         */
+        abstract boolean addRows(SchemaSnapshot.Keyspace keyspace, List<Object[]> rows);
+
+        /**
+         * @param version Cassandra version of the cluster, null if it is unknown
+         * @return false if the column is not in the schema table of the server version, though driver metadata has it
+         */
+        boolean exists(String column, VersionNumber version) {
+            return true;
+        }
+
+        int indexOf(String column) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equals(column)) return i;
+            }
+            return -1;
+        }
+
+        boolean isText(int index) {
+            return textColumns.contains(columns[index]);
+        }
+
+        static VirtualTable find(String keyspace, String name) {
+            for (VirtualTable table : values()) {
+                if (table.keyspace.equals(keyspace) && table.name.equals(name)) return table;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * @return class name of the Cassandra 2.x type, null for user defined types
+     */
+    private static String validator(DataType type) {
+        String validator;
+        List<DataType> arguments = type.getTypeArguments();
+        switch (type.getName()) {
+            case LIST:
+                validator = argument(arguments.get(0), "ListType");
+                break;
+            case SET:
+                validator = argument(arguments.get(0), "SetType");
+                break;
+            case MAP:
+                String key = validator(arguments.get(0));
+                String value = validator(arguments.get(1));
+                validator = key == null || value == null ? null : MARSHAL + "MapType(" + key + "," + value + ")";
+                break;
+            default:
+                String name = MARSHAL_TYPES.get(type.getName());
+                return name == null ? null : MARSHAL + name;
+        }
+        return validator != null && type.isFrozen() ? MARSHAL + "FrozenType(" + validator + ")" : validator;
+    }
+
+    private static String argument(DataType argument, String collection) {
+        String validator = validator(argument);
+        return validator == null ? null : MARSHAL + collection + "(" + validator + ")";
+    }
+
+    private static IndexMetadata index(TableMetadata table, ColumnMetadata column) {
+        for (IndexMetadata index : table.getIndexes()) {
+            String target = index.getTarget();
+            if (target.equals(Metadata.quoteIfNecessary(column.getName())) ||
+                    target.endsWith("(" + Metadata.quoteIfNecessary(column.getName()) + ")")) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    private static String indexOptions(IndexMetadata index) {
+        if (index.isCustomIndex()) return "{\"class_name\":\"" + index.getIndexClassName() + "\"}";
+        if (index.getTarget().startsWith("keys(")) return "{\"index_keys\":\"\"}";
+        if (index.getTarget().startsWith("entries(")) return "{\"index_keys_and_values\":\"\"}";
+        return "{}";
+    }
+}
@@ -0,0 +1,105 @@
+package com.dbschema;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.CodecRegistry;
+import com.dbschema.codec.jbigdecimal.BigintCodec;
+import com.dbschema.codec.jbytes.BlobCodec;
+import com.dbschema.codec.jstring.InetCodec;
+import com.dbschema.codec.jstring.DurationCodec;
+import com.dbschema.codec.jlong.*;
+import com.dbschema.codec.jsqldate.DateCodec;
+import com.dbschema.codec.jsqltime.TimeCodec;
+import com.dbschema.codec.jstring.UuidCodec;
+import com.dbschema.codec.jstring.TimeuuidCodec;
+
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Clusters shared by connections with the same uri and properties, so only the first connection reads
+ * the schema and token metadata and opens the control connection. Every connection has its own session.
+ * A cluster is created for the first connection and closed when the last one is closed.
+ */
+class SharedClusters {
+    private static final Map<String, Cluster> clusters = new HashMap<>();
+    private static final Map<Cluster, Integer> users = new IdentityHashMap<>();
+    private static final Map<Cluster, String> keys = new IdentityHashMap<>();
+
+    private SharedClusters() {
+    }
+
+    /**
+     * The codecs are registered before the cluster is published, so other connections never see it without them.
+     *
+     * @return cluster that must be released when the connection is closed or fails to connect
+     */
+    static Cluster acquire(CassandraClientURI clientURI, Properties info) throws UnknownHostException, SSLParamsException {
+        String key = key(clientURI, info);
+        synchronized (clusters) {
+            Cluster cluster = clusters.get(key);
+            if (cluster != null && cluster.isClosed()) cluster = null;
+            if (cluster == null) {
+                cluster = clientURI.createCluster();
+                registerCodecs(cluster);
+                clusters.put(key, cluster);
+                keys.put(cluster, key);
+                users.put(cluster, 0);
+            }
+            users.put(cluster, users.get(cluster) + 1);
+            return cluster;
+        }
+    }
+
+    /**
+     * Closes the cluster if it is not used by other connections.
+     */
+    static void release(Cluster cluster) {
+        synchronized (clusters) {
+            Integer count = users.get(cluster);
+            if (count != null && count > 1) {
+                users.put(cluster, count - 1);
+                return;
+            }
+            users.remove(cluster);
+            String key = keys.remove(cluster);
+            if (key != null && clusters.get(key) == cluster) clusters.remove(key);
+        }
+        cluster.close();
+    }
+
+    private static void registerCodecs(Cluster cluster) {
+        CodecRegistry myCodecRegistry = cluster.getConfiguration().getCodecRegistry();
+        myCodecRegistry.register(IntCodec.INSTANCE);
+        myCodecRegistry.register(DecimalCodec.INSTANCE);
+        myCodecRegistry.register(DoubleCodec.INSTANCE);
+        myCodecRegistry.register(com.dbschema.codec.jlong.FloatCodec.INSTANCE);
+        myCodecRegistry.register(SmallintCodec.INSTANCE);
+        myCodecRegistry.register(TinyintCodec.INSTANCE);
+        myCodecRegistry.register(VarintCodec.INSTANCE);
+        myCodecRegistry.register(BlobCodec.INSTANCE);
+        myCodecRegistry.register(com.dbschema.codec.jdouble.FloatCodec.INSTANCE);
+        myCodecRegistry.register(com.dbschema.codec.jdouble.DecimalCodec.INSTANCE);
+        myCodecRegistry.register(DateCodec.INSTANCE);
+        myCodecRegistry.register(TimeCodec.INSTANCE);
+        myCodecRegistry.register(BigintCodec.INSTANCE);
+        myCodecRegistry.register(UuidCodec.INSTANCE);
+        myCodecRegistry.register(DurationCodec.INSTANCE);
+        myCodecRegistry.register(TimeuuidCodec.INSTANCE);
+        myCodecRegistry.register(InetCodec.INSTANCE);
+    }
+
+    /**
+     * Options are read from properties before the uri, so both define the cluster.
+     */
+    private static String key(CassandraClientURI clientURI, Properties info) {
+        Map<String, String> properties = new TreeMap<>();
+        if (info != null) {
+            for (String name : info.stringPropertyNames()) properties.put(name, info.getProperty(name));
+        }
+        return clientURI.getURI() + '\n' + properties;
+    }
+}
@@ -0,0 +1,145 @@
+package com.dbschema;
+
+import com.datastax.driver.core.NettyOptions;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Shares one event loop group per transport and one timer among all clusters created by the driver, so the number
+ * of I/O threads depends on the number of cores and not on the number of connections. They are created for the first
+ * cluster and shut down when the last cluster is closed. Channels allocate buffers from the pooled allocator.
+ */
+class SharedNettyOptions extends NettyOptions {
+    private static final Logger logger = Logger.getLogger("SharedNettyOptionsLogger");
+    private static final Object LOCK = new Object();
+    private static final Map<Transport, EventLoopGroup> eventLoopGroups = new EnumMap<>(Transport.class);
+    private static final Map<Transport, Integer> eventLoopGroupUsers = new EnumMap<>(Transport.class);
+    private static Timer timer;
+    private static int timerUsers;
+
+    private final Transport transport;
+    private final int threads;
+
+    /**
+     * @param transport value of the transport option: epoll, nio or auto
+     * @param threads   number of I/O threads, 0 for the Netty default of twice the number of cores.
+     *                  Only the first cluster of the shared event loop group decides
+     * @throws IllegalArgumentException if the transport is unknown, or epoll is requested and not available
+     */
+    SharedNettyOptions(String transport, int threads) {
+        this.transport = Transport.resolve(transport);
+        this.threads = threads;
+    }
+
+    @Override
+    public EventLoopGroup eventLoopGroup(ThreadFactory threadFactory) {
+        synchronized (LOCK) {
+            EventLoopGroup group = eventLoopGroups.get(transport);
+            if (group == null) {
+                ThreadFactory ioThreadFactory = new DefaultThreadFactory("cassandra-jdbc-" + transport.name().toLowerCase(Locale.ENGLISH), true);
+                group = transport == Transport.EPOLL ? EpollTransport.eventLoopGroup(threads, ioThreadFactory) :
+                        new NioEventLoopGroup(threads, ioThreadFactory);
+                eventLoopGroups.put(transport, group);
+                eventLoopGroupUsers.put(transport, 0);
+            }
+            eventLoopGroupUsers.put(transport, eventLoopGroupUsers.get(transport) + 1);
+            return group;
+        }
+    }
+
+    @Override
+    public Class<? extends SocketChannel> channelClass() {
+        return transport == Transport.EPOLL ? EpollTransport.channelClass() : NioSocketChannel.class;
+    }
+
+    @Override
+    public void onClusterClose(EventLoopGroup group) {
+        synchronized (LOCK) {
+            int users = eventLoopGroupUsers.get(transport) - 1;
+            eventLoopGroupUsers.put(transport, users);
+            if (users > 0) return;
+            eventLoopGroups.remove(transport);
+        }
+        group.shutdownGracefully(0, 15, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Override
+    public Timer timer(ThreadFactory threadFactory) {
+        return acquireTimer();
+    }
+
+    @Override
+    public void onClusterClose(Timer timer) {
+        releaseTimer(timer);
+    }
+
+    /**
+     * @return the shared timer, also used by the driver outside of clusters, must be released with {@link #releaseTimer}
+     */
+    static Timer acquireTimer() {
+        synchronized (LOCK) {
+            if (timer == null) timer = new HashedWheelTimer(new DefaultThreadFactory("cassandra-jdbc-timer", true));
+            timerUsers++;
+            return timer;
+        }
+    }
+
+    static void releaseTimer(Timer timer) {
+        synchronized (LOCK) {
+            if (--timerUsers > 0) return;
+            SharedNettyOptions.timer = null;
+        }
+        timer.stop();
+    }
+
+    @Override
+    public void afterBootstrapInitialized(Bootstrap bootstrap) {
+        bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+    }
+
+    private enum Transport {
+        NIO, EPOLL;
+
+        static Transport resolve(String option) {
+            String value = option.trim().toLowerCase(Locale.ENGLISH);
+            switch (value) {
+                case "nio":
+                    return NIO;
+                case "epoll":
+                    if (!isEpollAvailable()) {
+                        throw new IllegalArgumentException("Netty native epoll transport is not available on this platform");
+                    }
+                    return EPOLL;
+                case "auto":
+                    if (isEpollAvailable()) return EPOLL;
+                    logger.fine("Netty native epoll transport is not available, using NIO");
+                    return NIO;
+                default:
+                    throw new IllegalArgumentException("Option transport must be one of epoll, nio or auto, got '" + option + "'");
+            }
+        }
+
+        private static boolean isEpollAvailable() {
+            try {
+                return EpollTransport.isAvailable();
+            } catch (LinkageError e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.dbschema;
+
+import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.DriverException;
+
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads {@link TableStatistics} from {@code system.size_estimates} and keeps them for {@code ttlSeconds}.
+ * <p>
+ * Every node stores estimates of its own primary ranges only, so the query is sent to every host that is up
+ * (at most {@link #MAX_QUERIES}) with {@link Statement#setHost}, and the distinct ranges of all answers are summed.
+ * Hosts that fail to answer are skipped. Ranges that were not reported are extrapolated from the fraction
+ * of the ring the summed ranges cover. Statistics of many tables are read with one query of the keyspace per host.
+ */
+class SizeEstimates {
+    private static final String QUERY = "select table_name, range_start, range_end, mean_partition_size, partitions_count " +
+            "from system.size_estimates where keyspace_name = ? and table_name = ?";
+    private static final String KEYSPACE_QUERY = "select table_name, range_start, range_end, mean_partition_size, partitions_count " +
+            "from system.size_estimates where keyspace_name = ?";
+    private static final int MAX_QUERIES = 16;
+    private static final BigInteger MURMUR3_RING = BigInteger.ONE.shiftLeft(64);
+    private static final BigInteger RANDOM_RING = BigInteger.ONE.shiftLeft(127);
+
+    private final Session session;
+    private final long ttlMillis;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    SizeEstimates(Session session, int ttlSeconds) {
+        this.session = session;
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    TableStatistics get(String keyspace, String table) throws SQLException {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(key(keyspace, table));
+        if (entry != null && entry.expires > now) return entry.statistics;
+        return put(load(keyspace, table), keyspace, table, now);
+    }
+
+    /**
+     * Statistics of several tables of a keyspace. Tables that are not cached are read with one query
+     * of the whole keyspace per host.
+     *
+     * @return statistics by table name
+     */
+    Map<String, TableStatistics> get(String keyspace, Collection<String> tables) throws SQLException {
+        long now = System.currentTimeMillis();
+        Map<String, TableStatistics> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String table : tables) {
+            Entry entry = cache.get(key(keyspace, table));
+            if (entry != null && entry.expires > now) result.put(table, entry.statistics);
+            else missing.add(table);
+        }
+        if (missing.size() == 1) {
+            result.put(missing.get(0), get(keyspace, missing.get(0)));
+        } else if (!missing.isEmpty()) {
+            Map<String, Accumulator> loaded = load(keyspace, null);
+            for (String table : missing) result.put(table, put(loaded, keyspace, table, now));
+        }
+        return result;
+    }
+
+    private TableStatistics put(Map<String, Accumulator> loaded, String keyspace, String table, long now) {
+        Accumulator accumulator = loaded.get(table);
+        TableStatistics statistics = (accumulator != null ? accumulator : new Accumulator(null)).toStatistics(keyspace, table);
+        if (ttlMillis > 0) cache.put(key(keyspace, table), new Entry(statistics, now + ttlMillis));
+        return statistics;
+    }
+
+    /**
+     * @param table table to read, null to read every table of the keyspace
+     * @return summed ranges by table name
+     */
+    private Map<String, Accumulator> load(String keyspace, String table) throws SQLException {
+        Metadata metadata = session.getCluster().getMetadata();
+        List<ResultSetFuture> futures = new ArrayList<>();
+        for (Host host : metadata.getAllHosts()) {
+            if (!host.isUp()) continue;
+            if (futures.size() == MAX_QUERIES) break;
+            futures.add(session.executeAsync(statement(keyspace, table).setHost(host)));
+        }
+        if (futures.isEmpty()) futures.add(session.executeAsync(statement(keyspace, table)));
+
+        BigInteger ring = ringSize(metadata.getPartitioner());
+        Map<String, Accumulator> tables = new HashMap<>();
+        DriverException failure = null;
+        int answers = 0;
+        for (ResultSetFuture future : futures) {
+            ResultSet rows;
+            try {
+                rows = future.getUninterruptibly();
+            } catch (DriverException e) {
+                failure = e;
+                continue;
+            }
+            answers++;
+            for (Row row : rows) {
+                String name = row.getString("table_name");
+                Accumulator accumulator = tables.get(name);
+                if (accumulator == null) tables.put(name, accumulator = new Accumulator(ring));
+                accumulator.add(row);
+            }
+        }
+        if (answers == 0 && failure != null) throw new SQLException(failure.getMessage(), failure);
+        return tables;
+    }
+
+    private static SimpleStatement statement(String keyspace, String table) {
+        SimpleStatement statement = table == null ? new SimpleStatement(KEYSPACE_QUERY, keyspace) : new SimpleStatement(QUERY, keyspace, table);
+        statement.setIdempotent(true);
+        return statement;
+    }
+
+    private static String key(String keyspace, String table) {
+        return keyspace + '\n' + table;
+    }
+
+    /**
+     * @return number of tokens of the partitioner, null if the partitioner does not have numeric tokens
+     */
+    private static BigInteger ringSize(String partitioner) {
+        if (partitioner == null) return null;
+        if (partitioner.endsWith("Murmur3Partitioner")) return MURMUR3_RING;
+        if (partitioner.endsWith("RandomPartitioner")) return RANDOM_RING;
+        return null;
+    }
+
+    /**
+     * @return number of tokens in (start, end], a range that ends where it starts covers the whole ring
+     */
+    private static BigInteger rangeSize(BigInteger ring, String start, String end) {
+        BigInteger size = new BigInteger(end).subtract(new BigInteger(start));
+        return size.signum() > 0 ? size : size.add(ring);
+    }
+
+    /**
+     * Sums the distinct ranges of one table reported by all hosts.
+     */
+    private static class Accumulator {
+        private final Set<String> ranges = new HashSet<>();
+        private final BigInteger ring;
+        private BigInteger covered = BigInteger.ZERO;
+        private long partitions;
+        private double totalSize;
+
+        /**
+         * @param ring number of tokens of the partitioner, null if unknown
+         */
+        Accumulator(BigInteger ring) {
+            this.ring = ring;
+        }
+
+        void add(Row row) {
+            String start = row.getString("range_start");
+            String end = row.getString("range_end");
+            if (!ranges.add(start + ".." + end)) return;
+            long count = row.getLong("partitions_count");
+            partitions += count;
+            totalSize += (double) count * row.getLong("mean_partition_size");
+            if (ring != null) covered = covered.add(rangeSize(ring, start, end));
+        }
+
+        TableStatistics toStatistics(String keyspace, String table) {
+            double fraction = ring == null || ranges.isEmpty() ? 1 : Math.min(1, covered.doubleValue() / ring.doubleValue());
+            long meanPartitionSize = partitions == 0 ? 0 : Math.round(totalSize / partitions);
+            return new TableStatistics(keyspace, table, Math.round(partitions / fraction), meanPartitionSize, ranges.size(), fraction);
+        }
+    }
+
+    private static class Entry {
+        final TableStatistics statistics;
+        final long expires;
+
+        Entry(TableStatistics statistics, long expires) {
+            this.statistics = statistics;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.dbschema;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Log of statements whose execution and page fetches together took at least {@code slowQueryThresholdMillis}.
+ * <p>
+ * Statements are identified by fingerprints: the CQL with literals replaced by bind markers, see {@link CqlShape}.
+ * At most {@code slowQueryLogsPerSecond} statements are logged, the number of skipped ones is added to the next line.
+ * Count, latency percentiles and rows of slow statements are aggregated by fingerprint for the most recent
+ * {@link #MAX_FINGERPRINTS} fingerprints and returned by {@code SHOW SLOW QUERIES}.
+ */
+class SlowQueryLog {
+    private static final Logger logger = Logger.getLogger("SlowQueryLogger");
+    static final int MAX_FINGERPRINTS = 1000;
+    static final int MAX_FINGERPRINT_LENGTH = 2000;
+    private static final int SAMPLES = 256;
+
+    private final long thresholdNanos;
+    private final int logsPerSecond;
+    private final Map<String, Aggregate> aggregates = new LinkedHashMap<String, Aggregate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Aggregate> eldest) {
+            return size() > MAX_FINGERPRINTS;
+        }
+    };
+    private long second;
+    private int logged;
+    private int skipped;
+
+    SlowQueryLog(int thresholdMillis, int logsPerSecond) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.logsPerSecond = logsPerSecond;
+    }
+
+    boolean isEnabled() {
+        return thresholdNanos > 0;
+    }
+
+    /**
+     * @param cql text of the statement, null for batches
+     */
+    Execution start(Statement statement, String cql, ResultSet resultSet, long executeNanos) {
+        return new Execution(statement, cql, resultSet, executeNanos);
+    }
+
+    /**
+     * @return aggregates of slow statements sorted by their total time, longest first
+     */
+    ListResultSet getAggregates() {
+        List<Object[]> rows = new ArrayList<>();
+        synchronized (aggregates) {
+            for (Map.Entry<String, Aggregate> entry : aggregates.entrySet()) {
+                Aggregate aggregate = entry.getValue();
+                Snapshot snapshot = aggregate.latencies.getSnapshot();
+                rows.add(new Object[]{entry.getKey(), aggregate.latencies.getCount(),
+                        toMillis(snapshot.getMedian()), toMillis(snapshot.get99thPercentile()), toMillis(snapshot.getMax()),
+                        toMillis(aggregate.totalNanos), aggregate.rows});
+            }
+        }
+        Collections.sort(rows, new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] a, Object[] b) {
+                return Long.compare((Long) b[5], (Long) a[5]);
+            }
+        });
+        return new ListResultSet(rows, new String[]{"fingerprint", "count", "p50_ms", "p99_ms", "max_ms", "total_ms", "rows"});
+    }
+
+    private static long toMillis(double nanos) {
+        return Math.round(nanos / TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private void record(Execution execution, long totalNanos) {
+        String fingerprint = fingerprint(execution.cql);
+        aggregate(fingerprint, totalNanos, execution.rows);
+        int skippedBefore = tryLog();
+        if (skippedBefore < 0) return;
+        ExecutionInfo info = execution.resultSet.getExecutionInfo();
+        List<String> tried = new ArrayList<>();
+        for (Host host : info.getTriedHosts()) tried.add(String.valueOf(host.getEndPoint()));
+        logger.info("Slow query " + toMillis(totalNanos) + " ms (execute " + toMillis(execution.executeNanos) + " ms, " +
+                execution.pages + " pages, " + execution.rows + " rows): " + fingerprint +
+                " [parameters=" + parameterCount(execution.statement) +
+                ", consistency=" + execution.statement.getConsistencyLevel() +
+                ", coordinator=" + (info.getQueriedHost() == null ? null : info.getQueriedHost().getEndPoint()) +
+                ", tried=" + tried + "]" +
+                (skippedBefore > 0 ? " (" + skippedBefore + " slow queries were not logged)" : ""));
+    }
+
+    void aggregate(String fingerprint, long totalNanos, long rows) {
+        synchronized (aggregates) {
+            Aggregate aggregate = aggregates.get(fingerprint);
+            if (aggregate == null) {
+                aggregate = new Aggregate();
+                aggregates.put(fingerprint, aggregate);
+            }
+            aggregate.latencies.update(totalNanos);
+            aggregate.totalNanos += totalNanos;
+            aggregate.rows += rows;
+        }
+    }
+
+    private int tryLog() {
+        return tryLog(System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * @param now current time in seconds
+     * @return number of skipped lines since the last logged one, -1 if this line should be skipped too
+     */
+    synchronized int tryLog(long now) {
+        if (now != second) {
+            second = now;
+            logged = 0;
+        }
+        if (logged >= logsPerSecond) {
+            skipped++;
+            return -1;
+        }
+        logged++;
+        int result = skipped;
+        skipped = 0;
+        return result;
+    }
+
+    static String fingerprint(String cql) {
+        if (cql == null) return "BATCH";
+        CqlShape shape = CqlShape.parse(cql);
+        String fingerprint = (shape == null ? cql : shape.getQuery()).trim();
+        return fingerprint.length() > MAX_FINGERPRINT_LENGTH ? fingerprint.substring(0, MAX_FINGERPRINT_LENGTH) + "..." : fingerprint;
+    }
+
+    private static int parameterCount(Statement statement) {
+        if (statement instanceof BoundStatement) return ((BoundStatement) statement).preparedStatement().getVariables().size();
+        if (statement instanceof SimpleStatement) return ((SimpleStatement) statement).valuesCount();
+        if (statement instanceof BatchStatement) return ((BatchStatement) statement).size();
+        return 0;
+    }
+
+    private static class Aggregate {
+        private final Histogram latencies = new Histogram(new SlidingWindowReservoir(SAMPLES));
+        private long totalNanos;
+        private long rows;
+    }
+
+    /**
+     * Execution of a statement and fetches of its pages, finished when all pages were read or the result set is closed.
+     */
+    class Execution {
+        private final Statement statement;
+        private final String cql;
+        private final ResultSet resultSet;
+        private final long executeNanos;
+        private long pageNanos;
+        private int pages = 1;
+        private int rows;
+        private boolean finished;
+
+        private Execution(Statement statement, String cql, ResultSet resultSet, long executeNanos) {
+            this.statement = statement;
+            this.cql = cql;
+            this.resultSet = resultSet;
+            this.executeNanos = executeNanos;
+            this.rows = resultSet.getAvailableWithoutFetching();
+        }
+
+        ResultSet getResultSet() {
+            return resultSet;
+        }
+
+        void addPage(long nanos) {
+            pageNanos += nanos;
+            pages++;
+            rows += resultSet.getAvailableWithoutFetching();
+        }
+
+        void finish() {
+            if (finished) return;
+            finished = true;
+            long totalNanos = executeNanos + pageNanos;
+            if (totalNanos >= thresholdNanos) record(this, totalNanos);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.dbschema;
 
 import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.QueryTrace;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -50,4 +52,177 @@ public interface StatementExecutor {
       return matcher.matches() ? new ExecutionResult(new ListResultSet(connection.getConsistencyLevel().name(), "consistency_level")) : null;
     }
   }
+
+  /**
+   * Selects a profile for statements of the connection that do not select their own, {@code PROFILE DEFAULT} clears it.
+   */
+  class SetProfileExecutor implements StatementExecutor {
+    public static final SetProfileExecutor INSTANCE = new SetProfileExecutor();
+    private static final Pattern PATTERN = Pattern.compile("PROFILE (\\w+)", CASE_INSENSITIVE);
+
+    @Override
+    public ExecutionResult execute(CassandraConnection connection, String sql) throws SQLException {
+      Matcher matcher = PATTERN.matcher(sql.trim());
+      if (!matcher.matches()) return null;
+      String profile = matcher.group(1);
+      connection.setProfile(profile.equalsIgnoreCase("DEFAULT") ? null : profile);
+      return new ExecutionResult(null);
+    }
+  }
+
+  class GetProfileExecutor implements StatementExecutor {
+    public static final GetProfileExecutor INSTANCE = new GetProfileExecutor();
+    private static final Pattern PATTERN = Pattern.compile("PROFILE", CASE_INSENSITIVE);
+
+    @Override
+    public ExecutionResult execute(CassandraConnection connection, String sql) {
+      Matcher matcher = PATTERN.matcher(sql.trim());
+      if (!matcher.matches()) return null;
+      ExecutionProfile profile = connection.getProfile();
+      return new ExecutionResult(new ListResultSet(profile == null ? "default" : profile.getName(), "profile"));
+    }
+  }
+
+  /**
+   * {@code PAGING <rows>} sets the fetch size of statements of the connection, {@code PAGING OFF} fetches all rows at once,
+   * {@code PAGING ON} restores the default and {@code PAGING} shows the current fetch size.
+   */
+  class PagingExecutor implements StatementExecutor {
+    public static final PagingExecutor INSTANCE = new PagingExecutor();
+    private static final Pattern PATTERN = Pattern.compile("PAGING(?:\\s+(\\w+))?", CASE_INSENSITIVE);
+
+    @Override
+    public ExecutionResult execute(CassandraConnection connection, String sql) throws SQLException {
+      Matcher matcher = PATTERN.matcher(sql.trim());
+      if (!matcher.matches()) return null;
+      String value = matcher.group(1);
+      if (value == null) {
+        Integer fetchSize = connection.getFetchSize();
+        return new ExecutionResult(new ListResultSet(fetchSize == null ? "ON" : fetchSize == Integer.MAX_VALUE ? "OFF" : fetchSize.toString(), "paging"));
+      }
+      if (value.equalsIgnoreCase("ON")) connection.setFetchSize(null);
+      else if (value.equalsIgnoreCase("OFF")) connection.setFetchSize(Integer.MAX_VALUE);
+      else connection.setFetchSize(parsePositive(value, "Page size"));
+      return new ExecutionResult(null);
+    }
+  }
+
+  /**
+   * {@code TRACING ON|OFF} switches tracing of statements of the connection,
+   * {@code TRACING} returns the trace events of the last traced statement and {@code TRACING SAMPLED}
+   * those of the last statement traced by the {@code traceSampling} option.
+   */
+  class TracingExecutor implements StatementExecutor {
+    public static final TracingExecutor INSTANCE = new TracingExecutor();
+    private static final Pattern PATTERN = Pattern.compile("TRACING(?:\\s+(ON|OFF|SAMPLED))?", CASE_INSENSITIVE);
+
+    @Override
+    public ExecutionResult execute(CassandraConnection connection, String sql) throws SQLException {
+      Matcher matcher = PATTERN.matcher(sql.trim());
+      if (!matcher.matches()) return null;
+      String value = matcher.group(1);
+      if (value != null && value.equalsIgnoreCase("SAMPLED")) {
+        ListResultSet events = connection.getSampledTraceEvents();
+        if (events == null) throw new SQLException("No statement was sampled, set the traceSampling option");
+        return new ExecutionResult(events);
+      }
+      if (value != null) {
+        connection.setTracing(value.equalsIgnoreCase("ON"));
+        return new ExecutionResult(null);
+      }
+      ListenableFuture<QueryTrace> trace = connection.getLastTrace();
+      if (trace == null) throw new SQLException("No statement was traced, enable tracing with TRACING ON");
+      return new ExecutionResult(TraceCapture.toResultSet(TraceCapture.get(trace)));
+    }
+  }
+
+  /**
+   * {@code SERIAL CONSISTENCY SERIAL|LOCAL_SERIAL} sets the serial consistency level of lightweight transactions
+   * of the connection, {@code SERIAL CONSISTENCY} shows it.
+   */
+  class SerialConsistencyExecutor implements StatementExecutor {
+    public static final SerialConsistencyExecutor INSTANCE = new SerialConsistencyExecutor();
+    private static final Pattern PATTERN = Pattern.compile("SERIAL\\s+CONSISTENCY(?:\\s+(\\w+))?", CASE_INSENSITIVE);
+
+    @Override
+    public ExecutionResult execute(CassandraConnection connection, String sql) throws SQLException {
+      Matcher matcher = PATTERN.matcher(sql.trim());
+      if (!matcher.matches()) return null;
+      String level = matcher.group(1);
+      if (level == null) {
+        return new ExecutionResult(new ListResultSet(connection.getSerialConsistencyLevel().name(), "serial_consistency_level"));
+      }
+      ConsistencyLevel consistencyLevel;
+      try {
+        consistencyLevel = ConsistencyLevel.valueOf(level.toUpperCase(Locale.ENGLISH));
+      }
+      catch (IllegalArgumentException e) {
+        throw new SQLException(e);
+      }
+      if (!consistencyLevel.isSerial()) throw new SQLException("Serial consistency level must be SERIAL or LOCAL_SERIAL");
+      connection.setSerialConsistencyLevel(consistencyLevel);
+      return new ExecutionResult(null);
+    }
+  }
+
+  /**
+   * {@code TIMEOUT <ms>} sets the client side timeout of statements of the connection, 0 disables it,
+   * {@code TIMEOUT DEFAULT} restores the {@code readTimeoutMillis} option and {@code TIMEOUT} shows the timeout.
+   */
+  class TimeoutExecutor implements StatementExecutor {
+    public static final TimeoutExecutor INSTANCE = new TimeoutExecutor();
+    private static final Pattern PATTERN = Pattern.compile("TIMEOUT(?:\\s+(\\w+))?", CASE_INSENSITIVE);
+
+    @Override
+    public ExecutionResult execute(CassandraConnection connection, String sql) throws SQLException {
+      Matcher matcher = PATTERN.matcher(sql.trim());
+      if (!matcher.matches()) return null;
+      String value = matcher.group(1);
+      if (value == null) {
+        Integer timeout = connection.getTimeoutMillis();
+        return new ExecutionResult(new ListResultSet(timeout == null ? connection.getClientURI().getReadTimeoutMillis() : timeout, "timeout_ms"));
+      }
+      if (value.equalsIgnoreCase("DEFAULT")) connection.setTimeoutMillis(null);
+      else connection.setTimeoutMillis(value.equals("0") ? 0 : parsePositive(value, "Timeout"));
+      return new ExecutionResult(null);
+    }
+  }
+
+  /**
+   * {@code SHOW SLOW QUERIES} returns statements of the connection that were slower than {@code slowQueryThresholdMillis}
+   * aggregated by fingerprint.
+   */
+  class SlowQueriesExecutor implements StatementExecutor {
+    public static final SlowQueriesExecutor INSTANCE = new SlowQueriesExecutor();
+    private static final Pattern PATTERN = Pattern.compile("SHOW\\s+SLOW\\s+QUERIES", CASE_INSENSITIVE);
+
+    @Override
+    public ExecutionResult execute(CassandraConnection connection, String sql) {
+      Matcher matcher = PATTERN.matcher(sql.trim());
+      return matcher.matches() ? new ExecutionResult(connection.getSlowQueryLog().getAggregates()) : null;
+    }
+  }
+
+  static int parsePositive(String value, String name) throws SQLException {
+    try {
+      int result = Integer.parseInt(value);
+      if (result > 0) return result;
+    }
+    catch (NumberFormatException ignored) {
+    }
+    throw new SQLException(name + " must be a positive integer, got '" + value + "'");
+  }
+
+  /**
+   * Answers queries on schema tables from driver metadata, see {@link SchemaTables}.
+   */
+  class SchemaQueryExecutor implements StatementExecutor {
+    public static final SchemaQueryExecutor INSTANCE = new SchemaQueryExecutor();
+
+    @Override
+    public ExecutionResult execute(CassandraConnection connection, String sql) {
+      ResultSet resultSet = connection.getSchemaTables().query(sql, null, true);
+      return resultSet != null ? new ExecutionResult(resultSet) : null;
+    }
+  }
 }
@@ -0,0 +1,105 @@
+package com.dbschema;
+
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latencies and row counts of a connection measured by the JDBC layer, kept in a Dropwizard {@link MetricRegistry}
+ * like the metrics of the driver ({@code Cluster.getMetrics()}). Timers keep a decaying sample of latencies,
+ * so percentiles reflect the last minutes.
+ * <p>
+ * Executions are timed until the first page is received and split by kind: {@code query} for statements
+ * that return rows, {@code update}, {@code batch} and {@code prepare}. Failed executions are timed by {@code error}.
+ * Fetches of next pages are timed separately.
+ * <p>
+ * With the {@code jmxEnabled} option the metrics are reported to JMX in the domain of the driver metrics, which is
+ * named after the connection uri (see {@link CassandraClientURI#getJmxDomain()}), followed by the connection number,
+ * because connections with the same options share the cluster. Rows and bytes are counted only while the metrics
+ * are reported, since measuring them reads every value of every row.
+ */
+public class StatementMetrics {
+    private static final AtomicInteger CONNECTION_COUNTER = new AtomicInteger();
+    private final MetricRegistry registry = new MetricRegistry();
+    private final Timer queries = registry.timer("query-latency");
+    private final Timer updates = registry.timer("update-latency");
+    private final Timer batches = registry.timer("batch-latency");
+    private final Timer prepares = registry.timer("prepare-latency");
+    private final Timer errors = registry.timer("error-latency");
+    private final Timer pageFetches = registry.timer("page-fetch-latency");
+    private final Meter rows = registry.meter("rows-decoded");
+    private final Meter bytes = registry.meter("bytes-decoded");
+    private volatile JmxReporter reporter;
+
+    /**
+     * @param clusterName name of the cluster, which is the JMX domain of the driver metrics
+     */
+    void startJmxReporting(String clusterName) {
+        JmxReporter reporter = JmxReporter.forRegistry(registry).inDomain(clusterName + ".connection#" + CONNECTION_COUNTER.incrementAndGet()).build();
+        reporter.start();
+        this.reporter = reporter;
+    }
+
+    /**
+     * @return true if the metrics are reported to JMX, rows are counted only then
+     */
+    boolean isReporting() {
+        return reporter != null;
+    }
+
+    void close() {
+        if (reporter != null) reporter.stop();
+    }
+
+    /**
+     * @return registry of the metrics of this connection. The {@code rows-decoded} and {@code bytes-decoded} meters
+     * stay at zero unless the {@code jmxEnabled} option is set, only the timers are updated without it
+     */
+    public MetricRegistry getRegistry() {
+        return registry;
+    }
+
+    void recordExecution(Statement statement, ResultSet resultSet, long nanos) {
+        Timer timer = statement instanceof BatchStatement ? batches :
+                resultSet.getColumnDefinitions().size() != 0 ? queries : updates;
+        timer.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordError(long nanos) {
+        errors.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordPrepare(long nanos) {
+        prepares.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordPageFetch(long nanos) {
+        pageFetches.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts the row and the size of its serialized values.
+     *
+     * @return size of the values in bytes
+     */
+    long recordRow(Row row, ColumnDefinitions columns) {
+        long size = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            ByteBuffer value = row.getBytesUnsafe(i);
+            if (value != null) size += value.remaining();
+        }
+        rows.mark();
+        bytes.mark(size);
+        return size;
+    }
+}
@@ -0,0 +1,286 @@
+package com.dbschema;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.*;
+import com.datastax.driver.core.policies.DefaultRetryPolicy;
+import com.datastax.driver.core.policies.FallthroughRetryPolicy;
+import com.datastax.driver.core.policies.RetryPolicy;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Retry policies of a connection, selected by name for the whole connection or for a single statement.
+ * <p>
+ * {@code default}, {@code fallthrough} and {@code downgrading} are the retry policies of the driver,
+ * they retry at once or not at all. {@code backoff} lets timeouts, unavailable and overloaded errors reach
+ * the driver caller and executes the statement again after a randomized exponential delay, by sleeping in
+ * {@link #execute} or on the shared timer in {@link #executeAsync}.
+ * Only idempotent statements are executed again, except after errors that guarantee the statement was not
+ * applied: unavailable replicas, an overloaded coordinator and read timeouts.
+ * Statements that are not executed by this class, like internal queries, keep the default policy of the driver.
+ * Retries of a connection are limited by a budget: each request adds {@code retryBudgetPercent / 100}
+ * of a retry to it, up to {@link #MAX_BUDGET}, so during a long overload retries stay a small share of requests.
+ */
+class StatementRetry {
+    private static final Logger logger = Logger.getLogger("StatementRetryLogger");
+    static final String BACKOFF = "backoff";
+    private static final double MAX_BUDGET = 10;
+
+    private final String policy;
+    private final int maxRetries;
+    private final long retryDelayMillis;
+    private final long maxRetryDelayMillis;
+    private final double budgetPerRequest;
+    private double budget = MAX_BUDGET;
+    private Timer timer;
+    private boolean closed;
+
+    StatementRetry(CassandraClientURI clientURI) {
+        this.policy = clientURI.getRetryPolicy();
+        this.maxRetries = clientURI.getMaxRetries();
+        this.retryDelayMillis = clientURI.getRetryDelayMillis();
+        this.maxRetryDelayMillis = clientURI.getMaxRetryDelayMillis();
+        this.budgetPerRequest = clientURI.getRetryBudgetPercent() / 100.0;
+    }
+
+    /**
+     * @param name one of {@link DriverPropertyInfoHelper#RETRY_POLICY_CHOICES}, case insensitive
+     * @return driver retry policy or null if the name is unknown
+     */
+    // downgrading is deprecated by the driver but stays a documented choice of the retryPolicy option
+    @SuppressWarnings("deprecation")
+    static RetryPolicy driverPolicy(String name) {
+        switch (name.trim().toLowerCase(Locale.ENGLISH)) {
+            case "default":
+                return DefaultRetryPolicy.INSTANCE;
+            case "fallthrough":
+                return FallthroughRetryPolicy.INSTANCE;
+            case "downgrading":
+                return com.datastax.driver.core.policies.DowngradingConsistencyRetryPolicy.INSTANCE;
+            case BACKOFF:
+                return BackoffDriverPolicy.INSTANCE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param name one of {@link DriverPropertyInfoHelper#RETRY_POLICY_CHOICES}, case insensitive
+     * @return default retry policy of the cluster, {@code backoff} retries with the default policy of the driver
+     * the statements it does not execute
+     */
+    static RetryPolicy clusterPolicy(String name) {
+        RetryPolicy retryPolicy = driverPolicy(name);
+        return retryPolicy == BackoffDriverPolicy.INSTANCE ? DefaultRetryPolicy.INSTANCE : retryPolicy;
+    }
+
+    /**
+     * @param statementPolicy policy of the statement, null to use the policy of the connection
+     */
+    ResultSet execute(Session session, Statement statement, String statementPolicy) {
+        if (!BACKOFF.equals(setPolicy(statement, statementPolicy))) return session.execute(statement);
+        for (int attempt = 0; ; attempt++) {
+            addRequest();
+            try {
+                return session.execute(statement);
+            } catch (DriverException e) {
+                if (!isRetryable(session, statement, e) || attempt >= maxRetries || !takeRetry()) throw e;
+                logger.fine("Retrying statement after " + e.getMessage());
+                if (!sleep(attempt)) throw e;
+            }
+        }
+    }
+
+    /**
+     * Executes the statement like {@link #execute} without blocking, delays of {@code backoff} are scheduled
+     * on the shared timer.
+     *
+     * @param statementPolicy policy of the statement, null to use the policy of the connection
+     */
+    ListenableFuture<ResultSet> executeAsync(Session session, Statement statement, String statementPolicy) {
+        if (!BACKOFF.equals(setPolicy(statement, statementPolicy))) return session.executeAsync(statement);
+        SettableFuture<ResultSet> result = SettableFuture.create();
+        executeAsync(session, statement, result, 0);
+        return result;
+    }
+
+    private void executeAsync(final Session session, final Statement statement, final SettableFuture<ResultSet> result,
+                              final int attempt) {
+        addRequest();
+        ResultSetFuture future;
+        try {
+            future = session.executeAsync(statement);
+        } catch (RuntimeException e) {
+            result.setException(e);
+            return;
+        }
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet resultSet) {
+                result.set(resultSet);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                if (!(t instanceof DriverException) || !isRetryable(session, statement, (DriverException) t) ||
+                        attempt >= maxRetries || !takeRetry()) {
+                    result.setException(t);
+                    return;
+                }
+                logger.fine("Retrying statement after " + t.getMessage());
+                try {
+                    timer().newTimeout(new TimerTask() {
+                        @Override
+                        public void run(Timeout timeout) {
+                            executeAsync(session, statement, result, attempt + 1);
+                        }
+                    }, delay(attempt), TimeUnit.MILLISECONDS);
+                } catch (IllegalStateException e) {
+                    // the connection was closed
+                    result.setException(t);
+                }
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Waits for a result of {@link #executeAsync}, errors are thrown like by {@link ResultSetFuture#getUninterruptibly()}.
+     */
+    static ResultSet getUninterruptibly(ListenableFuture<ResultSet> future) {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            // a copy has the stack trace of the calling thread
+            if (cause instanceof DriverException) throw ((DriverException) cause).copy();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new DriverInternalError("Unexpected exception thrown", cause);
+        }
+    }
+
+    /**
+     * @return name of the policy the statement is executed with
+     */
+    private String setPolicy(Statement statement, String statementPolicy) {
+        String name = statementPolicy != null ? statementPolicy : policy;
+        // the default policy of the cluster retries backoff errors at once, see clusterPolicy
+        if (statementPolicy != null || BACKOFF.equals(name)) statement.setRetryPolicy(driverPolicy(name));
+        return name;
+    }
+
+    private synchronized Timer timer() {
+        if (closed) throw new IllegalStateException("Connection is closed");
+        if (timer == null) timer = SharedNettyOptions.acquireTimer();
+        return timer;
+    }
+
+    /**
+     * Releases the shared timer, retries that are not scheduled yet fail with their last error.
+     */
+    synchronized void close() {
+        closed = true;
+        if (timer != null) SharedNettyOptions.releaseTimer(timer);
+        timer = null;
+    }
+
+    private static boolean isRetryable(Session session, Statement statement, DriverException e) {
+        if (e instanceof UnavailableException || e instanceof OverloadedException || e instanceof ReadTimeoutException) {
+            return true;
+        }
+        if (!(e instanceof WriteTimeoutException || e instanceof OperationTimedOutException || e instanceof NoHostAvailableException)) {
+            return false;
+        }
+        Boolean idempotent = statement.isIdempotent();
+        return idempotent != null ? idempotent :
+                session.getCluster().getConfiguration().getQueryOptions().getDefaultIdempotence();
+    }
+
+    private synchronized void addRequest() {
+        budget = Math.min(MAX_BUDGET, budget + budgetPerRequest);
+    }
+
+    private synchronized boolean takeRetry() {
+        if (budget < 1) return false;
+        budget--;
+        return true;
+    }
+
+    /**
+     * @return false if the thread was interrupted
+     */
+    private boolean sleep(int attempt) {
+        try {
+            Thread.sleep(delay(attempt));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private long delay(int attempt) {
+        long delay = Math.min(maxRetryDelayMillis, retryDelayMillis << Math.min(attempt, 20));
+        // randomized, so statements failed by the same overload do not retry in lockstep
+        return ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+    }
+
+    /**
+     * Driver part of the {@code backoff} policy: errors that are retried with a delay are rethrown,
+     * failures of a connection to a host are retried on the next host like by the default policy.
+     */
+    private static class BackoffDriverPolicy implements RetryPolicy {
+        static final BackoffDriverPolicy INSTANCE = new BackoffDriverPolicy();
+
+        @Override
+        public RetryDecision onReadTimeout(Statement statement, ConsistencyLevel cl, int requiredResponses,
+                                           int receivedResponses, boolean dataRetrieved, int nbRetry) {
+            return RetryDecision.rethrow();
+        }
+
+        @Override
+        public RetryDecision onWriteTimeout(Statement statement, ConsistencyLevel cl, WriteType writeType,
+                                            int requiredAcks, int receivedAcks, int nbRetry) {
+            return RetryDecision.rethrow();
+        }
+
+        @Override
+        public RetryDecision onUnavailable(Statement statement, ConsistencyLevel cl, int requiredReplica,
+                                           int aliveReplica, int nbRetry) {
+            return RetryDecision.rethrow();
+        }
+
+        @Override
+        public RetryDecision onRequestError(Statement statement, ConsistencyLevel cl, DriverException e, int nbRetry) {
+            if (e instanceof OverloadedException) return RetryDecision.rethrow();
+            return DefaultRetryPolicy.INSTANCE.onRequestError(statement, cl, e, nbRetry);
+        }
+
+        @Override
+        public void init(Cluster cluster) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.dbschema;
+
+import com.datastax.driver.core.*;
+import com.datastax.driver.core.exceptions.DriverException;
+import com.datastax.driver.core.exceptions.PagingStateException;
+import com.datastax.driver.core.exceptions.QueryValidationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Full table scan split by token ranges.
+ * <p>
+ * Ranges are scanned one after another with {@code token(pk) > start AND token(pk) <= end} queries.
+ * After every page the last token and the paging state of the range are appended to the checkpoint file,
+ * so a scan that was interrupted resumes from the last recorded page when it is run again
+ * with the same checkpoint file. A range that fails is retried with exponential backoff and,
+ * if it still fails, reported in {@link ScanReport#getFailedRanges()} while the scan moves on.
+ * <p>
+ * Delivery is at-least-once: if the paging state of a range can not be reused the range is resumed
+ * from the partition of its last token, so rows of that partition may be passed to the handler again.
+ */
+public class TableScan {
+    private static final Logger logger = Logger.getLogger("TableScanLogger");
+
+    private final Session session;
+    private final String keyspace;
+    private final String table;
+    private final Map<String, PreparedStatement> preparedStatements = new HashMap<>();
+    private ConsistencyLevel consistencyLevel;
+    private List<String> columns = Collections.emptyList();
+    private File checkpointFile;
+    private int fetchSize = 5000;
+    private int maxRetries = 5;
+    private long retryDelayMillis = 500;
+    private long maxRetryDelayMillis = 30000;
+    private long syncIntervalMillis = 1000;
+    private String tokenExpression;
+    private String selection;
+
+    TableScan(Session session, String keyspace, String table, ConsistencyLevel consistencyLevel) {
+        this.session = session;
+        this.keyspace = quote(keyspace);
+        this.table = quote(table);
+        this.consistencyLevel = consistencyLevel;
+    }
+
+    public interface RowHandler {
+        /**
+         * @param row scanned row, its last column is the token of the partition key
+         */
+        void handle(Row row) throws Exception;
+    }
+
+    public TableScan setColumns(List<String> columns) {
+        this.columns = new ArrayList<>(columns);
+        return this;
+    }
+
+    /**
+     * @param checkpointFile file to record progress to. Without it the scan can not be resumed.
+     */
+    public TableScan setCheckpointFile(File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        return this;
+    }
+
+    public TableScan setConsistencyLevel(ConsistencyLevel consistencyLevel) {
+        this.consistencyLevel = consistencyLevel;
+        return this;
+    }
+
+    public TableScan setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public TableScan setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * @param retryDelayMillis    delay before the first retry of a range, doubled on every next retry
+     * @param maxRetryDelayMillis upper bound of the delay
+     */
+    public TableScan setRetryDelay(long retryDelayMillis, long maxRetryDelayMillis) {
+        this.retryDelayMillis = retryDelayMillis;
+        this.maxRetryDelayMillis = maxRetryDelayMillis;
+        return this;
+    }
+
+    /**
+     * @param syncIntervalMillis minimal interval between two fsync calls on the checkpoint file
+     */
+    public TableScan setSyncIntervalMillis(long syncIntervalMillis) {
+        this.syncIntervalMillis = syncIntervalMillis;
+        return this;
+    }
+
+    public ScanReport run(RowHandler handler) throws SQLException {
+        long startTime = System.currentTimeMillis();
+        Metadata metadata = session.getCluster().getMetadata();
+        KeyspaceMetadata keyspaceMetadata = metadata.getKeyspace(keyspace);
+        TableMetadata tableMetadata = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(table);
+        if (tableMetadata == null) throw new SQLException("Table " + keyspace + "." + table + " does not exist");
+        init(tableMetadata);
+
+        ScanCheckpoint checkpoint = null;
+        try {
+            checkpoint = checkpointFile != null ? ScanCheckpoint.open(checkpointFile, keyspace + "." + table, syncIntervalMillis) : null;
+            List<ScanCheckpoint.RangeState> ranges = checkpoint != null ? checkpoint.getRanges() : Collections.emptyList();
+            int resumed = 0;
+            for (ScanCheckpoint.RangeState range : ranges) {
+                if (range.done || range.pagingState != null || range.lastToken != null) resumed++;
+            }
+            if (ranges.isEmpty()) {
+                ranges = splitRing(metadata, checkpoint);
+            }
+
+            Map<String, String> failed = new LinkedHashMap<>();
+            int completed = 0;
+            int retries = 0;
+            long rows = 0;
+            for (ScanCheckpoint.RangeState range : ranges) {
+                if (range.done) {
+                    completed++;
+                    continue;
+                }
+                for (int attempt = 0; ; attempt++) {
+                    long before = range.rows;
+                    try {
+                        scanRange(metadata, range, checkpoint, handler);
+                        rows += range.rows - before;
+                        completed++;
+                        break;
+                    } catch (QueryValidationException e) {
+                        rows += range.rows - before;
+                        failed.put(range.start + ".." + range.end, e.getMessage());
+                        break;
+                    } catch (DriverException e) {
+                        rows += range.rows - before;
+                        if (attempt >= maxRetries) {
+                            logger.warning("Giving up on range " + range.start + ".." + range.end + ": " + e.getMessage());
+                            failed.put(range.start + ".." + range.end, e.getMessage());
+                            break;
+                        }
+                        retries++;
+                        sleep(attempt);
+                    }
+                }
+            }
+            return new ScanReport(ranges.size(), completed, resumed, failed, rows, retries, System.currentTimeMillis() - startTime);
+        } catch (IOException e) {
+            throw new SQLException("Cannot use scan checkpoint " + checkpointFile + ": " + e.getMessage(), e);
+        } finally {
+            if (checkpoint != null) {
+                try {
+                    checkpoint.close();
+                } catch (IOException e) {
+                    logger.warning("Cannot close scan checkpoint " + checkpointFile + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void init(TableMetadata tableMetadata) {
+        tokenExpression = TokenRanges.tokenExpression(tableMetadata);
+        selection = columns.isEmpty() ? "*" : String.join(", ", columns);
+    }
+
+    private List<ScanCheckpoint.RangeState> splitRing(Metadata metadata, ScanCheckpoint checkpoint) throws IOException, SQLException {
+        List<TokenRange> tokenRanges = TokenRanges.split(metadata, 1);
+        if (tokenRanges.isEmpty()) throw new SQLException("Token metadata is not available");
+        List<ScanCheckpoint.RangeState> ranges = new ArrayList<>(tokenRanges.size());
+        for (TokenRange range : tokenRanges) {
+            String start = range.getStart().toString();
+            String end = range.getEnd().toString();
+            ranges.add(new ScanCheckpoint.RangeState(start, end));
+        }
+        if (checkpoint != null) checkpoint.setRanges(ranges);
+        return ranges;
+    }
+
+    private void scanRange(Metadata metadata, ScanCheckpoint.RangeState range, ScanCheckpoint checkpoint,
+                           RowHandler handler) throws IOException, SQLException {
+        ResultSet resultSet = session.execute(bindRange(metadata, range));
+        int tokenIndex = resultSet.getColumnDefinitions().size() - 1;
+        while (true) {
+            for (int i = resultSet.getAvailableWithoutFetching(); i > 0; i--) {
+                Row row = resultSet.one();
+                try {
+                    handler.handle(row);
+                } catch (Exception e) {
+                    throw new SQLException("Scan aborted by row handler: " + e.getMessage(), e);
+                }
+                range.rows++;
+                range.lastToken = row.getToken(tokenIndex).toString();
+            }
+            if (resultSet.isFullyFetched()) break;
+            PagingState pagingState = resultSet.getExecutionInfo().getPagingState();
+            range.pagingState = pagingState == null ? null : pagingState.toString();
+            if (checkpoint != null) checkpoint.page(range);
+            // fetches the next page synchronously
+            if (resultSet.isExhausted()) break;
+        }
+        if (checkpoint != null) checkpoint.done(range);
+        else range.done = true;
+    }
+
+    private Statement bindRange(Metadata metadata, ScanCheckpoint.RangeState range) {
+        Token start = metadata.newToken(range.start);
+        Token end = metadata.newToken(range.end);
+        boolean bounded = TokenRanges.isBounded(start, end);
+        if (range.pagingState != null) {
+            try {
+                Statement statement = bind(false, bounded, start, end);
+                statement.setPagingState(PagingState.fromString(range.pagingState));
+                return statement;
+            } catch (PagingStateException e) {
+                logger.info("Paging state of range " + range.start + ".." + range.end + " can not be reused, resuming from the last token");
+            }
+        }
+        if (range.lastToken != null) {
+            return bind(true, bounded, metadata.newToken(range.lastToken), end);
+        }
+        return bind(false, bounded, start, end);
+    }
+
+    private Statement bind(boolean inclusiveStart, boolean bounded, Token start, Token end) {
+        BoundStatement statement = prepare(inclusiveStart, bounded).bind();
+        statement.setToken(0, start);
+        if (bounded) statement.setToken(1, end);
+        statement.setFetchSize(fetchSize);
+        statement.setConsistencyLevel(consistencyLevel);
+        statement.setIdempotent(true);
+        return statement;
+    }
+
+    private PreparedStatement prepare(boolean inclusiveStart, boolean bounded) {
+        String query = "SELECT " + selection + ", " + tokenExpression + " FROM " + keyspace + "." + table +
+                " WHERE " + TokenRanges.condition(tokenExpression, inclusiveStart, bounded);
+        PreparedStatement statement = preparedStatements.get(query);
+        if (statement == null) {
+            statement = session.prepare(query);
+            preparedStatements.put(query, statement);
+        }
+        return statement;
+    }
+
+    private void sleep(int attempt) throws SQLException {
+        long delay = Math.min(maxRetryDelayMillis, retryDelayMillis << Math.min(attempt, 20));
+        // randomized, so several clients scanning the same cluster do not retry in lockstep
+        delay = ThreadLocalRandom.current().nextLong(delay / 2, delay + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Scan was interrupted", e);
+        }
+    }
+
+    private static String quote(String name) {
+        return ParseUtils.isDoubleQuoted(name) ? name : Metadata.quote(name);
+    }
+}
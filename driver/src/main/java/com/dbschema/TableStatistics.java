@@ -0,0 +1,74 @@
+package com.dbschema;
+
+/**
+ * Approximate size of a table from {@code system.size_estimates}, see {@link CassandraMetaData#getTableStatistics}.
+ * <p>
+ * Every node estimates only the token ranges it owns and refreshes the estimates every few minutes,
+ * so the numbers are extrapolated from the ranges reported by the sampled nodes to the whole ring.
+ */
+public class TableStatistics {
+    private final String keyspace;
+    private final String table;
+    private final long partitionsCount;
+    private final long meanPartitionSize;
+    private final int rangeCount;
+    private final double ringFraction;
+
+    TableStatistics(String keyspace, String table, long partitionsCount, long meanPartitionSize, int rangeCount, double ringFraction) {
+        this.keyspace = keyspace;
+        this.table = table;
+        this.partitionsCount = partitionsCount;
+        this.meanPartitionSize = meanPartitionSize;
+        this.rangeCount = rangeCount;
+        this.ringFraction = ringFraction;
+    }
+
+    public String getKeyspace() {
+        return keyspace;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @return estimated number of partitions in the whole ring
+     */
+    public long getPartitionsCount() {
+        return partitionsCount;
+    }
+
+    /**
+     * @return mean partition size in bytes, weighted by the number of partitions of every range
+     */
+    public long getMeanPartitionSize() {
+        return meanPartitionSize;
+    }
+
+    /**
+     * @return estimated size of the table in bytes, without replication
+     */
+    public long getTotalSize() {
+        return partitionsCount * meanPartitionSize;
+    }
+
+    /**
+     * @return number of distinct token ranges the estimate is based on
+     */
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    /**
+     * @return fraction of the ring covered by the sampled ranges, 1 if the partitioner is unknown and nothing is extrapolated
+     */
+    public double getRingFraction() {
+        return ringFraction;
+    }
+
+    @Override
+    public String toString() {
+        return keyspace + "." + table + ": " + partitionsCount + " partitions, mean size " + meanPartitionSize +
+                " bytes, " + rangeCount + " ranges covering " + Math.round(ringFraction * 100) + "% of the ring";
+    }
+}
@@ -0,0 +1,57 @@
+package com.dbschema;
+
+import com.datastax.driver.core.ColumnMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.TableMetadata;
+import com.datastax.driver.core.Token;
+import com.datastax.driver.core.TokenRange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helpers for queries restricted by {@code token(pk)} ranges.
+ */
+class TokenRanges {
+    private TokenRanges() {
+    }
+
+    /**
+     * @param splits number of sub-ranges every range of the ring is split into
+     * @return sorted non-wrapping ranges that cover the whole ring, empty if token metadata is not available
+     */
+    static List<TokenRange> split(Metadata metadata, int splits) {
+        List<TokenRange> result = new ArrayList<>();
+        for (TokenRange range : metadata.getTokenRanges()) {
+            for (TokenRange subRange : splits > 1 ? range.splitEvenly(splits) : Collections.singletonList(range)) {
+                result.addAll(subRange.unwrap());
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * Only the last non-wrapping range of the ring ends before it starts: it ends at the minimum token,
+     * so its upper bound must be omitted from the query.
+     */
+    static boolean isBounded(Token start, Token end) {
+        return end.compareTo(start) > 0;
+    }
+
+    static String tokenExpression(TableMetadata table) {
+        List<String> partitionKey = new ArrayList<>();
+        for (ColumnMetadata column : table.getPartitionKey()) {
+            partitionKey.add(Metadata.quoteIfNecessary(column.getName()));
+        }
+        return "token(" + String.join(", ", partitionKey) + ")";
+    }
+
+    /**
+     * @return WHERE condition with one bind marker for the start and, if bounded, one for the end of the range
+     */
+    static String condition(String tokenExpression, boolean inclusiveStart, boolean bounded) {
+        return tokenExpression + (inclusiveStart ? " >= ?" : " > ?") + (bounded ? " AND " + tokenExpression + " <= ?" : "");
+    }
+}
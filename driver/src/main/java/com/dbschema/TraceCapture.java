@@ -0,0 +1,122 @@
+package com.dbschema;
+
+import com.datastax.driver.core.ExecutionInfo;
+import com.datastax.driver.core.QueryTrace;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Query traces of a connection. Besides statements traced on request, a {@code traceSampling} fraction of
+ * all statements is traced. Traces are read from {@code system_traces} asynchronously by the driver, so executing
+ * a statement does not wait for its trace, and traces that took at least {@code slowTraceThresholdMillis}
+ * are logged. The last sampled trace is kept, see {@link CassandraConnection#getSampledTraceEvents()}.
+ */
+class TraceCapture {
+    private static final Logger logger = Logger.getLogger("QueryTraceLogger");
+
+    private final double sampling;
+    private final int slowThresholdMillis;
+    private volatile ListenableFuture<QueryTrace> lastSampled;
+
+    TraceCapture(double sampling, int slowThresholdMillis) {
+        this.sampling = sampling;
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    /**
+     * @return true if a statement that is not traced on request should be traced
+     */
+    boolean sample() {
+        return sampling > 0 && ThreadLocalRandom.current().nextDouble() < sampling;
+    }
+
+    /**
+     * Starts reading the trace of an executed statement.
+     *
+     * @param cql     text of the statement for the log, null for batches
+     * @param sampled whether the statement was traced by sampling rather than on request
+     */
+    ListenableFuture<QueryTrace> capture(ExecutionInfo info, final String cql, boolean sampled) {
+        ListenableFuture<QueryTrace> future = info.getQueryTraceAsync();
+        if (sampled) lastSampled = future;
+        if (slowThresholdMillis > 0) {
+            Futures.addCallback(future, new FutureCallback<QueryTrace>() {
+                @Override
+                public void onSuccess(QueryTrace trace) {
+                    if (trace.getDurationMicros() >= slowThresholdMillis * 1000L) {
+                        logger.info("Slow query trace " + trace.getTraceId() + " took " + trace.getDurationMicros() / 1000 + " ms" +
+                                " on " + trace.getCoordinator() + ": " + (cql == null ? "batch" : cql) + "\n" + format(trace));
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    logger.fine("Cannot read query trace: " + t.getMessage());
+                }
+            }, MoreExecutors.directExecutor());
+        }
+        return future;
+    }
+
+    /**
+     * @return trace of the last sampled statement, null if no statement was sampled
+     */
+    ListenableFuture<QueryTrace> getLastSampled() {
+        return lastSampled;
+    }
+
+    /**
+     * @return trace read by {@link #capture}, waits until it is read
+     */
+    static QueryTrace get(ListenableFuture<QueryTrace> future) throws SQLException {
+        try {
+            return Uninterruptibles.getUninterruptibly(future);
+        } catch (ExecutionException e) {
+            throw new SQLException("Cannot read query trace: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    static ListResultSet toResultSet(QueryTrace trace) {
+        List<Object[]> rows = new ArrayList<>();
+        for (QueryTrace.Event event : trace.getEvents()) {
+            rows.add(new Object[]{event.getDescription(), new Date(event.getTimestamp()), String.valueOf(event.getSource()),
+                    event.getSourceElapsedMicros(), event.getThreadName()});
+        }
+        return new ListResultSet(rows, new String[]{"activity", "timestamp", "source", "source_elapsed", "thread"});
+    }
+
+    /**
+     * @return events as a chain of warnings, null if the trace has no events
+     */
+    static SQLWarning toWarnings(QueryTrace trace) {
+        SQLWarning first = null;
+        for (QueryTrace.Event event : trace.getEvents()) {
+            SQLWarning warning = new SQLWarning(format(event));
+            if (first == null) first = warning;
+            else first.setNextWarning(warning);
+        }
+        return first;
+    }
+
+    private static String format(QueryTrace trace) {
+        StringBuilder result = new StringBuilder();
+        for (QueryTrace.Event event : trace.getEvents()) result.append("  ").append(format(event)).append('\n');
+        return result.toString();
+    }
+
+    private static String format(QueryTrace.Event event) {
+        return event.getDescription() + " [" + event.getThreadName() + "] " + event.getSource() + " " + event.getSourceElapsedMicros() + " us";
+    }
+}
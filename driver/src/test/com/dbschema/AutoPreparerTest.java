@@ -0,0 +1,22 @@
+package com.dbschema;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AutoPreparerTest {
+    @Test
+    public void testSelectsAllColumns() {
+        assertTrue(AutoPreparer.selectsAllColumns("SELECT * FROM ks.t WHERE pk = ?"));
+        assertTrue(AutoPreparer.selectsAllColumns("select json * from t"));
+        assertTrue(AutoPreparer.selectsAllColumns("/* comment */ SELECT * FROM t"));
+    }
+
+    @Test
+    public void testSelectsNamedColumns() {
+        assertFalse(AutoPreparer.selectsAllColumns("SELECT a, b FROM t WHERE pk = ?"));
+        assertFalse(AutoPreparer.selectsAllColumns("SELECT count(*) FROM t WHERE pk = ?"));
+        assertFalse(AutoPreparer.selectsAllColumns("SELECT a FROM t WHERE pk = ? AND c = ? * 2"));
+        assertFalse(AutoPreparer.selectsAllColumns("UPDATE t SET a = ? WHERE pk = ?"));
+    }
+}
@@ -106,4 +106,181 @@ public class CassandraClientURITest {
         CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?", properties);
         assertEquals(ConsistencyLevel.EACH_QUORUM, uri.getConsistencyLevel());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testOptionValueWithSlashes() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/ks?schemaCacheFile=/tmp/cache/schema.bin", null);
+        assertEquals("ks", uri.getKeyspace());
+        assertEquals("/tmp/cache/schema.bin", uri.getSchemaCacheFile());
+    }
+
+    @Test
+    public void testParallelAggregateOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?parallelAggregates=true&parallelAggregateConcurrency=4", null);
+        assertTrue(uri.getParallelAggregates());
+        assertEquals(4, uri.getParallelAggregateConcurrency());
+        assertEquals(1, uri.getParallelAggregateSplits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidParallelAggregateConcurrency() {
+        new CassandraClientURI("jdbc:cassandra://localhost:9042/?parallelAggregateConcurrency=0", null);
+    }
+
+    @Test
+    public void testInFanOutOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?inFanOutThreshold=50", null);
+        assertEquals(50, uri.getInFanOutThreshold());
+        assertEquals(32, uri.getInFanOutConcurrency());
+        assertEquals(0, new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getInFanOutThreshold());
+    }
+
+    @Test
+    public void testMultiGetConcurrency() {
+        assertEquals(64, new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getMultiGetConcurrency());
+        assertEquals(8, new CassandraClientURI("jdbc:cassandra://localhost:9042/?multiGetConcurrency=8", null).getMultiGetConcurrency());
+    }
+
+    @Test
+    public void testAutoPrepareOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?autoPrepareThreshold=3&autoPrepareCacheSize=10", null);
+        assertEquals(3, uri.getAutoPrepareThreshold());
+        assertEquals(10, uri.getAutoPrepareCacheSize());
+        assertEquals(0, new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getAutoPrepareThreshold());
+    }
+
+    @Test
+    public void testMetadataOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?metadataEnabled=false&schemaRefreshIntervalMillis=0", null);
+        assertFalse(uri.getMetadataEnabled());
+        assertEquals(0, uri.getSchemaRefreshIntervalMillis());
+        assertEquals(20, uri.getMaxPendingSchemaRefreshes());
+        assertTrue(new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getMetadataEnabled());
+    }
+
+    @Test
+    public void testSizeEstimatesTtl() {
+        assertEquals(300, new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getSizeEstimatesTtlSeconds());
+        assertEquals(0, new CassandraClientURI("jdbc:cassandra://localhost:9042/?sizeEstimatesTtlSeconds=0", null).getSizeEstimatesTtlSeconds());
+    }
+
+    @Test
+    public void testPreparedWarmupOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?preparedWarmupFile=/tmp/prepared.cql&preparedWarmupSize=50", null);
+        assertEquals("/tmp/prepared.cql", uri.getPreparedWarmupFile());
+        assertEquals(50, uri.getPreparedWarmupSize());
+        assertNull(new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getPreparedWarmupFile());
+    }
+
+    @Test
+    public void testIoThreads() {
+        assertEquals(0, new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getIoThreads());
+        assertEquals(4, new CassandraClientURI("jdbc:cassandra://localhost:9042/?ioThreads=4", null).getIoThreads());
+    }
+
+    @Test
+    public void testTransport() {
+        assertEquals("auto", new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getTransport());
+        assertEquals("nio", new CassandraClientURI("jdbc:cassandra://localhost:9042/?transport=NIO", null).getTransport());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTransport() {
+        new CassandraClientURI("jdbc:cassandra://localhost:9042/?transport=kqueue", null);
+    }
+
+    @Test
+    public void testSocketOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?readTimeoutMillis=500&tcpNoDelay=false&keepAlive=true&receiveBufferSize=65536&heartbeatIntervalSeconds=0", null);
+        assertEquals(500, uri.getReadTimeoutMillis());
+        assertEquals(5000, uri.getConnectTimeoutMillis());
+        assertFalse(uri.getTcpNoDelay());
+        assertEquals(Boolean.TRUE, uri.getKeepAlive());
+        assertNull(uri.getSendBufferSize());
+        assertEquals(Integer.valueOf(65536), uri.getReceiveBufferSize());
+        assertEquals(0, uri.getHeartbeatIntervalSeconds());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidKeepAlive() {
+        new CassandraClientURI("jdbc:cassandra://localhost:9042/?keepAlive=yes", null);
+    }
+
+    @Test
+    public void testRetryOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?retryPolicy=Backoff&maxRetries=5&retryBudgetPercent=0", null);
+        assertEquals("backoff", uri.getRetryPolicy());
+        assertEquals(5, uri.getMaxRetries());
+        assertEquals(100, uri.getRetryDelayMillis());
+        assertEquals(10000, uri.getMaxRetryDelayMillis());
+        assertEquals(0, uri.getRetryBudgetPercent());
+        assertEquals("default", new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getRetryPolicy());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRetryPolicy() {
+        new CassandraClientURI("jdbc:cassandra://localhost:9042/?retryPolicy=forever", null);
+    }
+
+    @Test
+    public void testProfiles() {
+        Properties properties = new Properties();
+        properties.put("profile.OLTP.timeoutMs", "200");
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?profile.oltp.consistency=local_one&profile.scan.fetchSize=10000&profile.scan.retry=backoff", properties);
+        assertEquals(2, uri.getProfiles().size());
+        ExecutionProfile oltp = uri.getProfile("Oltp");
+        assertEquals(ConsistencyLevel.LOCAL_ONE, oltp.getConsistencyLevel());
+        assertEquals(Integer.valueOf(200), oltp.getTimeoutMillis());
+        assertNull(oltp.getFetchSize());
+        ExecutionProfile scan = uri.getProfile("scan");
+        assertEquals(Integer.valueOf(10000), scan.getFetchSize());
+        assertEquals("backoff", scan.getRetryPolicy());
+        assertNull(uri.getProfile("batch"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProfileSetting() {
+        new CassandraClientURI("jdbc:cassandra://localhost:9042/?profile.oltp.timeout=200", null);
+    }
+
+    @Test
+    public void testProfileSerialConsistency() {
+        ExecutionProfile profile = new CassandraClientURI("jdbc:cassandra://localhost:9042/?profile.lwt.serialConsistency=local_serial&profile.lwt.tracing=true", null).getProfile("lwt");
+        assertEquals(ConsistencyLevel.LOCAL_SERIAL, profile.getSerialConsistencyLevel());
+        assertEquals(Boolean.TRUE, profile.getTracing());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProfileSerialConsistency() {
+        new CassandraClientURI("jdbc:cassandra://localhost:9042/?profile.lwt.serialConsistency=quorum", null);
+    }
+
+    @Test
+    public void testTraceOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?traceSampling=0.001&slowTraceThresholdMillis=500", null);
+        assertEquals(0.001, uri.getTraceSampling(), 0);
+        assertEquals(500, uri.getSlowTraceThresholdMillis());
+        assertEquals(0, new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getTraceSampling(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTraceSampling() {
+        new CassandraClientURI("jdbc:cassandra://localhost:9042/?traceSampling=2", null);
+    }
+
+    @Test
+    public void testJmxOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://host1:9042,host2/ks?jmxEnabled=true", null);
+        assertTrue(uri.getJmxEnabled());
+        assertEquals("cassandra-jdbc.host1_9042,host2/ks", uri.getJmxDomain());
+        assertFalse(new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getJmxEnabled());
+    }
+
+    @Test
+    public void testSlowQueryOptions() {
+        CassandraClientURI uri = new CassandraClientURI("jdbc:cassandra://localhost:9042/?slowQueryThresholdMillis=250", null);
+        assertEquals(250, uri.getSlowQueryThresholdMillis());
+        assertEquals(10, uri.getSlowQueryLogsPerSecond());
+        assertEquals(0, new CassandraClientURI("jdbc:cassandra://localhost:9042", null).getSlowQueryThresholdMillis());
+    }
+}
@@ -0,0 +1,56 @@
+package com.dbschema;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CqlShapeTest {
+
+    @Test
+    public void testSelect() {
+        CqlShape shape = CqlShape.parse("SELECT * FROM t WHERE id = 5 AND name = 'a b' LIMIT 10");
+        assertNotNull(shape);
+        assertEquals("SELECT * FROM t WHERE id = ? AND name = ? LIMIT ?", shape.getQuery());
+        assertEquals(Arrays.asList("5", "'a b'", "10"), shape.getLiterals());
+    }
+
+    @Test
+    public void testSelectListLiteralsAreKept() {
+        CqlShape shape = CqlShape.parse("SELECT writetime(v), 1 FROM t WHERE k = true");
+        assertNotNull(shape);
+        assertEquals("SELECT writetime(v), 1 FROM t WHERE k = ?", shape.getQuery());
+        assertEquals(Collections.singletonList("true"), shape.getLiterals());
+    }
+
+    @Test
+    public void testModifications() {
+        assertEquals("INSERT INTO t (k, v) VALUES (?, ?) USING TTL ?",
+                CqlShape.parse("INSERT INTO t (k, v) VALUES (0xff, -1.5) USING TTL 60").getQuery());
+        assertEquals("UPDATE t SET v = ? WHERE k = ? IF v = ?",
+                CqlShape.parse("UPDATE t SET v = 'x' WHERE k = 123e4567-e89b-12d3-a456-426614174000 IF v = 'y'").getQuery());
+        assertEquals("DELETE FROM t WHERE k = ?;", CqlShape.parse("DELETE FROM t WHERE k = 1;").getQuery());
+    }
+
+    @Test
+    public void testSameShapeForDifferentLiterals() {
+        assertEquals(CqlShape.parse("SELECT v FROM t WHERE k = 1").getQuery(), CqlShape.parse("SELECT v FROM t WHERE k = 2").getQuery());
+    }
+
+    @Test
+    public void testCommentsAreKept() {
+        assertEquals("/* c */ SELECT v FROM t WHERE k = ? -- 2",
+                CqlShape.parse("/* c */ SELECT v FROM t WHERE k = 1 -- 2").getQuery());
+    }
+
+    @Test
+    public void testNotParsed() {
+        assertNull(CqlShape.parse("SELECT v FROM t WHERE k = ?"));
+        assertNull(CqlShape.parse("SELECT v FROM t WHERE k = :k"));
+        assertNull(CqlShape.parse("SELECT v FROM t; SELECT v FROM u"));
+        assertNull(CqlShape.parse("CREATE TABLE t (k int PRIMARY KEY)"));
+        assertNull(CqlShape.parse("-- only a comment"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.dbschema;
+
+import com.dbschema.CqlTokenizer.Token;
+import com.dbschema.CqlTokenizer.Type;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CqlTokenizerTest {
+
+    private static List<Type> types(String cql) {
+        List<Type> types = new ArrayList<>();
+        for (Token token : CqlTokenizer.tokenize(cql)) types.add(token.type);
+        return types;
+    }
+
+    @Test
+    public void testLiterals() {
+        assertEquals(Arrays.asList(Type.STRING, Type.SYMBOL, Type.NUMBER, Type.SYMBOL, Type.NUMBER, Type.SYMBOL, Type.UUID,
+                Type.SYMBOL, Type.BLOB, Type.SYMBOL, Type.IDENTIFIER, Type.SYMBOL, Type.STRING),
+                types("'it''s', 42, -1.5e3, 123e4567-e89b-12d3-a456-426614174000, 0xCAFE, 1h30m, $$a$b$$"));
+    }
+
+    @Test
+    public void testIdentifiers() {
+        List<Token> tokens = CqlTokenizer.tokenize("SELECT \"Quoted\"\"Name\" FROM Ks.Tbl");
+        assertEquals(Type.QUOTED_IDENTIFIER, tokens.get(1).type);
+        assertEquals("Quoted\"Name", tokens.get(1).identifier());
+        assertEquals("ks", tokens.get(3).identifier());
+        assertTrue(tokens.get(0).is("select"));
+        assertFalse(tokens.get(1).is("Quoted"));
+    }
+
+    @Test
+    public void testBindMarkers() {
+        List<Token> tokens = CqlTokenizer.tokenize("pk IN ? AND ck = :name");
+        assertEquals(Type.BIND_MARKER, tokens.get(2).type);
+        assertTrue(tokens.get(2).is("?"));
+        assertEquals(Type.BIND_MARKER, tokens.get(6).type);
+        assertEquals(":name", tokens.get(6).text);
+    }
+
+    @Test
+    public void testComments() {
+        List<Token> tokens = CqlTokenizer.tokenize("/* a */ SELECT -- b\n * // c\nFROM t");
+        assertEquals(Arrays.asList(Type.COMMENT, Type.IDENTIFIER, Type.COMMENT, Type.SYMBOL, Type.COMMENT, Type.IDENTIFIER, Type.IDENTIFIER),
+                types("/* a */ SELECT -- b\n * // c\nFROM t"));
+        assertEquals(4, CqlTokenizer.significant(tokens).size());
+    }
+
+    @Test
+    public void testMinus() {
+        assertEquals(Arrays.asList(Type.IDENTIFIER, Type.SYMBOL, Type.NUMBER), types("a = -1"));
+        assertEquals(Arrays.asList(Type.IDENTIFIER, Type.SYMBOL, Type.NUMBER), types("a - 1"));
+        assertEquals(Arrays.asList(Type.IDENTIFIER, Type.SYMBOL, Type.NUMBER), types("a <= -1"));
+        assertEquals(Arrays.asList(Type.NUMBER, Type.SYMBOL, Type.NUMBER), types("2 -1"));
+    }
+
+    @Test
+    public void testOffsets() {
+        Token token = CqlTokenizer.tokenize("SELECT  'x'").get(1);
+        assertEquals(8, token.start);
+        assertEquals(11, token.end);
+        assertEquals("'x'", token.text);
+    }
+}
@@ -0,0 +1,71 @@
+package com.dbschema;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.SimpleStatement;
+import com.datastax.driver.core.Statement;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ExecutionProfileTest {
+    private static ExecutionProfile profile(String... settings) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < settings.length; i += 2) map.put(settings[i], settings[i + 1]);
+        return new ExecutionProfile("test", map);
+    }
+
+    @Test
+    public void testApply() {
+        ExecutionProfile profile = profile("consistency", "local_quorum", "serialconsistency", "LOCAL_SERIAL",
+                "timeoutms", "250", "fetchsize", "1000", "idempotent", "true", "tracing", "TRUE");
+        Statement statement = new SimpleStatement("select * from t");
+        profile.apply(statement);
+        assertEquals(ConsistencyLevel.LOCAL_QUORUM, statement.getConsistencyLevel());
+        assertEquals(ConsistencyLevel.LOCAL_SERIAL, statement.getSerialConsistencyLevel());
+        assertEquals(250, statement.getReadTimeoutMillis());
+        assertEquals(1000, statement.getFetchSize());
+        assertEquals(Boolean.TRUE, statement.isIdempotent());
+        assertTrue(statement.isTracing());
+    }
+
+    @Test
+    public void testUndefinedSettingsKeepStatementValues() {
+        Statement statement = new SimpleStatement("select * from t").setConsistencyLevel(ConsistencyLevel.ONE).setFetchSize(10);
+        statement.enableTracing();
+        profile("timeoutms", "0").apply(statement);
+        assertEquals(ConsistencyLevel.ONE, statement.getConsistencyLevel());
+        assertEquals(10, statement.getFetchSize());
+        assertEquals(0, statement.getReadTimeoutMillis());
+        assertTrue(statement.isTracing());
+    }
+
+    @Test
+    public void testTracingOff() {
+        Statement statement = new SimpleStatement("select * from t");
+        statement.enableTracing();
+        profile("tracing", "false").apply(statement);
+        assertFalse(statement.isTracing());
+    }
+
+    @Test
+    public void testRetryPolicyIsLowerCase() {
+        assertEquals("fallthrough", profile("retry", "FALLTHROUGH").getRetryPolicy());
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        String[][] invalid = {{"consistency", "most"}, {"serialconsistency", "quorum"}, {"timeoutms", "-1"},
+                {"fetchsize", "0"}, {"idempotent", "yes"}, {"retry", "forever"}, {"speed", "fast"}};
+        for (String[] setting : invalid) {
+            try {
+                profile(setting);
+                fail(setting[0] + "=" + setting[1] + " is accepted");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Option profile.test." + setting[0]));
+            }
+        }
+    }
+}
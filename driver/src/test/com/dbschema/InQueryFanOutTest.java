@@ -0,0 +1,63 @@
+package com.dbschema;
+
+import com.dbschema.CqlTokenizer.Token;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class InQueryFanOutTest {
+    private static final InQueryFanOut.PartitionKeys PARTITION_KEYS = new InQueryFanOut.PartitionKeys() {
+        @Override
+        public Set<String> of(Token keyspace, Token table) {
+            if (table.identifier().equals("users")) return Collections.singleton("id");
+            if (table.identifier().equals("events")) return new HashSet<>(Arrays.asList("day", "source"));
+            return null;
+        }
+    };
+
+    private static InQueryFanOut analyze(String cql) {
+        return InQueryFanOut.analyze(cql, PARTITION_KEYS);
+    }
+
+    @Test
+    public void testLiteralKeys() {
+        InQueryFanOut fanOut = analyze("SELECT * FROM ks.users WHERE id IN (1, 2, 1, 3)");
+        assertNotNull(fanOut);
+        assertEquals("SELECT * FROM ks.users WHERE id = ?", fanOut.getQuery());
+        assertEquals(3, fanOut.getLiteralKeyCount());
+    }
+
+    @Test
+    public void testListMarker() {
+        InQueryFanOut fanOut = analyze("SELECT name FROM users WHERE id IN ? AND name = ?");
+        assertNotNull(fanOut);
+        assertEquals("SELECT name FROM users WHERE id = ? AND name = ?", fanOut.getQuery());
+        assertEquals(-1, fanOut.getLiteralKeyCount());
+        assertEquals(Arrays.<Object>asList(1, 2), fanOut.getBoundKeys(new Object[]{Arrays.asList(1, 2, 2), "x"}));
+    }
+
+    @Test
+    public void testKeyMarkers() {
+        InQueryFanOut fanOut = analyze("SELECT * FROM events WHERE source = ? AND day IN (?, ?, ?)");
+        assertNotNull(fanOut);
+        assertEquals("SELECT * FROM events WHERE source = ? AND day = ?", fanOut.getQuery());
+        assertEquals(Arrays.<Object>asList("a", "b"), fanOut.getBoundKeys(new Object[]{"s", "a", "b", "a"}));
+    }
+
+    @Test
+    public void testNotSplit() {
+        assertNull(analyze("SELECT * FROM users WHERE id = 1"));
+        assertNull(analyze("SELECT * FROM unknown WHERE id IN (1, 2)"));
+        assertNull(analyze("SELECT * FROM users WHERE id IN (1, 2) LIMIT 1"));
+        assertNull(analyze("SELECT count(*) FROM users WHERE id IN (1, 2)"));
+        assertNull(analyze("SELECT * FROM users WHERE id IN (1, ?)"));
+        assertNull(analyze("SELECT * FROM users WHERE id IN :ids"));
+        assertNull(analyze("SELECT * FROM events WHERE day IN (1, 2) AND source IN ('a', 'b')"));
+        assertNull(analyze("UPDATE users SET name = 'x' WHERE id IN (1, 2)"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.dbschema;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LikePatternTest {
+
+    @Test
+    public void testAnyName() {
+        assertSame(LikePattern.ANY, LikePattern.compile(null));
+        assertSame(LikePattern.ANY, LikePattern.compile("%"));
+        assertTrue(LikePattern.ANY.matches("anything"));
+        assertNull(LikePattern.ANY.getExactName());
+    }
+
+    @Test
+    public void testExactName() {
+        LikePattern pattern = LikePattern.compile("users");
+        assertEquals("users", pattern.getExactName());
+        assertTrue(pattern.matches("users"));
+        assertFalse(pattern.matches("Users"));
+        assertFalse(pattern.matches("users2"));
+    }
+
+    @Test
+    public void testWildcards() {
+        LikePattern pattern = LikePattern.compile("user_%");
+        assertNull(pattern.getExactName());
+        assertTrue(pattern.matches("users"));
+        assertTrue(pattern.matches("user_events"));
+        assertFalse(pattern.matches("user"));
+        assertTrue(LikePattern.compile("%\nx").matches("a\nx"));
+    }
+
+    @Test
+    public void testEscapes() {
+        LikePattern pattern = LikePattern.compile("user\\_events");
+        assertEquals("user_events", pattern.getExactName());
+        assertFalse(pattern.matches("userXevents"));
+        assertTrue(LikePattern.compile("100\\%%").matches("100%s"));
+        assertFalse(LikePattern.compile("100\\%%").matches("1000"));
+    }
+
+    @Test
+    public void testRegexCharactersAreLiterals() {
+        assertTrue(LikePattern.compile("a.b%").matches("a.bc"));
+        assertFalse(LikePattern.compile("a.b%").matches("axbc"));
+        assertTrue(LikePattern.compile("(x)%").matches("(x)y"));
+    }
+}
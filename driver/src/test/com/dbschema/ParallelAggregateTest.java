@@ -0,0 +1,55 @@
+package com.dbschema;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ParallelAggregateTest {
+
+    @Test
+    public void testCount() {
+        ParallelAggregate aggregate = ParallelAggregate.parse("SELECT count(*) FROM big_table");
+        assertNotNull(aggregate);
+        assertNull(aggregate.getKeyspace());
+        assertEquals("big_table", aggregate.getTable());
+        assertEquals(Collections.singletonList("count"), aggregate.getLabels());
+    }
+
+    @Test
+    public void testSeveralFunctions() {
+        ParallelAggregate aggregate = ParallelAggregate.parse("select COUNT(1), sum(price) AS total, max(\"Name\") from shop.items;");
+        assertNotNull(aggregate);
+        assertEquals("shop", aggregate.getKeyspace());
+        assertEquals("items", aggregate.getTable());
+        assertEquals(Arrays.asList("count", "total", "system.max(Name)"), aggregate.getLabels());
+    }
+
+    @Test
+    public void testQuotedNames() {
+        ParallelAggregate aggregate = ParallelAggregate.parse("SELECT min(Price) FROM \"Shop\" . \"Items\"");
+        assertNotNull(aggregate);
+        assertEquals("\"Shop\"", aggregate.getKeyspace());
+        assertEquals("\"Items\"", aggregate.getTable());
+        assertEquals(Collections.singletonList("system.min(price)"), aggregate.getLabels());
+    }
+
+    @Test
+    public void testUnsupportedQueries() {
+        assertNull(ParallelAggregate.parse("SELECT count(*) FROM t WHERE pk = 1"));
+        assertNull(ParallelAggregate.parse("SELECT count(*) FROM t LIMIT 10"));
+        assertNull(ParallelAggregate.parse("SELECT count(*), name FROM t"));
+        assertNull(ParallelAggregate.parse("SELECT avg(price) FROM t"));
+        assertNull(ParallelAggregate.parse("SELECT * FROM t"));
+        assertNull(ParallelAggregate.parse("UPDATE t SET a = 1 WHERE pk = 1"));
+    }
+
+    @Test
+    public void testInvalidSelectionGoesToServer() {
+        assertNull(ParallelAggregate.parse("SELECT count(*), FROM t"));
+        assertNull(ParallelAggregate.parse("SELECT count(*),, max(a) FROM t"));
+        assertNull(ParallelAggregate.parse("SELECT , count(*) FROM t"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.dbschema;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import org.junit.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+
+public class QueryHintsTest {
+    @Test
+    public void testNoHints() throws SQLException {
+        assertSame(QueryHints.NONE, QueryHints.of("SELECT * FROM t"));
+        assertSame(QueryHints.NONE, QueryHints.of("/* comment */ SELECT * FROM t"));
+        assertSame(QueryHints.NONE, QueryHints.of("SELECT /*+ fetch=10 */ * FROM t"));
+        assertSame(QueryHints.NONE, QueryHints.of("/*+ unknown=1 */ SELECT * FROM t"));
+    }
+
+    @Test
+    public void testSettings() throws SQLException {
+        ExecutionProfile settings = QueryHints.of("  /*+ CONSISTENCY=local_one fetch=2000 timeout=2s idempotent tracing retry=Fallthrough */\n" +
+                "SELECT * FROM t").getSettings();
+        assertEquals(ConsistencyLevel.LOCAL_ONE, settings.getConsistencyLevel());
+        assertEquals(Integer.valueOf(2000), settings.getFetchSize());
+        assertEquals(Integer.valueOf(2000), settings.getTimeoutMillis());
+        assertEquals(Boolean.TRUE, settings.getIdempotent());
+        assertEquals(Boolean.TRUE, settings.getTracing());
+        assertEquals("fallthrough", settings.getRetryPolicy());
+    }
+
+    @Test
+    public void testTimeoutUnits() throws SQLException {
+        assertEquals(Integer.valueOf(500), QueryHints.of("/*+ timeout=500ms */ SELECT * FROM t").getSettings().getTimeoutMillis());
+        assertEquals(Integer.valueOf(300), QueryHints.of("/*+ timeout=300 */ SELECT * FROM t").getSettings().getTimeoutMillis());
+    }
+
+    @Test
+    public void testProfileOnly() throws SQLException {
+        assertNull(QueryHints.of("/*+ profile=OLTP */ SELECT * FROM t").getSettings());
+    }
+
+    @Test(expected = SQLException.class)
+    public void testInvalidTimeout() throws SQLException {
+        QueryHints.of("/*+ timeout=soon */ SELECT * FROM t");
+    }
+
+    @Test(expected = SQLException.class)
+    public void testInvalidConsistency() throws SQLException {
+        QueryHints.of("/*+ consistency=most */ SELECT * FROM t");
+    }
+
+    @Test
+    public void testStrip() {
+        assertEquals("SELECT count(*) FROM t", QueryHints.strip(" /*+ timeout=2s */ SELECT count(*) FROM t"));
+        assertEquals("SELECT * FROM t", QueryHints.strip("SELECT * FROM t"));
+        assertEquals("/*+ unterminated SELECT * FROM t", QueryHints.strip("/*+ unterminated SELECT * FROM t"));
+        assertNotNull(ParallelAggregate.parse(QueryHints.strip("/*+ consistency=one */ SELECT count(*) FROM t")));
+    }
+}
@@ -0,0 +1,96 @@
+package com.dbschema;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ScanCheckpointTest {
+    private static final String TABLE = "\"ks\".\"t\"";
+
+    private static File newFile() throws IOException {
+        File file = File.createTempFile("scan", ".checkpoint");
+        file.deleteOnExit();
+        return file;
+    }
+
+    private static void write(File file, String... lines) throws IOException {
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testNewCheckpointHasNoRanges() throws IOException {
+        File file = newFile();
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(file, TABLE, 0)) {
+            assertTrue(checkpoint.getRanges().isEmpty());
+        }
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        File file = newFile();
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(file, TABLE, 0)) {
+            ScanCheckpoint.RangeState first = new ScanCheckpoint.RangeState("-10", "0");
+            ScanCheckpoint.RangeState second = new ScanCheckpoint.RangeState("0", "10");
+            checkpoint.setRanges(Arrays.asList(first, second));
+            first.rows = 3;
+            first.lastToken = "-5";
+            first.pagingState = "abc";
+            checkpoint.page(first);
+            first.rows = 5;
+            checkpoint.done(first);
+            second.rows = 2;
+            second.lastToken = "4";
+            checkpoint.page(second);
+        }
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(file, TABLE, 0)) {
+            List<ScanCheckpoint.RangeState> ranges = checkpoint.getRanges();
+            assertEquals(2, ranges.size());
+            assertTrue(ranges.get(0).done);
+            assertEquals(5, ranges.get(0).rows);
+            assertFalse(ranges.get(1).done);
+            assertEquals(2, ranges.get(1).rows);
+            assertEquals("4", ranges.get(1).lastToken);
+            assertNull(ranges.get(1).pagingState);
+        }
+    }
+
+    @Test
+    public void testTornLastLineIsIgnored() throws IOException {
+        File file = newFile();
+        write(file, "scan " + TABLE, "range -10 0", "ranges 1", "page -10 3 -5 abc", "done -1");
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(file, TABLE, 0)) {
+            ScanCheckpoint.RangeState range = checkpoint.getRanges().get(0);
+            assertFalse(range.done);
+            assertEquals(3, range.rows);
+            assertEquals("abc", range.pagingState);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCheckpointOfAnotherTable() throws IOException {
+        File file = newFile();
+        write(file, "scan \"ks\".\"other\"", "range -10 0", "ranges 1");
+        ScanCheckpoint.open(file, TABLE, 0).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testRangesWithoutEndMarker() throws IOException {
+        File file = newFile();
+        write(file, "scan " + TABLE, "range -10 0", "range 0 10");
+        ScanCheckpoint.open(file, TABLE, 0).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testCheckpointWithoutHeader() throws IOException {
+        File file = newFile();
+        write(file, "range -10 0", "ranges 1");
+        ScanCheckpoint.open(file, TABLE, 0).close();
+    }
+}
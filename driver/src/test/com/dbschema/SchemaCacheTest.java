@@ -0,0 +1,74 @@
+package com.dbschema;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SchemaCacheTest {
+    private static byte[] write(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            SchemaCache.writeValue(out, value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object read(byte[] bytes) throws IOException {
+        return SchemaCache.readValue(new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
+    }
+
+    private static Object roundTrip(Object value) throws IOException {
+        return read(write(value));
+    }
+
+    @Test
+    public void testScalars() throws IOException {
+        assertNull(roundTrip(null));
+        assertEquals("comment \u00fc", roundTrip("comment \u00fc"));
+        assertEquals(true, roundTrip(true));
+        assertEquals(864000, roundTrip(864000));
+        assertEquals(5L, roundTrip(5L));
+        assertEquals(0.01, roundTrip(0.01));
+        UUID id = UUID.randomUUID();
+        assertEquals(id, roundTrip(id));
+    }
+
+    @Test
+    public void testBlob() throws IOException {
+        ByteBuffer value = ByteBuffer.wrap(new byte[]{0, 1, 2, 3});
+        value.position(1);
+        assertEquals(ByteBuffer.wrap(new byte[]{1, 2, 3}), roundTrip(value));
+        assertEquals(1, value.position());
+    }
+
+    @Test
+    public void testCollections() throws IOException {
+        assertEquals(Arrays.asList("a", "b"), roundTrip(Arrays.asList("a", "b")));
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("class", "org.apache.cassandra.db.compaction.SizeTieredCompactionStrategy");
+        map.put("max_threshold", "32");
+        map.put("extension", ByteBuffer.wrap(new byte[]{7}));
+        assertEquals(map, roundTrip(map));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedType() throws IOException {
+        write(new Date());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownTag() throws IOException {
+        read(new byte[]{42});
+    }
+
+    @Test(expected = IOException.class)
+    public void testLengthBeyondFile() throws IOException {
+        byte[] bytes = write("text");
+        bytes[4] = 100;
+        read(bytes);
+    }
+}
@@ -0,0 +1,60 @@
+package com.dbschema;
+
+import com.datastax.driver.core.VersionNumber;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SchemaTablesTest {
+
+    @Test
+    public void testSelectColumns() {
+        SchemaTables.Query query = SchemaTables.Query.parse(
+                "SELECT table_name, comment AS remark FROM system_schema.tables WHERE keyspace_name = 'ks'", null);
+        assertNotNull(query);
+        assertEquals("system_schema.tables", query.getTable());
+        assertEquals(Arrays.asList("table_name", "comment"), query.getSelection());
+        assertEquals(Arrays.asList("table_name", "remark"), query.getLabels());
+        assertEquals(Collections.singletonMap("keyspace_name", "ks"), query.getFilters());
+    }
+
+    @Test
+    public void testSelectStar() {
+        SchemaTables.Query query = SchemaTables.Query.parse("select * from SYSTEM_SCHEMA.columns where keyspace_name = ? and table_name = ?;",
+                new Object[]{"ks", "t"});
+        assertNotNull(query);
+        assertEquals(Arrays.asList("keyspace_name", "table_name", "column_name", "clustering_order", "column_name_bytes",
+                "kind", "position", "type"), query.getSelection());
+        assertEquals("t", query.getFilters().get("table_name"));
+        assertNotNull(SchemaTables.Query.parse("SELECT * FROM system.schema_columns", null));
+    }
+
+    @Test
+    public void testUnsupportedQueries() {
+        // options of tables depend on the server version
+        assertNull(SchemaTables.Query.parse("SELECT * FROM system_schema.tables", null));
+        assertNull(SchemaTables.Query.parse("SELECT unknown FROM system_schema.keyspaces", null));
+        assertNull(SchemaTables.Query.parse("SELECT * FROM system_schema.functions", null));
+        assertNull(SchemaTables.Query.parse("SELECT * FROM system_schema.columns WHERE keyspace_name IN ('a', 'b')", null));
+        assertNull(SchemaTables.Query.parse("SELECT * FROM system_schema.columns WHERE keyspace_name = 'a' ALLOW FILTERING", null));
+        assertNull(SchemaTables.Query.parse("SELECT * FROM system_schema.columns WHERE position = 1", null));
+        assertNull(SchemaTables.Query.parse("SELECT * FROM system_schema.columns WHERE keyspace_name = ?", null));
+        assertNull(SchemaTables.Query.parse("SELECT count(*) FROM system_schema.columns", null));
+        assertNull(SchemaTables.Query.parse("SELECT * FROM columns", null));
+    }
+
+    @Test
+    public void testColumnsRemovedInCassandra4() {
+        SchemaTables.Query query = SchemaTables.Query.parse(
+                "SELECT table_name, read_repair_chance FROM system_schema.tables WHERE keyspace_name = 'ks'", null);
+        assertNotNull(query);
+        assertTrue(query.isAnswerable(VersionNumber.parse("3.11.4")));
+        assertFalse(query.isAnswerable(VersionNumber.parse("4.0.1")));
+        assertFalse(query.isAnswerable(null));
+        SchemaTables.Query other = SchemaTables.Query.parse("SELECT table_name, comment FROM system_schema.tables", null);
+        assertTrue(other.isAnswerable(VersionNumber.parse("4.1.0")));
+    }
+}
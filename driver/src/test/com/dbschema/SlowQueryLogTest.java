@@ -0,0 +1,108 @@
+package com.dbschema;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SlowQueryLogTest {
+    @Test
+    public void testLinesPerSecond() {
+        SlowQueryLog log = new SlowQueryLog(100, 2);
+        assertEquals(0, log.tryLog(10));
+        assertEquals(0, log.tryLog(10));
+        assertEquals(-1, log.tryLog(10));
+        assertEquals(-1, log.tryLog(10));
+    }
+
+    @Test
+    public void testSkippedLinesAreReportedNextSecond() {
+        SlowQueryLog log = new SlowQueryLog(100, 1);
+        assertEquals(0, log.tryLog(10));
+        assertEquals(-1, log.tryLog(10));
+        assertEquals(-1, log.tryLog(10));
+        assertEquals(-1, log.tryLog(10));
+        assertEquals(3, log.tryLog(11));
+        assertEquals(-1, log.tryLog(11));
+        assertEquals(1, log.tryLog(12));
+        assertEquals(0, log.tryLog(13));
+    }
+
+    @Test
+    public void testDisabled() {
+        assertFalse(new SlowQueryLog(0, 1).isEnabled());
+        assertTrue(new SlowQueryLog(1, 1).isEnabled());
+    }
+
+    @Test
+    public void testFingerprint() {
+        assertEquals("SELECT v FROM t WHERE k = ? AND c = ?", SlowQueryLog.fingerprint("  SELECT v FROM t WHERE k = 1 AND c = 'x'  "));
+        assertEquals(SlowQueryLog.fingerprint("SELECT v FROM t WHERE k = 2"), SlowQueryLog.fingerprint("SELECT v FROM t WHERE k = 3"));
+        assertEquals("BATCH", SlowQueryLog.fingerprint(null));
+    }
+
+    @Test
+    public void testLongFingerprintIsTruncated() {
+        StringBuilder cql = new StringBuilder("SELECT v FROM t WHERE k IN (?");
+        while (cql.length() < SlowQueryLog.MAX_FINGERPRINT_LENGTH * 2) cql.append(", ?");
+        cql.append(")");
+        String fingerprint = SlowQueryLog.fingerprint(cql.toString());
+        assertEquals(SlowQueryLog.MAX_FINGERPRINT_LENGTH + 3, fingerprint.length());
+        assertTrue(fingerprint.startsWith("SELECT v FROM t WHERE k IN (?, ?"));
+        assertTrue(fingerprint.endsWith("..."));
+    }
+
+    @Test
+    public void testAggregatesAreSortedByTotalTime() throws SQLException {
+        SlowQueryLog log = new SlowQueryLog(100, 1);
+        log.aggregate("a", millis(200), 1);
+        log.aggregate("b", millis(300), 10);
+        log.aggregate("a", millis(400), 2);
+        ListResultSet aggregates = log.getAggregates();
+        assertTrue(aggregates.next());
+        assertEquals("a", aggregates.getString("fingerprint"));
+        assertEquals(2, aggregates.getLong("count"));
+        assertEquals(400, aggregates.getLong("max_ms"));
+        assertEquals(600, aggregates.getLong("total_ms"));
+        assertEquals(3, aggregates.getLong("rows"));
+        assertTrue(aggregates.next());
+        assertEquals("b", aggregates.getString("fingerprint"));
+        assertEquals(1, aggregates.getLong("count"));
+        assertEquals(300, aggregates.getLong("p50_ms"));
+        assertEquals(300, aggregates.getLong("p99_ms"));
+        assertEquals(300, aggregates.getLong("total_ms"));
+        assertEquals(10, aggregates.getLong("rows"));
+        assertFalse(aggregates.next());
+    }
+
+    @Test
+    public void testLeastRecentFingerprintIsEvicted() throws SQLException {
+        SlowQueryLog log = new SlowQueryLog(100, 1);
+        for (int i = 0; i < SlowQueryLog.MAX_FINGERPRINTS; i++) log.aggregate("q" + i, millis(100), 0);
+        // q0 becomes the most recent, so q1 is evicted
+        log.aggregate("q0", millis(100), 0);
+        log.aggregate("new", millis(100), 0);
+        int count = 0;
+        boolean q0 = false;
+        boolean q1 = false;
+        boolean added = false;
+        ListResultSet aggregates = log.getAggregates();
+        while (aggregates.next()) {
+            count++;
+            String fingerprint = aggregates.getString("fingerprint");
+            q0 |= fingerprint.equals("q0");
+            q1 |= fingerprint.equals("q1");
+            added |= fingerprint.equals("new");
+        }
+        assertEquals(SlowQueryLog.MAX_FINGERPRINTS, count);
+        assertTrue(q0);
+        assertFalse(q1);
+        assertTrue(added);
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}